@@ -0,0 +1,47 @@
+package org.texttechnologylab.ppr.blatt3.benchmarks;
+
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Hilfsmethoden zum Laden der Protokolldateien für die Benchmarks
+ */
+final class BenchmarkDaten {
+
+    private BenchmarkDaten() {
+    }
+
+    /**
+     * Alle XML-Dateien eines Ordners, numerisch sortiert (1.xml, 2.xml, ... 10.xml)
+     * @param ordner Ordner mit den Protokollen (z.B. ../src/main/resources/20)
+     * @return die XML-Dateien
+     */
+    static File[] xmlDateien(String ordner) {
+        File[] dateien = new File(ordner).listFiles((dir, name) -> name.toLowerCase().endsWith(".xml"));
+        if (dateien == null || dateien.length == 0) {
+            throw new IllegalStateException("No XML files in " + new File(ordner).getAbsolutePath()
+                    + " (set the folder with -p daten=...)");
+        }
+        Arrays.sort(dateien, Comparator.comparingInt((File datei) -> datei.getName().length())
+                .thenComparing(File::getName));
+        return dateien;
+    }
+
+    /**
+     * Liest eine Datei als DOM ein (ohne externe DTD, wie in der ObjectFactory)
+     * @param datei XML-Datei
+     * @return das Dokument
+     * @throws Exception bei ungültigem XML
+     */
+    static Document leseDom(File datei) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        Document doc = factory.newDocumentBuilder().parse(datei);
+        doc.getDocumentElement().normalize();
+        return doc;
+    }
+}
@@ -0,0 +1,23 @@
+package org.texttechnologylab.ppr.blatt3.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Startet die Benchmarks mit den normalen JMH Kommandozeilen-Optionen
+ * Der GC-Profiler ist immer aktiv, damit die Allokationsrate (gc.alloc.rate, gc.alloc.rate.norm)
+ * für jeden Schritt mit ausgegeben wird.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
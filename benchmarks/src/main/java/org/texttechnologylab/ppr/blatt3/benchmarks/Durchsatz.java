@@ -0,0 +1,27 @@
+package org.texttechnologylab.ppr.blatt3.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Zusätzliche Zähler, die JMH als Rate pro Sekunde ausgibt: Dateien/s, Reden/s und MB/s
+ * (die Benchmarks laufen im Modus Throughput mit OutputTimeUnit SECONDS).
+ * Bei Benchmarks auf einzelnen Reden wird der Anteil der Rede an ihrer Datei gezählt.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Durchsatz {
+    public double dateien;
+    public double reden;
+    public double megabytes;
+
+    @Setup(Level.Iteration)
+    public void zuruecksetzen() {
+        dateien = 0;
+        reden = 0;
+        megabytes = 0;
+    }
+}
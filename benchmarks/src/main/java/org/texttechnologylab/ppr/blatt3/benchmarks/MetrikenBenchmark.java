@@ -0,0 +1,66 @@
+package org.texttechnologylab.ppr.blatt3.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.texttechnologylab.ppr.blatt3.data.redenportal.KorpusStand;
+import org.texttechnologylab.ppr.blatt3.data.redenportal.ObjectFactory;
+import org.texttechnologylab.ppr.blatt3.data.redenportal.Rede;
+import org.texttechnologylab.ppr.blatt3.data.redenportal.RedenMetriken;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmark für die Statistiken: Spaltenspeicher (RedenMetriken) gegen Streams über die Rede-Objekte
+ * Lädt den kompletten Ordner einmal, Ergebnis ist die Zeit pro Aggregation über alle Reden.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class MetrikenBenchmark {
+
+    @Param("../src/main/resources/20")
+    public String daten;
+
+    private KorpusStand stand;
+    private RedenMetriken metriken;
+
+    @Setup
+    public void setup() {
+        ObjectFactory factory = new ObjectFactory();
+        factory.loadXML(daten);
+        stand = factory.getStand();
+        metriken = stand.getMetriken();
+    }
+
+    @Benchmark
+    public double durchschnittLaengeSpalten() {
+        return metriken.durchschnitt(RedenMetriken.Spalte.LAENGE);
+    }
+
+    @Benchmark
+    public double durchschnittLaengeStream() {
+        return stand.getAlleRede().stream()
+                .mapToInt(Rede::getLaenge)
+                .average()
+                .orElse(0.0);
+    }
+
+    @Benchmark
+    public long[] kommentareProFraktionSpalten() {
+        return metriken.summeProGruppe(RedenMetriken.Gruppe.FRAKTION, RedenMetriken.Spalte.KOMMENTARE);
+    }
+
+    @Benchmark
+    public Map<String, Integer> kommentareProFraktionStream() {
+        return stand.getAlleRede().stream()
+                .filter(rede -> rede.getRedner().getFraktion() != null)
+                .collect(Collectors.groupingBy(
+                        rede -> rede.getRedner().getFraktion().getName() != null
+                                ? rede.getRedner().getFraktion().getName() : "Fraktionslos",
+                        Collectors.summingInt(rede -> rede.getKommentar().size())));
+    }
+}
@@ -0,0 +1,59 @@
+package org.texttechnologylab.ppr.blatt3.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.texttechnologylab.ppr.blatt3.data.helper.NormalizeFraktion;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark für NormalizeFraktion.normalizeFraktion
+ * Benutzt die Fraktionsnamen, wie sie in den Protokollen stehen (mit Häufigkeit), Ergebnis ist Namen/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NormalizeFraktionBenchmark {
+
+    @Param("../src/main/resources/20")
+    public String daten;
+
+    @Param("20")
+    public int anzahlDateien;
+
+    private String[] namen;
+
+    @State(Scope.Thread)
+    public static class Position {
+        int naechste;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        File[] dateien = BenchmarkDaten.xmlDateien(daten);
+        List<String> gefunden = new ArrayList<>();
+        for (int i = 0; i < Math.min(anzahlDateien, dateien.length); i++) {
+            Document doc = BenchmarkDaten.leseDom(dateien[i]);
+            NodeList fraktionen = doc.getElementsByTagName("fraktion");
+            for (int j = 0; j < fraktionen.getLength(); j++) {
+                gefunden.add(fraktionen.item(j).getTextContent());
+            }
+        }
+        if (gefunden.isEmpty()) {
+            throw new IllegalStateException("No fraktion elements found");
+        }
+        namen = gefunden.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public String normalizeFraktion(Position position) {
+        return NormalizeFraktion.normalizeFraktion(namen[position.naechste++ % namen.length]);
+    }
+}
@@ -0,0 +1,57 @@
+package org.texttechnologylab.ppr.blatt3.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.texttechnologylab.ppr.blatt3.data.redenportal.ObjectFactory;
+import org.texttechnologylab.ppr.blatt3.data.redenportal.Rede;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark für ObjectFactory.parseXMLFile: eine komplette Protokolldatei pro Operation
+ * Die Dateien werden reihum gelesen, beide Parser (StAX und DOM) werden verglichen.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ParseXMLFileBenchmark {
+
+    @Param("../src/main/resources/20")
+    public String daten;
+
+    @Param({"stax", "dom"})
+    public String parser;
+
+    private File[] dateien;
+    private ObjectFactory factory;
+
+    /**
+     * Position in der Dateiliste, pro Thread
+     */
+    @State(Scope.Thread)
+    public static class Position {
+        int naechste;
+    }
+
+    @Setup
+    public void setup() {
+        dateien = BenchmarkDaten.xmlDateien(daten);
+        factory = new ObjectFactory();
+        factory.setIngestParser(parser);
+    }
+
+    @Benchmark
+    public List<Rede> parseXMLFile(Position position, Durchsatz durchsatz) {
+        File datei = dateien[position.naechste++ % dateien.length];
+        List<Rede> reden = factory.parseXMLFile(datei);
+
+        durchsatz.dateien++;
+        durchsatz.reden += reden.size();
+        durchsatz.megabytes += datei.length() / 1_000_000.0;
+        return reden;
+    }
+}
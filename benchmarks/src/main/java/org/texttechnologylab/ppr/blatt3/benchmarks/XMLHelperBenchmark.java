@@ -0,0 +1,102 @@
+package org.texttechnologylab.ppr.blatt3.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.texttechnologylab.ppr.blatt3.data.helper.XMLHelper;
+import org.texttechnologylab.ppr.blatt3.data.redenportal.Rede;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks für die DOM-Schritte im XMLHelper: parseRede und extrahiereRedeText
+ * Die Dokumente werden vorher eingelesen, gemessen wird nur die Verarbeitung der Rede-Elemente.
+ * MB/s bezieht sich auf den Textinhalt der Rede-Elemente.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class XMLHelperBenchmark {
+
+    @Param("../src/main/resources/20")
+    public String daten;
+
+    // Anzahl der Dateien, die als DOM im Speicher gehalten werden
+    @Param("20")
+    public int anzahlDateien;
+
+    private Element[] redeElemente;
+    private Element[] rootElemente;
+    private double[] redeMegabytes;
+    private double[] dateiAnteil;  // 1 / Anzahl Reden der Datei
+
+    /**
+     * Position und eigener XMLHelper pro Thread (der XMLHelper hat einen Cache)
+     */
+    @State(Scope.Thread)
+    public static class Lauf {
+        int naechste;
+        final XMLHelper xmlHelper = new XMLHelper();
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        File[] dateien = BenchmarkDaten.xmlDateien(daten);
+        List<Element> reden = new ArrayList<>();
+        List<Element> roots = new ArrayList<>();
+        List<Double> anteile = new ArrayList<>();
+
+        for (int i = 0; i < Math.min(anzahlDateien, dateien.length); i++) {
+            Document doc = BenchmarkDaten.leseDom(dateien[i]);
+            Element root = doc.getDocumentElement();
+            Element verlauf = (Element) root.getElementsByTagName("sitzungsverlauf").item(0);
+            if (verlauf == null) continue;
+
+            NodeList elemente = verlauf.getElementsByTagName("rede");
+            for (int j = 0; j < elemente.getLength(); j++) {
+                reden.add((Element) elemente.item(j));
+                roots.add(root);
+                anteile.add(1.0 / elemente.getLength());
+            }
+        }
+
+        redeElemente = reden.toArray(new Element[0]);
+        rootElemente = roots.toArray(new Element[0]);
+        redeMegabytes = new double[redeElemente.length];
+        dateiAnteil = new double[redeElemente.length];
+        for (int i = 0; i < redeElemente.length; i++) {
+            redeMegabytes[i] = redeElemente[i].getTextContent().getBytes(StandardCharsets.UTF_8).length / 1_000_000.0;
+            dateiAnteil[i] = anteile.get(i);
+        }
+    }
+
+    @Benchmark
+    public Rede parseRede(Lauf lauf, Durchsatz durchsatz) {
+        int i = lauf.naechste++ % redeElemente.length;
+        Rede rede = lauf.xmlHelper.parseRede(redeElemente[i], rootElemente[i]);
+        zaehle(i, durchsatz);
+        return rede;
+    }
+
+    @Benchmark
+    public String extrahiereRedeText(Lauf lauf, Durchsatz durchsatz) {
+        int i = lauf.naechste++ % redeElemente.length;
+        String text = XMLHelper.extrahiereRedeText(redeElemente[i]);
+        zaehle(i, durchsatz);
+        return text;
+    }
+
+    private void zaehle(int i, Durchsatz durchsatz) {
+        durchsatz.dateien += dateiAnteil[i];
+        durchsatz.reden++;
+        durchsatz.megabytes += redeMegabytes[i];
+    }
+}
@@ -2,6 +2,8 @@ package org.texttechnologylab.ppr.blatt3.config;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -48,6 +50,23 @@ public class AppProperties {
         if (!properties.containsKey("api.base.path")) properties.setProperty("api.base.path", "/api");
         if (!properties.containsKey("template.directory")) properties.setProperty("template.directory", "/templates");
         if (!properties.containsKey("static.directory")) properties.setProperty("static.directory", "/formatting");
+        if (!properties.containsKey("data.path")) properties.setProperty("data.path", "");
+        if (!properties.containsKey("ingest.threads")) properties.setProperty("ingest.threads", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        if (!properties.containsKey("ingest.executor")) properties.setProperty("ingest.executor", "forkjoin");
+        if (!properties.containsKey("ingest.parser")) properties.setProperty("ingest.parser", "stax");
+        if (!properties.containsKey("snapshot.enabled")) properties.setProperty("snapshot.enabled", "true");
+        if (!properties.containsKey("snapshot.directory")) properties.setProperty("snapshot.directory", "snapshots");
+        if (!properties.containsKey("cache.enabled")) properties.setProperty("cache.enabled", "true");
+        if (!properties.containsKey("cache.directory")) properties.setProperty("cache.directory", "cache");
+        if (!properties.containsKey("watch.enabled")) properties.setProperty("watch.enabled", "false");
+        if (!properties.containsKey("ingest.publish.batch")) properties.setProperty("ingest.publish.batch", "20");
+        if (!properties.containsKey("startup.serve.partial")) properties.setProperty("startup.serve.partial", "true");
+        if (!properties.containsKey("upload.max.concurrent")) properties.setProperty("upload.max.concurrent", "2");
+        if (!properties.containsKey("text.compressed")) properties.setProperty("text.compressed", "false");
+        if (!properties.containsKey("text.cache.mb")) properties.setProperty("text.cache.mb", "32");
+        if (!properties.containsKey("text.blob.enabled")) properties.setProperty("text.blob.enabled", "false");
+        if (!properties.containsKey("text.blob.file")) properties.setProperty("text.blob.file", "blobs/texte.bin");
+        if (!properties.containsKey("konkordanz.enabled")) properties.setProperty("konkordanz.enabled", "false");
     }
 
     // Getters
@@ -100,4 +119,128 @@ public class AppProperties {
     public String getTemplateDirectory() {
         return properties.getProperty("template.directory");
     }
+
+    /**
+     * Returns the paths to the protocol data (folders, .zip or .tar.gz archives), ex. one per Wahlperiode.
+     * Empty means the bundled "20" folder from the classpath.
+     */
+    public List<String> getDataPaths() {
+        List<String> paths = new ArrayList<>();
+        for (String path : properties.getProperty("data.path").split(",")) {
+            if (!path.isBlank()) paths.add(path.trim());
+        }
+        return paths;
+    }
+
+    /**
+     * Returns the number of threads used to parse the XML files in parallel.
+     */
+    public int getIngestThreads() {
+        return Integer.parseInt(properties.getProperty("ingest.threads").trim());
+    }
+
+    /**
+     * Returns the pool type for XML parsing ("forkjoin", "virtual" or "sequential").
+     */
+    public String getIngestExecutor() {
+        return properties.getProperty("ingest.executor").trim();
+    }
+
+    /**
+     * Returns the XML parser used for ingest ("stax" or "dom").
+     */
+    public String getIngestParser() {
+        return properties.getProperty("ingest.parser").trim();
+    }
+
+    /**
+     * Returns after how many files the partially loaded data is published during startup.
+     */
+    public int getIngestPublishBatch() {
+        return Integer.parseInt(properties.getProperty("ingest.publish.batch").trim());
+    }
+
+    /**
+     * Returns whether data endpoints serve the partially loaded data during startup (otherwise 503).
+     */
+    public boolean isStartupServePartial() {
+        return Boolean.parseBoolean(properties.getProperty("startup.serve.partial").trim());
+    }
+
+    /**
+     * Returns whether the binary corpus snapshot is used.
+     */
+    public boolean isSnapshotEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("snapshot.enabled").trim());
+    }
+
+    /**
+     * Returns the directory for the binary corpus snapshot.
+     */
+    public String getSnapshotDirectory() {
+        return properties.getProperty("snapshot.directory").trim();
+    }
+
+    /**
+     * Returns whether the XML folder is watched for new or changed protocols.
+     */
+    public boolean isWatchEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("watch.enabled").trim());
+    }
+
+    /**
+     * Returns whether the per-file parse cache is used.
+     */
+    public boolean isCacheEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("cache.enabled").trim());
+    }
+
+    /**
+     * Returns the directory for the per-file parse cache.
+     */
+    public String getCacheDirectory() {
+        return properties.getProperty("cache.directory").trim();
+    }
+
+    /**
+     * Returns how many protocol uploads are processed at the same time, further uploads get 429 at once.
+     */
+    public int getUploadMaxConcurrent() {
+        return Integer.parseInt(properties.getProperty("upload.max.concurrent").trim());
+    }
+
+    /**
+     * Returns whether speech texts are kept compressed in memory.
+     */
+    public boolean isTextCompressed() {
+        return Boolean.parseBoolean(properties.getProperty("text.compressed").trim());
+    }
+
+    /**
+     * Returns the size in MB of the cache for decompressed speech texts.
+     */
+    public int getTextCacheMb() {
+        return Integer.parseInt(properties.getProperty("text.cache.mb").trim());
+    }
+
+    /**
+     * Returns whether speech and comment texts are kept off-heap in a memory-mapped file.
+     */
+    public boolean isTextBlobEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("text.blob.enabled").trim());
+    }
+
+    /**
+     * Returns the memory-mapped file for speech and comment texts.
+     */
+    public String getTextBlobFile() {
+        return properties.getProperty("text.blob.file").trim();
+    }
+
+    /**
+     * Returns whether /api/konkordanz is available and its suffix array is built after loading (default false).
+     */
+    public boolean isKonkordanzEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("konkordanz.enabled").trim());
+    }
 }
\ No newline at end of file
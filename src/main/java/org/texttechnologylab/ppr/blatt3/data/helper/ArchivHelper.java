@@ -0,0 +1,155 @@
+package org.texttechnologylab.ppr.blatt3.data.helper;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Hilfsklasse zum Lesen von Protokoll-Archiven (.zip, .tar.gz)
+ * ZIP-Dateien werden direkt über java.util.zip.ZipFile gelesen,
+ * für .tar.gz gibt es hier einen kleinen Leser für das tar-Format (ohne zusätzliche Bibliothek).
+ * Es werden keine temporären Dateien angelegt.
+ */
+public class ArchivHelper {
+
+    /**
+     * Prüft ob ein Dateiname ein unterstütztes Archiv ist
+     */
+    public static boolean istArchiv(String name) {
+        return istZip(name) || istTarGz(name);
+    }
+
+    public static boolean istZip(String name) {
+        return name.toLowerCase().endsWith(".zip");
+    }
+
+    public static boolean istTarGz(String name) {
+        String klein = name.toLowerCase();
+        return klein.endsWith(".tar.gz") || klein.endsWith(".tgz");
+    }
+
+    /**
+     * Prüft ob ein Archiv-Eintrag eine XML-Datei ist (ohne macOS Metadaten wie "._1.xml")
+     */
+    public static boolean istXmlEintrag(String name) {
+        String dateiName = name.substring(name.lastIndexOf('/') + 1);
+        return dateiName.toLowerCase().endsWith(".xml") && !dateiName.startsWith("._");
+    }
+
+    /**
+     * Verhindert, dass ein Parser den Archiv-Stream schließt (der DOM-Parser schließt seine Eingabe)
+     * Nötig, wenn mehrere Einträge nacheinander aus demselben Stream gelesen werden.
+     * @param in Stream des Archivs
+     * @return Stream, dessen close() nichts tut
+     */
+    public static InputStream ohneSchliessen(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public void close() {
+                // Archiv bleibt offen für den nächsten Eintrag
+            }
+        };
+    }
+
+    /**
+     * Liest ein tar-Archiv Eintrag für Eintrag aus einem (bereits entpackten) Stream
+     * Nur normale Dateien werden geliefert, Ordner und Links werden übersprungen.
+     */
+    public static class TarLeser {
+        private static final int BLOCK = 512;
+
+        private final InputStream in;
+        private final byte[] kopf = new byte[BLOCK];
+        private long offen = 0;  // noch nicht gelesene Bytes (inkl. Auffüllung) des aktuellen Eintrags
+        private long aktuelleGroesse = 0;  // Größe des aktuellen Eintrags
+
+        public TarLeser(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Springt zum nächsten Eintrag, der eine normale Datei ist
+         * @return Name des Eintrags oder null am Ende des Archivs
+         * @throws IOException bei Lesefehlern oder kaputtem Archiv
+         */
+        public String naechsterEintrag() throws IOException {
+            while (true) {
+                ueberspringe(offen);
+                offen = 0;
+
+                if (!leseVoll(kopf)) return null;
+                if (istLeer(kopf)) return null;  // zwei leere Blöcke markieren das Ende
+
+                String name = text(kopf, 0, 100);
+                long groesse = oktal(kopf, 124, 12);
+                char typ = (char) kopf[156];
+                String prefix = "ustar".equals(text(kopf, 257, 5)) ? text(kopf, 345, 155) : "";
+                if (!prefix.isEmpty()) name = prefix + "/" + name;
+
+                offen = ((groesse + BLOCK - 1) / BLOCK) * BLOCK;
+                if (typ == '0' || typ == '\0') {
+                    aktuelleGroesse = groesse;
+                    return name;
+                }
+            }
+        }
+
+        /**
+         * Liest den Inhalt des aktuellen Eintrags komplett
+         * @return Inhalt als Bytes
+         * @throws IOException bei Lesefehlern
+         */
+        public byte[] leseInhalt() throws IOException {
+            if (aktuelleGroesse > Integer.MAX_VALUE) throw new IOException("Tar entry too large");
+            byte[] inhalt = new byte[(int) aktuelleGroesse];
+            if (!leseVoll(inhalt)) throw new EOFException("Unexpected end of tar archive");
+            offen -= inhalt.length;
+            aktuelleGroesse = 0;
+            return inhalt;
+        }
+
+        private boolean leseVoll(byte[] puffer) throws IOException {
+            int gelesen = 0;
+            while (gelesen < puffer.length) {
+                int n = in.read(puffer, gelesen, puffer.length - gelesen);
+                if (n < 0) {
+                    if (gelesen == 0) return false;
+                    throw new EOFException("Unexpected end of tar archive");
+                }
+                gelesen += n;
+            }
+            return true;
+        }
+
+        private void ueberspringe(long anzahl) throws IOException {
+            while (anzahl > 0) {
+                long n = in.skip(anzahl);
+                if (n <= 0) {
+                    if (in.read() < 0) throw new EOFException("Unexpected end of tar archive");
+                    n = 1;
+                }
+                anzahl -= n;
+            }
+        }
+
+        private static boolean istLeer(byte[] block) {
+            for (byte b : block) {
+                if (b != 0) return false;
+            }
+            return true;
+        }
+
+        private static String text(byte[] block, int start, int laenge) {
+            int ende = start;
+            while (ende < start + laenge && block[ende] != 0) ende++;
+            return new String(block, start, ende - start, StandardCharsets.UTF_8).trim();
+        }
+
+        private static long oktal(byte[] block, int start, int laenge) {
+            String wert = text(block, start, laenge);
+            return wert.isEmpty() ? 0 : Long.parseLong(wert, 8);
+        }
+    }
+}
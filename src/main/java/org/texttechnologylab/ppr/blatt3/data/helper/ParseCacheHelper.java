@@ -0,0 +1,115 @@
+package org.texttechnologylab.ppr.blatt3.data.helper;
+
+import org.texttechnologylab.ppr.blatt3.data.redenportal.Rede;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache für die Parse-Ergebnisse einzelner XML-Dateien auf der Festplatte
+ * Der Schlüssel ist der SHA-256 Hash des Dateiinhalts, d.h. unveränderte Dateien werden
+ * beim nächsten Start aus dem Cache gelesen, auch wenn sie umbenannt oder verschoben wurden.
+ * Das Format der Einträge ist das gleiche wie im SnapshotHelper.
+ * Einträge geänderter oder gelöschter Dateien werden mit entferne() und raeumeAuf() wieder gelöscht.
+ */
+public class ParseCacheHelper {
+
+    private static final int MAGIC = 0x52504348;  // "RPCH"
+
+    private final Path verzeichnis;
+
+    /**
+     * Erstellt einen Cache in dem angegebenen Ordner
+     * @param verzeichnis Ordner für die Cache-Dateien
+     */
+    public ParseCacheHelper(String verzeichnis) {
+        this.verzeichnis = Paths.get(verzeichnis);
+    }
+
+    /**
+     * Lädt die Reden für einen Dateiinhalt
+     * @param hash SHA-256 des XML-Inhalts
+     * @return die Reden oder null, wenn es keinen (gültigen) Eintrag gibt
+     */
+    public List<Rede> lade(String hash) {
+        Path datei = verzeichnis.resolve(hash + ".bin");
+        if (!Files.isRegularFile(datei)) return null;
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(datei));
+            if (buffer.getInt() != MAGIC || buffer.getInt() != SnapshotHelper.VERSION) return null;
+            Map<String, List<Rede>> reden = SnapshotHelper.leseReden(buffer);
+            return reden.isEmpty() ? null : reden.values().iterator().next();
+        } catch (Exception e) {
+            System.err.println("Parse cache entry could not be read: " + datei + " (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+
+    /**
+     * Speichert die Reden für einen Dateiinhalt
+     * @param hash SHA-256 des XML-Inhalts
+     * @param quelle Name der Quelle (nur zur Information)
+     * @param reden die geparsten Reden
+     */
+    public void speichere(String hash, String quelle, List<Rede> reden) {
+        try {
+            Files.createDirectories(verzeichnis);
+            // Eigene temporäre Datei pro Aufruf, da mehrere Threads gleichzeitig schreiben können
+            Path tmp = Files.createTempFile(verzeichnis, hash, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(SnapshotHelper.VERSION);
+                SnapshotHelper.schreibeReden(out, Map.of(quelle, reden));
+            }
+            Files.move(tmp, verzeichnis.resolve(hash + ".bin"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Parse cache entry could not be written: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Löscht den Eintrag für einen Dateiinhalt, z.B. nachdem die Datei geändert wurde
+     * @param hash SHA-256 des alten XML-Inhalts
+     */
+    public void entferne(String hash) {
+        try {
+            Files.deleteIfExists(verzeichnis.resolve(hash + ".bin"));
+        } catch (IOException e) {
+            System.err.println("Parse cache entry could not be deleted: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Löscht alle Einträge, deren Hash zu keiner geladenen Datei gehört
+     * @param benutzt Hashes der Inhalte aller geladenen Dateien
+     * @return Anzahl der gelöschten Einträge
+     */
+    public int raeumeAuf(Set<String> benutzt) {
+        if (!Files.isDirectory(verzeichnis)) return 0;
+
+        int geloescht = 0;
+        try (DirectoryStream<Path> eintraege = Files.newDirectoryStream(verzeichnis, "*.bin")) {
+            for (Path datei : eintraege) {
+                String name = datei.getFileName().toString();
+                if (!benutzt.contains(name.substring(0, name.length() - ".bin".length()))) {
+                    Files.deleteIfExists(datei);
+                    geloescht++;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Parse cache could not be cleaned up: " + e.getMessage());
+        }
+        return geloescht;
+    }
+}
@@ -0,0 +1,416 @@
+package org.texttechnologylab.ppr.blatt3.data.helper;
+
+import org.texttechnologylab.ppr.blatt3.data.redenportal.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Binärer Snapshot der geladenen Reden
+ * Speichert Reden mit Redner, Fraktion, Sitzung und Kommentaren in einer kompakten Datei,
+ * damit beim nächsten Start nicht alle XML-Dateien neu geparst werden müssen.
+ *
+ * Aufbau: Kopf (Magic, Version, Fingerprint), Stringtabelle, Fraktionen, Sitzungen, Redner,
+ * danach die Reden gruppiert nach Quelle (Dateiname).
+ * Objekte werden über ihren Index in der jeweiligen Tabelle referenziert, -1 steht für null.
+ */
+public class SnapshotHelper {
+
+    private static final int MAGIC = 0x52505348;  // "RPSH"
+
+    // Bei jeder Änderung am Format erhöhen, alte Snapshots werden dann verworfen
+    public static final int VERSION = 3;
+
+    /**
+     * Fingerprint eines Ordners aus Name, Größe und Änderungszeit aller Dateien
+     * Ändert sich eine Datei, kommt eine dazu oder fällt eine weg, ändert sich der Fingerprint
+     * @param files die Quelldateien
+     * @return SHA-256 als Hex-String
+     */
+    public static String fingerprint(File[] files) {
+        StringBuilder inhalt = new StringBuilder();
+        File[] sortiert = files.clone();
+        Arrays.sort(sortiert, Comparator.comparing(File::getName));
+        for (File file : sortiert) {
+            inhalt.append(file.getName()).append('|')
+                    .append(file.length()).append('|')
+                    .append(file.lastModified()).append('\n');
+        }
+        return sha256(inhalt.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Snapshot-Datei für einen Ordner oder ein Archiv
+     * Der Name enthält einen Hash des kanonischen Pfads, damit z.B. "a/20" und "b/20" nicht dieselbe Datei benutzen.
+     * @param verzeichnis Snapshot-Verzeichnis
+     * @param quelle der geladene Ordner oder das Archiv
+     * @return z.B. korpus-20-1f2e3d4c5b6a7980.snap
+     */
+    public static Path snapshotDatei(String verzeichnis, File quelle) {
+        String pfad;
+        try {
+            pfad = quelle.getCanonicalPath();
+        } catch (IOException e) {
+            pfad = quelle.getAbsolutePath();
+        }
+        String hash = sha256(pfad.getBytes(StandardCharsets.UTF_8)).substring(0, 16);
+        return Path.of(verzeichnis, "korpus-" + quelle.getName() + "-" + hash + ".snap");
+    }
+
+    /**
+     * SHA-256 Hash als Hex-String
+     */
+    public static String sha256(byte[] daten) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(daten);
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 nicht verfügbar", e);
+        }
+    }
+
+    /**
+     * Schreibt die Reden als Snapshot (erst in eine temporäre Datei, dann umbenennen)
+     * @param datei Zieldatei
+     * @param fingerprint Fingerprint der Quelldaten
+     * @param reden Reden pro Quelle in der Reihenfolge, in der sie zusammengeführt wurden
+     * @throws IOException bei Schreibfehlern
+     */
+    public static void schreibeSnapshot(Path datei, String fingerprint, Map<String, List<Rede>> reden) throws IOException {
+        if (datei.getParent() != null) {
+            Files.createDirectories(datei.getParent());
+        }
+        Path tmp = datei.resolveSibling(datei.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(fingerprint);
+            schreibeReden(out, reden);
+        }
+        Files.move(tmp, datei, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lädt einen Snapshot über Memory-Mapping
+     * @param datei Snapshot-Datei
+     * @param fingerprint erwarteter Fingerprint der Quelldaten
+     * @return die Reden pro Quelle oder null, wenn es keinen passenden Snapshot gibt
+     */
+    public static Map<String, List<Rede>> ladeSnapshot(Path datei, String fingerprint) {
+        if (!Files.isRegularFile(datei)) return null;
+
+        try (FileChannel channel = FileChannel.open(datei, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                System.out.println("Snapshot veraltet (Format): " + datei);
+                return null;
+            }
+            if (!fingerprint.equals(leseUTF(buffer))) {
+                System.out.println("Snapshot veraltet (Quelldaten geändert): " + datei);
+                return null;
+            }
+            return leseReden(buffer);
+        } catch (Exception e) {
+            System.err.println("Snapshot konnte nicht gelesen werden: " + datei + " (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+
+    /**
+     * Schreibt Reden samt aller referenzierten Objekte (ohne Kopf)
+     * @param out Ausgabe
+     * @param quellen die Reden pro Quelle
+     * @throws IOException bei Schreibfehlern
+     */
+    public static void schreibeReden(DataOutputStream out, Map<String, List<Rede>> quellen) throws IOException {
+        List<Rede> reden = new ArrayList<>();
+        for (List<Rede> quelle : quellen.values()) {
+            reden.addAll(quelle);
+        }
+
+        Tabelle<String> strings = new Tabelle<>(new HashMap<>());
+        Tabelle<Fraktion> fraktionen = new Tabelle<>(new IdentityHashMap<>());
+        Tabelle<Sitzung> sitzungen = new Tabelle<>(new IdentityHashMap<>());
+        Tabelle<Redner> redner = new Tabelle<>(new IdentityHashMap<>());
+
+        // Erster Durchlauf: alle Objekte und Strings registrieren
+        for (String quelle : quellen.keySet()) {
+            strings.index(quelle);
+        }
+        for (Rede rede : reden) {
+            strings.index(rede.getRid());
+            Absaetze absaetze = rede.absaetze();
+            for (int i = 0; i < absaetze.getAnzahl(); i++) {
+                strings.index(absaetze.klasse(i));
+            }
+            registriereRedner(rede.getRedner(), redner, fraktionen, strings);
+            Sitzung sitzung = rede.getSitzung();
+            if (sitzungen.hinzufuegen(sitzung)) {
+                strings.index(sitzung.getWahlperiode());
+                strings.index(sitzung.getSitzungNr());
+                strings.index(sitzung.getSitzungOrt());
+            }
+            for (Kommentar kommentar : rede.getKommentar()) {
+                strings.index(kommentar.getTextk());
+                registriereRedner(kommentar.getRedner(), redner, fraktionen, strings);
+                if (fraktionen.hinzufuegen(kommentar.getFraktion())) {
+                    strings.index(kommentar.getFraktion().getName());
+                }
+            }
+        }
+
+        // Stringtabelle
+        out.writeInt(strings.groesse());
+        for (String s : strings.liste) {
+            schreibeBytes(out, s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        out.writeInt(fraktionen.groesse());
+        for (Fraktion fraktion : fraktionen.liste) {
+            out.writeInt(strings.index(fraktion.getName()));
+        }
+
+        out.writeInt(sitzungen.groesse());
+        for (Sitzung sitzung : sitzungen.liste) {
+            out.writeInt(strings.index(sitzung.getWahlperiode()));
+            out.writeInt(strings.index(sitzung.getSitzungNr()));
+            out.writeInt(strings.index(sitzung.getSitzungOrt()));
+            out.writeLong(sitzung.getSitzungDatum() != null ? sitzung.getSitzungDatum().getTime() : Long.MIN_VALUE);
+            out.writeInt(sitzung.getStartZeit() != null ? sitzung.getStartZeit().toSecondOfDay() : -1);
+            out.writeInt(sitzung.getEndZeit() != null ? sitzung.getEndZeit().toSecondOfDay() : -1);
+        }
+
+        out.writeInt(redner.groesse());
+        for (Redner r : redner.liste) {
+            out.writeInt(strings.index(r.getTitel()));
+            out.writeInt(strings.index(r.getId()));
+            out.writeInt(strings.index(r.getVorname()));
+            out.writeInt(strings.index(r.getNachname()));
+            out.writeInt(fraktionen.index(r.getFraktion()));
+        }
+
+        out.writeInt(quellen.size());
+        for (Map.Entry<String, List<Rede>> quelle : quellen.entrySet()) {
+            out.writeInt(strings.index(quelle.getKey()));
+            out.writeInt(quelle.getValue().size());
+            for (Rede rede : quelle.getValue()) {
+                schreibeRede(out, rede, strings, redner, sitzungen, fraktionen);
+            }
+        }
+    }
+
+    /**
+     * Schreibt eine Rede mit ihren Kommentaren als Tabellenindizes
+     */
+    private static void schreibeRede(DataOutputStream out, Rede rede, Tabelle<String> strings, Tabelle<Redner> redner,
+                                     Tabelle<Sitzung> sitzungen, Tabelle<Fraktion> fraktionen) throws IOException {
+        out.writeInt(strings.index(rede.getRid()));
+        out.writeInt(redner.index(rede.getRedner()));
+        out.writeInt(sitzungen.index(rede.getSitzung()));
+        schreibeBytes(out, rede.getText() != null ? rede.getText().getBytes(StandardCharsets.UTF_8) : null);
+        Absaetze absaetze = rede.absaetze();
+        out.writeInt(absaetze.getAnzahl());
+        for (int i = 0; i < absaetze.getAnzahl(); i++) {
+            out.writeInt(absaetze.start(i));
+            out.writeInt(absaetze.ende(i));
+            out.writeInt(strings.index(absaetze.klasse(i)));
+        }
+        out.writeInt(rede.getKommentar().size());
+        for (Kommentar kommentar : rede.getKommentar()) {
+            out.writeInt(redner.index(kommentar.getRedner()));
+            out.writeInt(fraktionen.index(kommentar.getFraktion()));
+            out.writeInt(strings.index(kommentar.getTextk()));
+        }
+    }
+
+    /**
+     * Liest Reden, die mit schreibeReden geschrieben wurden
+     * @param buffer Buffer, der auf dem Anfang der Daten steht
+     * @return die Reden pro Quelle mit allen Referenzen
+     */
+    public static Map<String, List<Rede>> leseReden(ByteBuffer buffer) {
+        String[] strings = new String[buffer.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = leseString(buffer);
+        }
+
+        Fraktion[] fraktionen = new Fraktion[buffer.getInt()];
+        for (int i = 0; i < fraktionen.length; i++) {
+            fraktionen[i] = new Fraktion(string(strings, buffer.getInt()));
+        }
+
+        Sitzung[] sitzungen = new Sitzung[buffer.getInt()];
+        for (int i = 0; i < sitzungen.length; i++) {
+            String wahlperiode = string(strings, buffer.getInt());
+            String sitzungNr = string(strings, buffer.getInt());
+            String ort = string(strings, buffer.getInt());
+            long datum = buffer.getLong();
+            int start = buffer.getInt();
+            int ende = buffer.getInt();
+            sitzungen[i] = new Sitzung(wahlperiode, sitzungNr, ort,
+                    datum != Long.MIN_VALUE ? new Date(datum) : null,
+                    start >= 0 ? LocalTime.ofSecondOfDay(start) : null,
+                    ende >= 0 ? LocalTime.ofSecondOfDay(ende) : null);
+        }
+
+        Redner[] redner = new Redner[buffer.getInt()];
+        for (int i = 0; i < redner.length; i++) {
+            String titel = string(strings, buffer.getInt());
+            String id = string(strings, buffer.getInt());
+            String vorname = string(strings, buffer.getInt());
+            String nachname = string(strings, buffer.getInt());
+            int fraktion = buffer.getInt();
+            redner[i] = new Redner(titel, id, vorname, nachname, fraktion >= 0 ? fraktionen[fraktion] : null);
+        }
+
+        Map<String, List<Rede>> quellen = new LinkedHashMap<>();
+        int anzahlQuellen = buffer.getInt();
+        for (int q = 0; q < anzahlQuellen; q++) {
+            String quelle = string(strings, buffer.getInt());
+            int anzahlReden = buffer.getInt();
+            List<Rede> reden = new ArrayList<>(anzahlReden);
+            for (int i = 0; i < anzahlReden; i++) {
+                reden.add(leseRede(buffer, strings, redner, sitzungen, fraktionen));
+            }
+            quellen.put(quelle, reden);
+        }
+        return quellen;
+    }
+
+    /**
+     * Liest eine mit schreibeRede geschriebene Rede
+     */
+    private static Rede leseRede(ByteBuffer buffer, String[] strings, Redner[] redner,
+                                 Sitzung[] sitzungen, Fraktion[] fraktionen) {
+        String rid = string(strings, buffer.getInt());
+        int rednerIndex = buffer.getInt();
+        int sitzungIndex = buffer.getInt();
+        Rede rede = new Rede(rid, rednerIndex >= 0 ? redner[rednerIndex] : null,
+                sitzungIndex >= 0 ? sitzungen[sitzungIndex] : null);
+        String redeText = leseString(buffer);
+        int anzahlAbsaetze = buffer.getInt();
+        int[] grenzen = new int[2 * anzahlAbsaetze];
+        String[] klassen = new String[anzahlAbsaetze];
+        for (int a = 0; a < anzahlAbsaetze; a++) {
+            grenzen[2 * a] = buffer.getInt();
+            grenzen[2 * a + 1] = buffer.getInt();
+            klassen[a] = string(strings, buffer.getInt());
+        }
+        rede.setText(redeText, new Absaetze(grenzen, klassen));
+
+        int anzahlKommentare = buffer.getInt();
+        for (int k = 0; k < anzahlKommentare; k++) {
+            int kommentarRedner = buffer.getInt();
+            int kommentarFraktion = buffer.getInt();
+            String text = string(strings, buffer.getInt());
+            rede.addKommentar(new Kommentar(kommentarRedner >= 0 ? redner[kommentarRedner] : null, rede,
+                    kommentarFraktion >= 0 ? fraktionen[kommentarFraktion] : null, text));
+        }
+        return rede;
+    }
+
+    /**
+     * Registriert einen Redner mit seiner Fraktion und seinen Strings
+     */
+    private static void registriereRedner(Redner r, Tabelle<Redner> redner, Tabelle<Fraktion> fraktionen, Tabelle<String> strings) {
+        if (!redner.hinzufuegen(r)) return;
+        strings.index(r.getTitel());
+        strings.index(r.getId());
+        strings.index(r.getVorname());
+        strings.index(r.getNachname());
+        if (fraktionen.hinzufuegen(r.getFraktion())) {
+            strings.index(r.getFraktion().getName());
+        }
+    }
+
+    /**
+     * Schreibt Länge und Bytes, Länge -1 für null
+     */
+    private static void schreibeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Liest einen mit schreibeBytes geschriebenen UTF-8 String
+     */
+    private static String leseString(ByteBuffer buffer) {
+        int laenge = buffer.getInt();
+        if (laenge < 0) return null;
+        byte[] bytes = new byte[laenge];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Liest einen mit writeUTF geschriebenen String
+     */
+    private static String leseUTF(ByteBuffer buffer) {
+        int laenge = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[laenge];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String string(String[] strings, int index) {
+        return index >= 0 ? strings[index] : null;
+    }
+
+    /**
+     * Tabelle, die jedem Objekt einen fortlaufenden Index gibt (null hat den Index -1)
+     */
+    private static class Tabelle<T> {
+        private final Map<T, Integer> indizes;
+        private final List<T> liste = new ArrayList<>();
+
+        Tabelle(Map<T, Integer> indizes) {
+            this.indizes = indizes;
+        }
+
+        int index(T objekt) {
+            if (objekt == null) return -1;
+            Integer index = indizes.get(objekt);
+            if (index == null) {
+                index = liste.size();
+                indizes.put(objekt, index);
+                liste.add(objekt);
+            }
+            return index;
+        }
+
+        /**
+         * Fügt das Objekt hinzu, true wenn es neu war
+         */
+        boolean hinzufuegen(T objekt) {
+            if (objekt == null || indizes.containsKey(objekt)) return false;
+            index(objekt);
+            return true;
+        }
+
+        int groesse() {
+            return liste.size();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package org.texttechnologylab.ppr.blatt3.data.helper;
+
+import org.texttechnologylab.ppr.blatt3.data.redenportal.Absaetze;
+import org.texttechnologylab.ppr.blatt3.data.redenportal.Rede;
+import org.texttechnologylab.ppr.blatt3.data.redenportal.Redner;
+import org.texttechnologylab.ppr.blatt3.data.redenportal.Sitzung;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * StAX Parser für Plenarprotokolle
+ * Liest ein Protokoll in einem einzigen Durchlauf und erzeugt die gleichen Rede, Redner,
+ * Kommentar und Sitzung Objekte wie XMLHelper, ohne einen DOM-Baum aufzubauen
+ */
+public class StaxXMLHelper {
+
+    // XMLInputFactory ist nach der Konfiguration thread-safe und wird geteilt
+    private static final XMLInputFactory INPUT_FACTORY = erstelleInputFactory();
+
+    /**
+     * Konfiguriert die Factory: keine DTD laden, Text zusammenfassen
+     */
+    private static XMLInputFactory erstelleInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        return factory;
+    }
+
+    /**
+     * Parsing aller Reden eines Protokolls
+     * @param in InputStream mit dem XML des Protokolls
+     * @return alle Reden im Sitzungsverlauf, in Dokumentreihenfolge
+     * @throws XMLStreamException bei ungültigem XML
+     */
+    public List<Rede> parseProtokoll(InputStream in) throws XMLStreamException {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+        try {
+            return parseProtokoll(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Hauptschleife über das Dokument
+     * Sammelt auch Kommentare, die direkt nach einer Rede als Geschwister-Elemente stehen
+     */
+    private List<Rede> parseProtokoll(XMLStreamReader reader) throws XMLStreamException {
+        List<Rede> reden = new ArrayList<>();
+        Sitzung sitzung = null;
+
+        int tiefe = 0;
+        int verlaufTiefe = -1;          // Tiefe des sitzungsverlauf, -1 = außerhalb
+        boolean verlaufGesehen = false;  // nur der erste sitzungsverlauf zählt (wie im DOM-Weg)
+        Rede letzteRede = null;          // Rede, für die nachfolgende Kommentare gesammelt werden
+        int letzteRedeTiefe = -1;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                tiefe++;
+                String name = reader.getLocalName();
+
+                // Root Element enthält die Sitzungsdaten
+                if (tiefe == 1) {
+                    sitzung = XMLHelper.parseSitzung(attribut(reader, "wahlperiode"), attribut(reader, "sitzung-nr"),
+                            attribut(reader, "sitzung-ort"), attribut(reader, "sitzung-datum"),
+                            attribut(reader, "sitzung-start-uhrzeit"), attribut(reader, "sitzung-ende-uhrzeit"));
+                    continue;
+                }
+
+                // Kommentare direkt nach einer Rede gehören noch zu dieser Rede
+                if (letzteRede != null && tiefe == letzteRedeTiefe) {
+                    if ("kommentar".equals(name)) {
+                        String text = leseTextInhalt(reader);
+                        tiefe--;
+                        if (!text.isEmpty()) {
+                            XMLHelper.erstelleKommentarforRede(text, letzteRede);
+                        }
+                        continue;
+                    }
+                    letzteRede = null;
+                }
+
+                if (!verlaufGesehen && "sitzungsverlauf".equals(name)) {
+                    verlaufGesehen = true;
+                    verlaufTiefe = tiefe;
+                } else if (verlaufTiefe >= 0 && "rede".equals(name)) {
+                    Rede rede = parseRede(reader, sitzung);
+                    reden.add(rede);
+                    letzteRede = rede;
+                    letzteRedeTiefe = tiefe;
+                    tiefe--;
+                }
+
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (tiefe == verlaufTiefe) verlaufTiefe = -1;
+                if (letzteRede != null && tiefe < letzteRedeTiefe) letzteRede = null;
+                tiefe--;
+            }
+        }
+        return reden;
+    }
+
+    /**
+     * Parsing einer Rede, der Reader steht auf dem Start-Tag "rede" und danach auf dem End-Tag
+     * Redner: erstes redner Element, Text: alle direkten Kinder außer Redner und Kommentar,
+     * Kommentare: alle kommentar Elemente innerhalb der Rede
+     */
+    private Rede parseRede(XMLStreamReader reader, Sitzung sitzung) throws XMLStreamException {
+        String redeId = attribut(reader, "id");
+
+        // Redner Zustand
+        boolean rednerGefunden = false, nameGefunden = false;
+        String rednerId = null;
+        int rednerTiefe = -1, nameTiefe = -1;
+        Map<String, String> nameFelder = new HashMap<>();
+        StringBuilder feldText = null;
+        String feldName = null;
+        int feldTiefe = -1;
+
+        // Redetext Zustand
+        Absaetze.Builder absaetze = new Absaetze.Builder();
+        StringBuilder kindText = null;
+        String kindKlasse = null;
+
+        // Kommentar Zustand (Reihenfolge der Start-Tags wie bei getElementsByTagName)
+        List<StringBuilder> kommentarTexte = new ArrayList<>();
+        List<StringBuilder> offeneKommentare = new ArrayList<>();
+        List<Integer> offeneKommentarTiefen = new ArrayList<>();
+
+        int tiefe = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                tiefe++;
+                String name = reader.getLocalName();
+
+                if (tiefe == 1) {
+                    String klasse = attribut(reader, "klasse");
+                    if (!"redner".equals(name) && !"kommentar".equals(name) &&
+                            !"redner".equals(klasse) && !"kommentar".equals(klasse)) {
+                        kindText = new StringBuilder();
+                        kindKlasse = klasse.isEmpty() && !"p".equals(name) ? name : klasse;
+                    }
+                }
+
+                if ("kommentar".equals(name)) {
+                    StringBuilder kommentar = new StringBuilder();
+                    kommentarTexte.add(kommentar);
+                    offeneKommentare.add(kommentar);
+                    offeneKommentarTiefen.add(tiefe);
+                }
+
+                if (!rednerGefunden && "redner".equals(name)) {
+                    rednerGefunden = true;
+                    rednerId = attribut(reader, "id");
+                    rednerTiefe = tiefe;
+                } else if (rednerTiefe >= 0 && !nameGefunden && "name".equals(name)) {
+                    nameGefunden = true;
+                    nameTiefe = tiefe;
+                } else if (nameTiefe >= 0 && feldText == null && istNameFeld(name) && !nameFelder.containsKey(name)) {
+                    feldText = new StringBuilder();
+                    feldName = name;
+                    feldTiefe = tiefe;
+                }
+
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE) {
+                if (kindText == null && feldText == null && offeneKommentare.isEmpty()) continue;
+                String text = reader.getText();
+                if (kindText != null) kindText.append(text);
+                if (feldText != null) feldText.append(text);
+                for (StringBuilder kommentar : offeneKommentare) {
+                    kommentar.append(text);
+                }
+
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (tiefe == 0) break;  // Ende der Rede
+
+                int letzter = offeneKommentarTiefen.size() - 1;
+                if (letzter >= 0 && offeneKommentarTiefen.get(letzter) == tiefe) {
+                    offeneKommentare.remove(letzter);
+                    offeneKommentarTiefen.remove(letzter);
+                }
+                if (tiefe == feldTiefe) {
+                    nameFelder.put(feldName, feldText.toString().trim());
+                    feldText = null;
+                    feldTiefe = -1;
+                }
+                if (tiefe == nameTiefe) nameTiefe = -1;
+                if (tiefe == rednerTiefe) rednerTiefe = -1;
+                if (tiefe == 1 && kindText != null) {
+                    absaetze.absatz(kindText.toString(), kindKlasse);
+                    kindText = null;
+                }
+                tiefe--;
+            }
+        }
+
+        Redner redner = (rednerGefunden && nameGefunden) ?
+                XMLHelper.erstelleRedner(rednerId, nameFelder.get("titel"), nameFelder.get("vorname"),
+                        nameFelder.get("nachname"), nameFelder.get("fraktion")) : null;
+
+        Rede rede = new Rede(redeId, redner, sitzung);
+        rede.setText(absaetze.getText(), absaetze.build());
+        for (StringBuilder kommentar : kommentarTexte) {
+            String text = kommentar.toString().trim();
+            if (!text.isEmpty()) {
+                XMLHelper.erstelleKommentarforRede(text, rede);
+            }
+        }
+        return rede;
+    }
+
+    /**
+     * Liest den gesamten Textinhalt des aktuellen Elements (wie getTextContent im DOM)
+     * Der Reader steht danach auf dem End-Tag des Elements
+     */
+    private static String leseTextInhalt(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int tiefe = 1;
+        while (tiefe > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                tiefe++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                tiefe--;
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE) {
+                text.append(reader.getText());
+            }
+        }
+        return text.toString().trim();
+    }
+
+    /**
+     * Felder im name Element, die für den Redner gebraucht werden
+     */
+    private static boolean istNameFeld(String name) {
+        return "titel".equals(name) || "vorname".equals(name) || "nachname".equals(name) || "fraktion".equals(name);
+    }
+
+    /**
+     * Attributwert oder leerer String (wie Element.getAttribute im DOM)
+     */
+    private static String attribut(XMLStreamReader reader, String name) {
+        String wert = reader.getAttributeValue(null, name);
+        return wert != null ? wert : "";
+    }
+}
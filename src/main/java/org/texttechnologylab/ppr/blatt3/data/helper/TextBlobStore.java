@@ -0,0 +1,116 @@
+package org.texttechnologylab.ppr.blatt3.data.helper;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Speichert Texte (Reden, Kommentare) außerhalb des Java-Heaps in einer Datei, die in den Speicher gemappt ist
+ * Die Texte werden als UTF-8 nur angehängt, ein Text wird über (Offset, Anzahl Bytes) wieder gelesen.
+ * Die Datei wird in Blöcken von 64 MB gemappt, ein Text liegt immer komplett in einem Block.
+ * Um das Halten der Seiten kümmert sich das Betriebssystem (Page Cache), auf dem Heap bleiben nur die Offsets.
+ * Die Datei gilt nur für den laufenden Prozess und wird beim Öffnen neu angelegt.
+ */
+public class TextBlobStore {
+
+    private static final int BLOCK_BITS = 26;
+    private static final int BLOCK = 1 << BLOCK_BITS;  // 64 MB
+
+    private final Path datei;
+    private final RandomAccessFile zugriff;
+    private final FileChannel kanal;
+
+    // Gemappte Blöcke, wird beim Wachsen durch ein größeres Array ersetzt
+    private volatile MappedByteBuffer[] bloecke = new MappedByteBuffer[0];
+    private long ende = 0;  // nächste freie Position
+
+    /**
+     * Legt die Datei neu an (ein alter Inhalt wird gelöscht)
+     * @param datei Pfad der Blob-Datei
+     * @throws IOException wenn die Datei nicht angelegt werden kann
+     */
+    public TextBlobStore(String datei) throws IOException {
+        this.datei = Paths.get(datei);
+        Path ordner = this.datei.toAbsolutePath().getParent();
+        if (ordner != null) {
+            Files.createDirectories(ordner);
+        }
+        Files.deleteIfExists(this.datei);
+        this.zugriff = new RandomAccessFile(this.datei.toFile(), "rw");
+        this.kanal = zugriff.getChannel();
+    }
+
+    /**
+     * Hängt einen Text an
+     * @param daten der Text als UTF-8 (höchstens 64 MB)
+     * @return Offset in der Datei, zum Lesen wird zusätzlich daten.length gebraucht
+     * @throws IOException wenn die Datei nicht wachsen kann
+     */
+    public synchronized long schreibe(byte[] daten) throws IOException {
+        if (daten.length > BLOCK) {
+            throw new IOException("Text too large for blob store: " + daten.length + " bytes");
+        }
+
+        // Passt der Text nicht mehr in den aktuellen Block, beginnt er am Anfang des nächsten
+        long rest = BLOCK - (ende & (BLOCK - 1));
+        if (daten.length > rest) {
+            ende += rest;
+        }
+
+        int block = (int) (ende >>> BLOCK_BITS);
+        MappedByteBuffer buffer = block(block);
+        buffer.put((int) (ende & (BLOCK - 1)), daten);
+
+        long offset = ende;
+        ende += daten.length;
+        return offset;
+    }
+
+    /**
+     * Liest einen Text
+     * @param offset Rückgabewert von schreibe()
+     * @param bytes Länge des Textes in Bytes
+     * @return der Text
+     */
+    public String lese(long offset, int bytes) {
+        byte[] daten = new byte[bytes];
+        bloecke[(int) (offset >>> BLOCK_BITS)].get((int) (offset & (BLOCK - 1)), daten);
+        return new String(daten, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return belegte Bytes in der Datei
+     */
+    public synchronized long getGroesse() {
+        return ende;
+    }
+
+    /**
+     * @return Pfad der Blob-Datei
+     */
+    public Path getDatei() {
+        return datei;
+    }
+
+    /**
+     * Liefert einen Block und mappt ihn (und alle davor) bei Bedarf
+     */
+    private MappedByteBuffer block(int nummer) throws IOException {
+        MappedByteBuffer[] aktuell = bloecke;
+        if (nummer < aktuell.length) return aktuell[nummer];
+
+        MappedByteBuffer[] neu = Arrays.copyOf(aktuell, nummer + 1);
+        for (int i = aktuell.length; i <= nummer; i++) {
+            // READ_WRITE vergrößert die Datei auf das Ende des Blocks
+            neu[i] = kanal.map(FileChannel.MapMode.READ_WRITE, (long) i * BLOCK, BLOCK);
+        }
+        bloecke = neu;
+        return neu[nummer];
+    }
+}
@@ -0,0 +1,144 @@
+package org.texttechnologylab.ppr.blatt3.data.helper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Komprimierung der Redetexte (Deflate über UTF-8) mit einem LRU-Cache für entpackte Texte
+ * Im komprimierten Modus hält eine Rede nur noch die Bytes. Beim Lesen des Textes wird zuerst im Cache
+ * gesucht, sonst wird entpackt und der Text im Cache abgelegt. Der Cache ist über die Zeichenanzahl
+ * begrenzt, die am längsten nicht benutzten Texte werden zuerst entfernt.
+ * Jede ObjectFactory hat ihren eigenen Cache (wie KorpusPool und TextBlobStore). Schlüssel ist die ID der Rede,
+ * nicht die Rede selbst, damit der Cache keine Reden aus ersetzten Quellen oder alten Ständen festhält.
+ */
+public class TextKompressor {
+
+    // Entpackter Text zu den komprimierten Bytes, aus denen er stammt. Eine neu geladene Rede mit derselben ID
+    // hat andere Bytes, ein Eintrag der alten Fassung gilt für sie nicht als Treffer.
+    private record Eintrag(byte[] komprimiert, String text) {}
+
+    // Schlüssel ist die Rede-ID, Wert der entpackte Text (Zugriffsreihenfolge für LRU)
+    private final LinkedHashMap<String, Eintrag> cache = new LinkedHashMap<>(256, 0.75f, true);
+    private long maxZeichen = 16L * 1024 * 1024;  // ca. 32 MB bei 2 Bytes pro Zeichen
+    private long zeichenImCache = 0;
+
+    private long treffer = 0;
+    private long entpackt = 0;
+
+    /**
+     * Setzt die Größe des Caches für entpackte Texte
+     * @param megabytes ungefähre Größe in MB (0 schaltet den Cache ab)
+     */
+    public synchronized void setCacheMegabytes(int megabytes) {
+        maxZeichen = Math.max(0, megabytes) * 1024L * 1024L / 2;
+        raeumeAuf();
+    }
+
+    /**
+     * Komprimiert einen Text
+     * @param text der Text
+     * @return die komprimierten UTF-8 Bytes
+     */
+    public static byte[] komprimiere(String text) {
+        byte[] daten = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(daten);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(daten.length / 3 + 16);
+            byte[] puffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(puffer);
+                out.write(puffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Liefert den entpackten Text, aus dem Cache oder neu entpackt
+     * @param id ID der Rede, zu der der Text gehört (Schlüssel im Cache)
+     * @param komprimiert Bytes aus komprimiere()
+     * @param laenge Anzahl der Zeichen des Textes
+     * @return der Text
+     */
+    public String text(String id, byte[] komprimiert, int laenge) {
+        synchronized (this) {
+            Eintrag vorhanden = cache.get(id);
+            if (vorhanden != null && vorhanden.komprimiert() == komprimiert) {
+                treffer++;
+                return vorhanden.text();
+            }
+        }
+
+        // Entpacken ohne Lock, damit parallele Requests sich nicht blockieren
+        String text = entpacke(komprimiert, laenge);
+
+        synchronized (this) {
+            entpackt++;
+            if (laenge <= maxZeichen) {
+                Eintrag alt = cache.put(id, new Eintrag(komprimiert, text));
+                zeichenImCache += text.length() - (alt != null ? alt.text().length() : 0);
+                raeumeAuf();
+            }
+        }
+        return text;
+    }
+
+    /**
+     * Entpackt einen Text ohne Cache
+     * @param komprimiert Bytes aus komprimiere()
+     * @param laenge Anzahl der Zeichen (nur als Größenhinweis für den Puffer)
+     * @return der Text
+     */
+    public static String entpacke(byte[] komprimiert, int laenge) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(komprimiert);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, laenge + laenge / 8));
+            byte[] puffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(puffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Compressed text is truncated");
+                }
+                out.write(puffer, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Compressed text is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private void raeumeAuf() {
+        Iterator<Map.Entry<String, Eintrag>> it = cache.entrySet().iterator();
+        while (zeichenImCache > maxZeichen && it.hasNext()) {
+            zeichenImCache -= it.next().getValue().text().length();
+            it.remove();
+        }
+    }
+
+    /**
+     * Kurzbericht über den Cache
+     * @return Einträge, Zeichen, Treffer und Anzahl der Entpackungen
+     */
+    public synchronized Map<String, Object> bericht() {
+        Map<String, Object> bericht = new LinkedHashMap<>();
+        bericht.put("eintraege", cache.size());
+        bericht.put("zeichen", zeichenImCache);
+        bericht.put("maxZeichen", maxZeichen);
+        bericht.put("treffer", treffer);
+        bericht.put("entpackt", entpackt);
+        return bericht;
+    }
+}
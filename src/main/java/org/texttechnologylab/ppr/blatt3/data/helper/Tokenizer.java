@@ -0,0 +1,134 @@
+package org.texttechnologylab.ppr.blatt3.data.helper;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Zerlegt deutschen Text in Suchterme
+ * Ein Wort ist eine Folge von Buchstaben und Ziffern (Bindestriche trennen, "Corona-Krise" ergibt zwei Terme).
+ * Jedes Wort wird kleingeschrieben, Umlaute werden gefaltet (ä -> a, ß -> ss), häufige Wörter (Stoppwörter)
+ * fallen weg und einfache Endungen werden abgeschnitten, damit z.B. "Kinder", "Kindern" und "Kind" zusammenfallen.
+ * Text und Suchanfrage müssen mit denselben Methoden zerlegt werden.
+ */
+public class Tokenizer {
+
+    private static final Set<String> STOPPWOERTER = Set.of(
+            "aber", "alle", "als", "also", "am", "an", "auch", "auf", "aus", "bei", "bin", "bis", "da", "damit", "dann",
+            "das", "dass", "dem", "den", "denn", "der", "des", "die", "dies", "diese", "diesem", "diesen", "dieser",
+            "dieses", "doch", "du", "ein", "eine", "einem", "einen", "einer", "eines", "er", "es", "fur", "hat", "hatte",
+            "haben", "ich", "ihr", "ihre", "im", "in", "ist", "ja", "jetzt", "kann", "man", "mit", "nach", "nicht",
+            "noch", "nur", "ob", "oder", "sehr", "sich", "sie", "sind", "so", "uber", "um", "und", "uns", "unser",
+            "unsere", "von", "vor", "war", "was", "wenn", "wer", "werden", "wie", "wir", "wird", "wo", "zu", "zum", "zur");
+
+    /**
+     * Zerlegt einen Text in Terme (normalisiert, ohne Stoppwörter, mit Stammform)
+     * @param text der Text (darf null sein)
+     * @param ziel bekommt die Terme in Textreihenfolge
+     */
+    public static void terme(String text, Consumer<String> ziel) {
+        woerter(text, wort -> {
+            if (!STOPPWOERTER.contains(wort)) {
+                ziel.accept(stamm(wort));
+            }
+        });
+    }
+
+    /**
+     * Zerlegt einen Text in normalisierte Wörter (mit Stoppwörtern, ohne Stammform)
+     * @param text der Text (darf null sein)
+     * @param ziel bekommt die Wörter in Textreihenfolge
+     */
+    public static void woerter(String text, Consumer<String> ziel) {
+        if (text == null) return;
+        StringBuilder wort = new StringBuilder(32);
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (c < 0x80) {
+                // ASCII ohne Umweg über die Unicode-Tabellen
+                if (c >= 'a' && c <= 'z' || c >= '0' && c <= '9') {
+                    wort.append(c);
+                    continue;
+                }
+                if (c >= 'A' && c <= 'Z') {
+                    wort.append((char) (c + ('a' - 'A')));
+                    continue;
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                falte(Character.toLowerCase(c), wort);
+                continue;
+            }
+            if (wort.length() > 0) {
+                ziel.accept(wort.toString());
+                wort.setLength(0);
+            }
+        }
+    }
+
+    /**
+     * Normalisiert ein einzelnes Wort wie woerter() (klein, Umlaute gefaltet)
+     * @param wort ein Wort ohne Trennzeichen
+     * @return das normalisierte Wort
+     */
+    public static String normalisiere(String wort) {
+        StringBuilder ergebnis = new StringBuilder(wort.length() + 2);
+        for (int i = 0; i < wort.length(); i++) {
+            char c = wort.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                falte(Character.toLowerCase(c), ergebnis);
+            }
+        }
+        return ergebnis.toString();
+    }
+
+    /**
+     * Hängt ein kleingeschriebenes Zeichen mit gefalteten Umlauten an
+     * @param c Buchstabe oder Ziffer, schon kleingeschrieben
+     * @param ziel Puffer für das Wort
+     */
+    public static void falte(char c, StringBuilder ziel) {
+        switch (c) {
+            case 'ä' -> ziel.append('a');
+            case 'ö' -> ziel.append('o');
+            case 'ü' -> ziel.append('u');
+            case 'ß' -> ziel.append("ss");
+            default -> ziel.append(c);
+        }
+    }
+
+    /**
+     * Einfache Stammform (angelehnt an CISTEM): schneidet "em", "er", "nd" und danach "e", "s", "n", "t" ab,
+     * solange das Wort länger als drei Zeichen bleibt
+     * @param wort normalisiertes Wort
+     * @return die Stammform
+     */
+    public static String stamm(String wort) {
+        int ende = wort.length();
+        if (ende <= 3 || Character.isDigit(wort.charAt(0))) return wort;
+
+        while (ende > 3) {
+            if (ende > 5 && (endetMit(wort, ende, "em") || endetMit(wort, ende, "er") || endetMit(wort, ende, "nd"))) {
+                ende -= 2;
+            } else {
+                char letztes = wort.charAt(ende - 1);
+                if (letztes == 'e' || letztes == 's' || letztes == 'n' || letztes == 't') {
+                    ende--;
+                } else {
+                    break;
+                }
+            }
+        }
+        return ende == wort.length() ? wort : wort.substring(0, ende);
+    }
+
+    private static boolean endetMit(String wort, int ende, String endung) {
+        return wort.startsWith(endung, ende - endung.length());
+    }
+
+    /**
+     * @param wort normalisiertes Wort
+     * @return true, wenn das Wort zu häufig ist, um bei der Suche zu helfen
+     */
+    public static boolean istStoppwort(String wort) {
+        return STOPPWOERTER.contains(wort);
+    }
+}
@@ -5,10 +5,11 @@ import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
 
 /**
@@ -17,6 +18,10 @@ import java.util.Date;
  */
 public class XMLHelper {
 
+    // Formate für Datum und Uhrzeit der Sitzung, unveränderlich und damit für alle Dateien/Threads teilbar
+    private static final DateTimeFormatter DATUM_FORMAT = DateTimeFormatter.ofPattern("d.M.uuuu");
+    private static final DateTimeFormatter ZEIT_FORMAT = DateTimeFormatter.ofPattern("H:mm");
+
     private Sitzung aktuelleSitzung = null;
     private String aktuellerRootHash = null;
 
@@ -36,6 +41,13 @@ public class XMLHelper {
         String nachname = getTextContent(nameElement, "nachname");
         String fraktionsName = getTextContent(nameElement, "fraktion");
 
+        return erstelleRedner(id, titel, vorname, nachname, fraktionsName);
+    }
+
+    /**
+     * Erstellt Redner aus den bereits gelesenen Feldern (wird auch vom StAX-Parser benutzt)
+     */
+    public static Redner erstelleRedner(String id, String titel, String vorname, String nachname, String fraktionsName) {
         String normalisierterFraktionsName = NormalizeFraktion.normalizeFraktion(fraktionsName);
         Fraktion fraktion = (normalisierterFraktionsName != null && !normalisierterFraktionsName.isEmpty()) ?
                 new Fraktion(normalisierterFraktionsName) : null;
@@ -66,6 +78,14 @@ public class XMLHelper {
         String startZeitString = rootElement.getAttribute("sitzung-start-uhrzeit");
         String endZeitString = rootElement.getAttribute("sitzung-ende-uhrzeit");
 
+        return parseSitzung(wahlperiode, sitzungsNr, sitzungsOrt, datumString, startZeitString, endZeitString);
+    }
+
+    /**
+     * Parsing Sitzungsdaten aus den Attributwerten des Root Elements
+     */
+    public static Sitzung parseSitzung(String wahlperiode, String sitzungsNr, String sitzungsOrt,
+                                       String datumString, String startZeitString, String endZeitString) {
         if (wahlperiode == null || wahlperiode.isEmpty() || sitzungsNr == null || sitzungsNr.isEmpty()) {
             return null;
         }
@@ -74,22 +94,21 @@ public class XMLHelper {
         Date datum = null;
         try {
             if (datumString != null && !datumString.isEmpty()) {
-                datum = new SimpleDateFormat("dd.MM.yyyy").parse(datumString);
+                datum = Date.from(LocalDate.parse(datumString, DATUM_FORMAT).atStartOfDay(ZoneId.systemDefault()).toInstant());
             }
-        } catch (ParseException e) {
+        } catch (DateTimeParseException e) {
             System.err.println("Fehler beim Parsen des Datums: " + datumString);
         }
 
         // Parsing der Zeiten
-        DateTimeFormatter zeitFormat = DateTimeFormatter.ofPattern("H:mm");
         LocalTime startZeit = null, endZeit = null;
 
         try {
             if (startZeitString != null && !startZeitString.isEmpty()) {
-                startZeit = LocalTime.parse(startZeitString, zeitFormat);
+                startZeit = LocalTime.parse(startZeitString, ZEIT_FORMAT);
             }
             if (endZeitString != null && !endZeitString.isEmpty()) {
-                endZeit = LocalTime.parse(endZeitString, zeitFormat);
+                endZeit = LocalTime.parse(endZeitString, ZEIT_FORMAT);
             }
         } catch (Exception e) {
             System.err.println("Fehler beim Parsen der Zeit: " + e.getMessage());
@@ -116,8 +135,8 @@ public class XMLHelper {
         Rede rede = new Rede(redeId, redner, aktuelleSitzung);
 
         // Extrahieren Redetext und Kommentar
-        String redeText = extrahiereRedeText(redeElement);
-        rede.setText(redeText);
+        Absaetze.Builder absaetze = extrahiereAbsaetze(redeElement);
+        rede.setText(absaetze.getText(), absaetze.build());
         parseKommentareforRede(redeElement, rede);
 
         return rede;
@@ -136,8 +155,8 @@ public class XMLHelper {
         Redner redner = parseRednerAusRede(redeElement);
 
         Rede rede = new Rede(redeId, redner, sitzung);
-        String redeText = extrahiereRedeText(redeElement);
-        rede.setText(redeText);
+        Absaetze.Builder absaetze = extrahiereAbsaetze(redeElement);
+        rede.setText(absaetze.getText(), absaetze.build());
         parseKommentareforRede(redeElement, rede);
 
         return rede;
@@ -168,9 +187,17 @@ public class XMLHelper {
      * Extrahiert den Text einer Rede aus dem XML Element
      */
     public static String extrahiereRedeText(Element redeElement) {
-        if (redeElement == null) return "";
+        return extrahiereAbsaetze(redeElement).getText();
+    }
+
+    /**
+     * Extrahiert den Redetext als Absätze mit der Klasse des p-Elements
+     * (bei anderen Elementen ohne Klasse wird der Tag-Name benutzt)
+     */
+    public static Absaetze.Builder extrahiereAbsaetze(Element redeElement) {
+        Absaetze.Builder absaetze = new Absaetze.Builder();
+        if (redeElement == null) return absaetze;
 
-        StringBuilder textBuilder = new StringBuilder();
         NodeList alleKinder = redeElement.getChildNodes();
 
         for (int i = 0; i < alleKinder.getLength(); i++) {
@@ -184,14 +211,12 @@ public class XMLHelper {
                 if (!"redner".equals(tagName) && !"kommentar".equals(tagName) &&
                         !"redner".equals(className) && !"kommentar".equals(className)) {
 
-                    String elementText = kindElement.getTextContent().trim();
-                    if (!elementText.isEmpty()) {
-                        textBuilder.append(elementText).append(" ");
-                    }
+                    absaetze.absatz(kindElement.getTextContent(),
+                            className.isEmpty() && !"p".equals(tagName) ? tagName : className);
                 }
             }
         }
-        return textBuilder.toString().trim();
+        return absaetze;
     }
 
     /**
@@ -249,7 +274,7 @@ public class XMLHelper {
     /**
      * Erstellt Kommentar Objekt für eine Rede
      */
-    private static void erstelleKommentarforRede(String text, Rede rede) {
+    static void erstelleKommentarforRede(String text, Rede rede) {
         Kommentar kommentar = new Kommentar(
                 rede.getRedner(),
                 rede,
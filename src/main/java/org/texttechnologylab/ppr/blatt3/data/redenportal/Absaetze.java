@@ -0,0 +1,134 @@
+package org.texttechnologylab.ppr.blatt3.data.redenportal;
+
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
+
+/**
+ * Absätze einer Rede als Bereiche im Redetext
+ * Der Text der Rede bleibt ein String (Absätze mit Leerzeichen verbunden), pro Absatz werden nur
+ * Anfang und Ende im Text und die Klasse des p-Elements (Attribut "klasse", z.B. "J_1" oder "O") gespeichert.
+ */
+public class Absaetze {
+
+    static final Absaetze LEER = new Absaetze(new int[0], new String[0]);
+
+    private final int[] grenzen;  // Anfang und Ende (exklusiv) jedes Absatzes hintereinander
+    private final String[] klassen;
+
+    /**
+     * @param grenzen Anfang und Ende jedes Absatzes (2 Werte pro Absatz)
+     * @param klassen Klasse jedes Absatzes
+     */
+    public Absaetze(int[] grenzen, String[] klassen) {
+        if (grenzen.length != 2 * klassen.length) {
+            throw new IllegalArgumentException("Expected two bounds per paragraph");
+        }
+        this.grenzen = grenzen;
+        this.klassen = klassen;
+    }
+
+    /**
+     * Ein Absatz über den ganzen Text (für Reden, deren Text ohne Absätze gesetzt wurde)
+     * @param laenge Länge des Textes
+     * @return ein Absatz ohne Klasse, oder keine Absätze bei leerem Text
+     */
+    static Absaetze ganzerText(int laenge) {
+        return laenge == 0 ? LEER : new Absaetze(new int[]{0, laenge}, new String[]{""});
+    }
+
+    /**
+     * @return Anzahl der Absätze
+     */
+    public int getAnzahl() {
+        return klassen.length;
+    }
+
+    /**
+     * @param absatz Nummer des Absatzes (ab 0)
+     * @return Position des ersten Zeichens im Redetext
+     */
+    public int start(int absatz) {
+        return grenzen[2 * absatz];
+    }
+
+    /**
+     * @param absatz Nummer des Absatzes (ab 0)
+     * @return Position hinter dem letzten Zeichen im Redetext
+     */
+    public int ende(int absatz) {
+        return grenzen[2 * absatz + 1];
+    }
+
+    /**
+     * @param absatz Nummer des Absatzes (ab 0)
+     * @return Klasse des p-Elements (leer, wenn es keine gibt)
+     */
+    public String klasse(int absatz) {
+        return klassen[absatz];
+    }
+
+    /**
+     * Text eines Absatzes
+     * @param text Text der Rede
+     * @param absatz Nummer des Absatzes (ab 0)
+     * @return der Absatz
+     */
+    public String text(String text, int absatz) {
+        return text.substring(start(absatz), ende(absatz));
+    }
+
+    /**
+     * Tauscht die Klassen gegen kanonische Strings (nur vor dem Veröffentlichen, siehe KorpusPool)
+     */
+    void interniere(UnaryOperator<String> pool) {
+        for (int i = 0; i < klassen.length; i++) {
+            klassen[i] = pool.apply(klassen[i]);
+        }
+    }
+
+    /**
+     * Setzt den Redetext aus Absätzen zusammen und merkt sich die Grenzen
+     * Ergibt denselben Text wie das frühere Verbinden der Absätze mit Leerzeichen.
+     */
+    public static class Builder {
+        private final StringBuilder text = new StringBuilder();
+        private int[] grenzen = new int[16];
+        private String[] klassen = new String[8];
+        private int anzahl = 0;
+
+        /**
+         * Hängt einen Absatz an, leere Absätze werden übersprungen
+         * @param absatz Text des Absatzes (wird getrimmt)
+         * @param klasse Klasse des p-Elements
+         */
+        public void absatz(String absatz, String klasse) {
+            String getrimmt = absatz.trim();
+            if (getrimmt.isEmpty()) return;
+
+            if (anzahl > 0) text.append(' ');
+            if (anzahl == klassen.length) {
+                klassen = Arrays.copyOf(klassen, anzahl * 2);
+                grenzen = Arrays.copyOf(grenzen, anzahl * 4);
+            }
+            grenzen[2 * anzahl] = text.length();
+            text.append(getrimmt);
+            grenzen[2 * anzahl + 1] = text.length();
+            klassen[anzahl++] = klasse != null ? klasse : "";
+        }
+
+        /**
+         * @return der zusammengesetzte Redetext
+         */
+        public String getText() {
+            return text.toString();
+        }
+
+        /**
+         * @return die Absätze zum Text aus getText()
+         */
+        public Absaetze build() {
+            if (anzahl == 0) return LEER;
+            return new Absaetze(Arrays.copyOf(grenzen, 2 * anzahl), Arrays.copyOf(klassen, anzahl));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.texttechnologylab.ppr.blatt3.data.redenportal;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Sortierter Index über das Datum der Sitzungen
+ * Die Sitzungen werden nach Epochentag (und Sitzungs-ID) sortiert, die Reden in derselben Reihenfolge
+ * abgelegt, sodass die Reden einer Sitzung und eines Zeitraums einen zusammenhängenden Bereich bilden.
+ * Eine Abfrage von-bis sucht Anfang und Ende per binärer Suche und liefert den Bereich als Sicht,
+ * kostet also O(log n + k). Sitzungen ohne Datum (und ihre Reden) kommen im Index nicht vor.
+ */
+public class DatumIndex {
+
+    // Sitzungen nach Tag sortiert, tage[i] ist der Epochentag von sitzungen[i]
+    private final Sitzung[] sitzungen;
+    private final int[] tage;
+
+    // Reden in Sitzungsreihenfolge, die Reden von sitzungen[i] liegen in [redenStart[i], redenStart[i + 1])
+    private final Rede[] reden;
+    private final int[] redenStart;
+
+    /**
+     * Baut den Index über die Reden und Sitzungen eines Stands auf
+     * @param alleReden Reden in Ladereihenfolge (innerhalb einer Sitzung bleibt diese Reihenfolge erhalten)
+     * @param alleSitzungen alle Sitzungen, auch solche ohne Reden
+     */
+    DatumIndex(List<Rede> alleReden, Collection<Sitzung> alleSitzungen) {
+        // Reden pro Sitzung (Identität, die Sitzungen sind über den KorpusPool kanonisch)
+        Map<Sitzung, List<Rede>> redenProSitzung = new IdentityHashMap<>();
+        for (Sitzung sitzung : alleSitzungen) {
+            if (sitzung != null) redenProSitzung.computeIfAbsent(sitzung, s -> new ArrayList<>());
+        }
+        for (Rede rede : alleReden) {
+            if (rede.getSitzung() != null) redenProSitzung.computeIfAbsent(rede.getSitzung(), s -> new ArrayList<>()).add(rede);
+        }
+
+        List<Sitzung> sortiert = new ArrayList<>();
+        for (Sitzung sitzung : redenProSitzung.keySet()) {
+            if (sitzung.getSitzungDatum() != null) sortiert.add(sitzung);
+        }
+        sortiert.sort(Comparator.comparingInt((Sitzung s) -> epochentag(s.getSitzungDatum()))
+                .thenComparing(ObjectFactory::sitzungId, ObjectFactory.NAMEN_REIHENFOLGE));
+
+        this.sitzungen = sortiert.toArray(new Sitzung[0]);
+        this.tage = new int[sitzungen.length];
+        this.redenStart = new int[sitzungen.length + 1];
+        List<Rede> redenSortiert = new ArrayList<>(alleReden.size());
+        for (int i = 0; i < sitzungen.length; i++) {
+            tage[i] = epochentag(sitzungen[i].getSitzungDatum());
+            redenStart[i] = redenSortiert.size();
+            redenSortiert.addAll(redenProSitzung.get(sitzungen[i]));
+        }
+        redenStart[sitzungen.length] = redenSortiert.size();
+        this.reden = redenSortiert.toArray(new Rede[0]);
+    }
+
+    /**
+     * Reden, deren Sitzung im Zeitraum liegt
+     * @param von erster Tag (einschließlich), null = ohne Untergrenze
+     * @param bis letzter Tag (einschließlich), null = ohne Obergrenze
+     * @return die Reden nach Datum, Sitzung und Ladereihenfolge (unveränderbare Sicht)
+     */
+    public List<Rede> reden(LocalDate von, LocalDate bis) {
+        int erste = ersteSitzung(von);
+        int ende = endeSitzung(bis);
+        if (erste >= ende) return List.of();
+        return Collections.unmodifiableList(Arrays.asList(reden).subList(redenStart[erste], redenStart[ende]));
+    }
+
+    /**
+     * Anzahl der Reden im Zeitraum, ohne eine Liste zu erstellen
+     * @return Anzahl der Reden (Parameter wie reden())
+     */
+    public int anzahlReden(LocalDate von, LocalDate bis) {
+        int erste = ersteSitzung(von);
+        int ende = endeSitzung(bis);
+        return erste >= ende ? 0 : redenStart[ende] - redenStart[erste];
+    }
+
+    /**
+     * Sitzungen im Zeitraum
+     * @param von erster Tag (einschließlich), null = ohne Untergrenze
+     * @param bis letzter Tag (einschließlich), null = ohne Obergrenze
+     * @return die Sitzungen nach Datum und Sitzungs-ID (unveränderbare Sicht)
+     */
+    public List<Sitzung> sitzungen(LocalDate von, LocalDate bis) {
+        int erste = ersteSitzung(von);
+        int ende = endeSitzung(bis);
+        if (erste >= ende) return List.of();
+        return Collections.unmodifiableList(Arrays.asList(sitzungen).subList(erste, ende));
+    }
+
+    /**
+     * @return Anzahl der Sitzungen mit Datum
+     */
+    public int getAnzahlSitzungen() {
+        return sitzungen.length;
+    }
+
+    /**
+     * Position der ersten Sitzung am oder nach dem Tag
+     */
+    private int ersteSitzung(LocalDate von) {
+        return von == null ? 0 : untereGrenze(von.toEpochDay());
+    }
+
+    /**
+     * Position hinter der letzten Sitzung am oder vor dem Tag
+     */
+    private int endeSitzung(LocalDate bis) {
+        return bis == null ? sitzungen.length : untereGrenze(bis.toEpochDay() + 1);
+    }
+
+    /**
+     * Binäre Suche: erste Position mit tage[i] >= tag
+     */
+    private int untereGrenze(long tag) {
+        int links = 0;
+        int rechts = tage.length;
+        while (links < rechts) {
+            int mitte = (links + rechts) >>> 1;
+            if (tage[mitte] < tag) {
+                links = mitte + 1;
+            } else {
+                rechts = mitte;
+            }
+        }
+        return links;
+    }
+
+    /**
+     * Epochentag (LocalDate.toEpochDay) eines Sitzungsdatums in der Zeitzone des Systems
+     * @param datum Datum der Sitzung
+     * @return Tag seit dem 1.1.1970
+     */
+    static int epochentag(Date datum) {
+        return (int) Instant.ofEpochMilli(datum.getTime()).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+}
@@ -1,8 +1,12 @@
 package org.texttechnologylab.ppr.blatt3.data.redenportal;
 
 import org.json.JSONObject;
+import org.texttechnologylab.ppr.blatt3.data.helper.TextBlobStore;
 import org.texttechnologylab.ppr.blatt3.data.interfaces.KommentarIn;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Representation Kommentars für jede Rede
  * Jeder Kommentar besitzt Redner, Fraktion, zugehörige Rede, Kommentartext
@@ -13,6 +17,11 @@ public class Kommentar implements KommentarIn {
     private Fraktion fraktion;
     private String textk;
 
+    // Im Blob-Modus liegt der Text außerhalb des Heaps (siehe TextBlobStore)
+    private TextBlobStore textBlob;
+    private long blobOffset;
+    private int blobBytes;
+
     public Kommentar(Redner redner, Rede rede, Fraktion fraktion, String textk) {
         this.redner = redner;
         this.fraktion = fraktion;
@@ -29,6 +38,9 @@ public class Kommentar implements KommentarIn {
     }
 
     public String getTextk() {
+        if (textBlob != null) {
+            return textBlob.lese(blobOffset, blobBytes);
+        }
         return textk;
     }
 
@@ -41,6 +53,29 @@ public class Kommentar implements KommentarIn {
         return rede;
     }
 
+    // Text auf dem Heap ohne Blob-Zugriff (für den SpeicherBericht), null im Blob-Modus
+    String heapText() {
+        return textk;
+    }
+
+    // Schreibt den Text in den Blob-Store, auf dem Heap bleiben nur Offset und Länge
+    void speichereText(TextBlobStore store) throws IOException {
+        if (textk == null) return;
+        byte[] daten = textk.getBytes(StandardCharsets.UTF_8);
+        blobOffset = store.schreibe(daten);
+        blobBytes = daten.length;
+        textBlob = store;
+        textk = null;
+    }
+
+    // Redner, Fraktion und Text werden beim Übernehmen gegen die Objekte aus dem KorpusPool getauscht
+    void setDaten(Redner redner, Fraktion fraktion, String textk) {
+        this.redner = redner;
+        this.fraktion = fraktion;
+        this.textk = textk;
+        this.textBlob = null;
+    }
+
     //toString()
     @Override
     public String toString() {
@@ -60,8 +95,9 @@ public class Kommentar implements KommentarIn {
     public String toJSON() {
         JSONObject json = new JSONObject();
         json.put("type", "Kommentar");
-        json.put("text", textk != null ? textk : "");
-        json.put("textLength", textk != null ? textk.length() : 0);
+        String text = getTextk();
+        json.put("text", text != null ? text : "");
+        json.put("textLength", text != null ? text.length() : 0);
 
         // Info Redner
         if (redner != null) {
@@ -0,0 +1,351 @@
+package org.texttechnologylab.ppr.blatt3.data.redenportal;
+
+import org.texttechnologylab.ppr.blatt3.data.helper.Tokenizer;
+
+import java.util.*;
+
+/**
+ * Invertierter Index mit Wortpositionen über die Texte der Kommentare (Zwischenrufe, Beifall, ...)
+ * Viele Kommentare haben denselben Text ("Beifall bei der SPD"), deshalb wird jeder Text nur einmal indexiert
+ * und pro Text die Liste seiner Kommentare gespeichert. Wörter werden wie im Tokenizer normalisiert, aber ohne
+ * Stoppwörter zu entfernen oder Endungen abzuschneiden, damit Phrasen wie "Beifall bei der AfD" genau passen.
+ * Pro Wort liegt eine Varint-Liste mit (Abstand zum vorherigen Text, Anzahl Positionen, Positionsabstände).
+ */
+public class KommentarIndex {
+
+    private final Kommentar[] kommentare;     // nach Text gruppiert, in Ladereihenfolge innerhalb eines Textes
+    private final int[] kommentarStart;       // Kommentare von Text t liegen in [kommentarStart[t], kommentarStart[t + 1])
+    private final String[] fraktionen;        // verschiedene Fraktionsnamen
+    private final int[] fraktionNr;           // fraktionNr[i] = Position des Fraktionsnamens von kommentare[i]
+    private final Map<String, byte[]> postings;
+    private final int anzahlTexte;
+
+    /**
+     * Ergebnis einer Suche
+     * @param anzahl Anzahl aller passenden Kommentare
+     * @param proFraktion Anzahl pro Fraktion des Redners, bei dessen Rede der Kommentar fiel
+     * @param kommentare die ersten passenden Kommentare (bis zum Limit)
+     */
+    public record Ergebnis(int anzahl, Map<String, Integer> proFraktion, List<Kommentar> kommentare) {}
+
+    /**
+     * Baut den Index über die Kommentare aller Reden auf
+     * @param reden Reden in Ladereihenfolge
+     */
+    KommentarIndex(List<Rede> reden) {
+        Map<String, Integer> textIds = new HashMap<>();
+        List<List<Kommentar>> proText = new ArrayList<>();
+        int gesamt = 0;
+        for (Rede rede : reden) {
+            for (Kommentar kommentar : rede.getKommentar()) {
+                String text = kommentar.getTextk();
+                if (text == null) continue;
+                Integer id = textIds.get(text);
+                if (id == null) {
+                    id = proText.size();
+                    textIds.put(text, id);
+                    proText.add(new ArrayList<>(1));
+                }
+                proText.get(id).add(kommentar);
+                gesamt++;
+            }
+        }
+
+        this.anzahlTexte = proText.size();
+        this.kommentare = new Kommentar[gesamt];
+        this.kommentarStart = new int[anzahlTexte + 1];
+        String[] texte = new String[anzahlTexte];
+        textIds.forEach((text, id) -> texte[id] = text);
+        this.fraktionNr = new int[gesamt];
+        Map<String, Integer> fraktionIds = new LinkedHashMap<>();
+        int k = 0;
+        for (int t = 0; t < anzahlTexte; t++) {
+            kommentarStart[t] = k;
+            for (Kommentar kommentar : proText.get(t)) {
+                fraktionNr[k] = fraktionIds.computeIfAbsent(fraktionsname(kommentar), n -> fraktionIds.size());
+                kommentare[k++] = kommentar;
+            }
+        }
+        kommentarStart[anzahlTexte] = k;
+        this.fraktionen = fraktionIds.keySet().toArray(new String[0]);
+
+        // Positionslisten in Textreihenfolge aufbauen
+        Map<String, Puffer> puffer = new HashMap<>();
+        Map<String, List<Integer>> positionen = new LinkedHashMap<>();
+        for (int t = 0; t < anzahlTexte; t++) {
+            positionen.clear();
+            int[] position = {0};
+            Tokenizer.woerter(texte[t], wort -> positionen.computeIfAbsent(wort, w -> new ArrayList<>(2)).add(position[0]++));
+            for (Map.Entry<String, List<Integer>> eintrag : positionen.entrySet()) {
+                puffer.computeIfAbsent(eintrag.getKey(), w -> new Puffer()).add(t, eintrag.getValue());
+            }
+        }
+        this.postings = new HashMap<>(puffer.size() * 2);
+        puffer.forEach((wort, p) -> postings.put(wort, p.fertig()));
+    }
+
+    /**
+     * Sucht Kommentare
+     * Teile in Anführungszeichen sind Phrasen (Wörter direkt hintereinander), alle anderen Wörter müssen
+     * irgendwo im Text vorkommen. Groß-/Kleinschreibung und Umlaute spielen keine Rolle.
+     * @param anfrage z.B. "\"Beifall bei der AfD\"" oder "Zuruf Lachen"
+     * @param limit höchstens so viele Kommentare in der Liste (die Anzahlen zählen alle)
+     * @return Anzahl, Anzahl pro Fraktion und die ersten passenden Kommentare
+     */
+    public Ergebnis suche(String anfrage, int limit) {
+        List<List<String>> klauseln = klauseln(anfrage);
+        if (klauseln.isEmpty()) return new Ergebnis(0, Map.of(), List.of());
+
+        // Klausel mit der kürzesten Liste zuerst, die übrigen schränken deren Texte nur noch ein
+        klauseln.sort(Comparator.comparingInt(this::kuerzesteListe));
+        int[] texte = null;
+        for (List<String> klausel : klauseln) {
+            int[] passend = texteMitPhrase(klausel);
+            texte = texte == null ? passend : schneide(texte, passend);
+            if (texte.length == 0) break;
+        }
+
+        // Zählen über die Fraktionsnummern, die Kommentare selbst werden nur bis zum Limit angefasst
+        int[] zaehler = new int[fraktionen.length];
+        List<Kommentar> liste = new ArrayList<>(Math.min(limit, 64));
+        int anzahl = 0;
+        for (int t : texte) {
+            for (int i = kommentarStart[t]; i < kommentarStart[t + 1]; i++) {
+                zaehler[fraktionNr[i]]++;
+                if (liste.size() < limit) liste.add(kommentare[i]);
+            }
+            anzahl += kommentarStart[t + 1] - kommentarStart[t];
+        }
+        Map<String, Integer> proFraktion = new TreeMap<>();
+        for (int f = 0; f < fraktionen.length; f++) {
+            if (zaehler[f] > 0) proFraktion.put(fraktionen[f], zaehler[f]);
+        }
+        return new Ergebnis(anzahl, proFraktion, liste);
+    }
+
+    /**
+     * @return Anzahl der verschiedenen Kommentartexte
+     */
+    public int getAnzahlTexte() {
+        return anzahlTexte;
+    }
+
+    /**
+     * @return Anzahl der verschiedenen Wörter
+     */
+    public int getAnzahlWoerter() {
+        return postings.size();
+    }
+
+    /**
+     * Geschätzter Heap (Kommentar- und Fraktionsnummern-Array, Textgrenzen, Wörterbuch, Positionslisten), für den SpeicherBericht
+     * @return Bytes
+     */
+    long geschaetzteBytes() {
+        long bytes = 2 * ((16L + 4L * kommentare.length + 7) & ~7L) + ((16L + 4L * kommentarStart.length + 7) & ~7L);
+        for (Map.Entry<String, byte[]> e : postings.entrySet()) {
+            bytes += KorpusPool.groesse(e.getKey()) + SpeicherBericht.MAP_ENTRY_BYTES + ((16L + e.getValue().length + 7) & ~7L);
+        }
+        return bytes;
+    }
+
+    /**
+     * Fraktion des Redners, bei dessen Rede der Kommentar fiel
+     */
+    private static String fraktionsname(Kommentar kommentar) {
+        Fraktion fraktion = kommentar.getFraktion();
+        return fraktion != null && fraktion.getName() != null ? fraktion.getName() : "Fraktionslos";
+    }
+
+    /**
+     * Zerlegt die Anfrage in Klauseln: jede Phrase in Anführungszeichen und jedes andere Wort einzeln
+     */
+    private static List<List<String>> klauseln(String anfrage) {
+        List<List<String>> klauseln = new ArrayList<>();
+        if (anfrage == null) return klauseln;
+        String[] teile = anfrage.split("\"", -1);
+        for (int i = 0; i < teile.length; i++) {
+            if (i % 2 == 1) {
+                List<String> phrase = new ArrayList<>();
+                Tokenizer.woerter(teile[i], phrase::add);
+                if (!phrase.isEmpty()) klauseln.add(phrase);
+            } else {
+                Tokenizer.woerter(teile[i], wort -> klauseln.add(List.of(wort)));
+            }
+        }
+        return klauseln;
+    }
+
+    /**
+     * Texte, in denen die Wörter direkt hintereinander vorkommen (bei einem Wort: die Texte mit dem Wort)
+     * @return aufsteigende Textnummern
+     */
+    private int[] texteMitPhrase(List<String> woerter) {
+        Liste[] listen = new Liste[woerter.size()];
+        for (int i = 0; i < woerter.size(); i++) {
+            byte[] daten = postings.get(woerter.get(i));
+            if (daten == null) return new int[0];
+            listen[i] = new Liste(daten);
+        }
+
+        // Die kürzeste Liste gibt die Texte vor, die anderen springen nach, bei gleichem Text Positionen vergleichen
+        int fuehrend = 0;
+        for (int i = 1; i < listen.length; i++) {
+            if (listen[i].daten.length < listen[fuehrend].daten.length) fuehrend = i;
+        }
+        int[] ergebnis = new int[16];
+        int anzahl = 0;
+        suche:
+        while (listen[fuehrend].naechster()) {
+            int text = listen[fuehrend].text;
+            for (int i = 0; i < listen.length; i++) {
+                if (i != fuehrend && !listen[i].bis(text)) {
+                    if (listen[i].ende) break suche;
+                    continue suche;
+                }
+            }
+            if (listen.length == 1 || phraseAn(listen)) {
+                if (anzahl == ergebnis.length) ergebnis = Arrays.copyOf(ergebnis, anzahl * 2);
+                ergebnis[anzahl++] = text;
+            }
+        }
+        return Arrays.copyOf(ergebnis, anzahl);
+    }
+
+    /**
+     * Prüft, ob es eine Position p gibt, an der Wort i an Position p + i steht (alle Listen auf demselben Text)
+     */
+    private static boolean phraseAn(Liste[] listen) {
+        Liste erste = listen[0];
+        for (int j = 0; j < erste.anzahlPositionen; j++) {
+            int p = erste.positionen[j];
+            boolean passt = true;
+            for (int i = 1; i < listen.length && passt; i++) {
+                passt = Arrays.binarySearch(listen[i].positionen, 0, listen[i].anzahlPositionen, p + i) >= 0;
+            }
+            if (passt) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Länge der kürzesten Positionsliste einer Klausel in Bytes (0, wenn ein Wort fehlt)
+     */
+    private int kuerzesteListe(List<String> klausel) {
+        int kuerzeste = Integer.MAX_VALUE;
+        for (String wort : klausel) {
+            byte[] daten = postings.get(wort);
+            kuerzeste = Math.min(kuerzeste, daten == null ? 0 : daten.length);
+        }
+        return kuerzeste;
+    }
+
+    /**
+     * Schnittmenge zweier aufsteigender Listen
+     */
+    private static int[] schneide(int[] a, int[] b) {
+        int[] ergebnis = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                ergebnis[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(ergebnis, n);
+    }
+
+    /**
+     * Liest eine Varint-Positionsliste Text für Text
+     */
+    private static class Liste {
+        private final byte[] daten;
+        private int lese = 0;
+        private int text = -1;
+        private boolean ende = false;
+        private int[] positionen = new int[4];
+        private int anzahlPositionen = 0;
+
+        Liste(byte[] daten) {
+            this.daten = daten;
+        }
+
+        /**
+         * Geht zum nächsten Text
+         * @return false am Ende der Liste
+         */
+        boolean naechster() {
+            if (lese >= daten.length) {
+                ende = true;
+                return false;
+            }
+            text += varint() + 1;
+            anzahlPositionen = varint();
+            if (anzahlPositionen > positionen.length) positionen = new int[anzahlPositionen];
+            int p = 0;
+            for (int i = 0; i < anzahlPositionen; i++) {
+                p += varint();
+                positionen[i] = p;
+            }
+            return true;
+        }
+
+        /**
+         * Geht bis zum ersten Text >= ziel
+         * @return true, wenn genau dieser Text in der Liste steht
+         */
+        boolean bis(int ziel) {
+            while (text < ziel) {
+                if (!naechster()) return false;
+            }
+            return text == ziel;
+        }
+
+        private int varint() {
+            int wert = 0;
+            int shift = 0;
+            while (true) {
+                byte b = daten[lese++];
+                wert |= (b & 0x7F) << shift;
+                if (b >= 0) return wert;
+                shift += 7;
+            }
+        }
+    }
+
+    /**
+     * Wachsende Positionsliste beim Aufbau
+     */
+    private static class Puffer {
+        private byte[] daten = new byte[8];
+        private int laenge = 0;
+        private int letzterText = -1;
+
+        void add(int text, List<Integer> positionen) {
+            schreibe(text - letzterText - 1);
+            schreibe(positionen.size());
+            int vorher = 0;
+            for (int p : positionen) {
+                schreibe(p - vorher);
+                vorher = p;
+            }
+            letzterText = text;
+        }
+
+        private void schreibe(int wert) {
+            if (laenge + 5 > daten.length) daten = Arrays.copyOf(daten, daten.length * 2);
+            while ((wert & ~0x7F) != 0) {
+                daten[laenge++] = (byte) ((wert & 0x7F) | 0x80);
+                wert >>>= 7;
+            }
+            daten[laenge++] = (byte) wert;
+        }
+
+        byte[] fertig() {
+            return Arrays.copyOf(daten, laenge);
+        }
+    }
+}
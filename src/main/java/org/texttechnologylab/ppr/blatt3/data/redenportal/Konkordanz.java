@@ -0,0 +1,391 @@
+package org.texttechnologylab.ppr.blatt3.data.redenportal;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Suffix-Array über die aneinandergehängten Redetexte für Teilstringsuche und Konkordanz (Keyword in Context)
+ * Die Texte werden Zeichen für Zeichen kleingeschrieben und als ein Byte pro Zeichen abgelegt (Latin-1, andere
+ * Zeichen werden zu einem Platzhalter), getrennt durch ein Trennbyte pro Rede. Dadurch bleibt jede Position
+ * gleich der Position im Originaltext und eine Fundstelle kann direkt aus getText() geschnitten werden.
+ * Text und Suffix-Array liegen in Direct Buffern außerhalb des Heaps (etwa 5 Bytes pro Zeichen).
+ * Das Suffix-Array wird mit SA-IS (Nong, Zhang, Chan) in linearer Zeit aufgebaut. Eine Suche sind zwei binäre
+ * Suchen über das Array, also O(m log n) für einen Suchbegriff der Länge m, unabhängig von der Trefferzahl.
+ */
+public class Konkordanz {
+
+    private static final byte ENDE = 0;         // einmal am Schluss, kleiner als jedes andere Zeichen
+    private static final byte TRENNER = 1;      // zwischen zwei Reden, kommt in keinem Suchbegriff vor
+    private static final byte PLATZHALTER = 0x1A;
+
+    // Direct Buffer sind auf 2 GB begrenzt, das Suffix-Array braucht 4 Bytes pro Zeichen
+    static final int MAX_ZEICHEN = Integer.MAX_VALUE / 4;
+
+    private final ByteBuffer text;
+    private final IntBuffer suffixe;
+    private final int n;
+    private final long version;
+
+    private final Rede[] reden;
+    private final int[] redeStart;  // Position des ersten Zeichens jeder Rede im Gesamttext, aufsteigend
+
+    /**
+     * Bereich im Suffix-Array, dessen Suffixe mit dem Suchbegriff beginnen
+     * @param von erster Eintrag
+     * @param bis erster Eintrag danach
+     * @param laenge Länge des Suchbegriffs in Zeichen
+     */
+    public record Bereich(int von, int bis, int laenge) {
+        public int anzahl() {
+            return bis - von;
+        }
+    }
+
+    /**
+     * Eine Fundstelle mit Kontext
+     * @param rede die Rede
+     * @param position Position des Treffers im Text der Rede
+     * @param links Text vor dem Treffer (höchstens fenster Zeichen)
+     * @param treffer der Treffer in der Schreibweise des Textes
+     * @param rechts Text nach dem Treffer (höchstens fenster Zeichen)
+     */
+    public record Zeile(Rede rede, int position, String links, String treffer, String rechts) {}
+
+    /**
+     * Hängt die Texte aneinander und baut das Suffix-Array auf
+     * @param alleRede Reden in Ladereihenfolge
+     * @param version Version des Stands, aus dem die Reden stammen
+     * @param veraltet wird zwischen den Schritten abgefragt, true bricht den Aufbau ab
+     * @throws IllegalStateException wenn die Texte zusammen mehr als MAX_ZEICHEN Zeichen haben
+     * @throws CancellationException wenn veraltet während des Aufbaus true liefert
+     */
+    Konkordanz(List<Rede> alleRede, long version, BooleanSupplier veraltet) {
+        long gesamt = 1;
+        for (Rede rede : alleRede) gesamt += rede.getLaenge() + 1;
+        if (gesamt > MAX_ZEICHEN) {
+            throw new IllegalStateException("Corpus too large for the concordance: " + gesamt + " characters");
+        }
+
+        this.n = (int) gesamt;
+        this.version = version;
+        this.reden = alleRede.toArray(new Rede[0]);
+        this.redeStart = new int[reden.length];
+        this.text = ByteBuffer.allocateDirect(n);
+        int pos = 0;
+        for (int r = 0; r < reden.length; r++) {
+            if ((r & 1023) == 0) pruefe(veraltet);
+            redeStart[r] = pos;
+            String t = reden[r].getText();
+            int laenge = Math.min(t != null ? t.length() : 0, reden[r].getLaenge());
+            for (int i = 0; i < laenge; i++) {
+                text.put(pos++, kodiere(t.charAt(i)));
+            }
+            // Fehlende Zeichen (Länge und Text uneinig) auffüllen, damit die Positionen stimmen
+            for (int i = laenge; i < reden[r].getLaenge(); i++) text.put(pos++, PLATZHALTER);
+            text.put(pos++, TRENNER);
+        }
+        text.put(pos, ENDE);
+
+        this.suffixe = ByteBuffer.allocateDirect(4 * n).order(ByteOrder.nativeOrder()).asIntBuffer();
+        ByteBuffer quelle = text;
+        sais(i -> quelle.get(i) & 0xFF, suffixe, n, 255, veraltet);
+    }
+
+    private static void pruefe(BooleanSupplier veraltet) {
+        if (veraltet.getAsBoolean()) {
+            throw new CancellationException("Concordance build abandoned");
+        }
+    }
+
+    /**
+     * Sucht alle Vorkommen eines Teilstrings (ohne Beachtung der Groß-/Kleinschreibung)
+     * @param begriff beliebiger Teilstring, auch innerhalb von Wörtern ("klima" in "Klimaschutzgesetz")
+     * @return Bereich der Treffer, anzahl() ist die Anzahl der Vorkommen
+     */
+    public Bereich suche(String begriff) {
+        byte[] muster = new byte[begriff.length()];
+        for (int i = 0; i < muster.length; i++) muster[i] = kodiere(begriff.charAt(i));
+        if (muster.length == 0) return new Bereich(0, 0, 0);
+
+        int von = grenze(muster, false);
+        int bis = grenze(muster, true);
+        return new Bereich(von, bis, muster.length);
+    }
+
+    /**
+     * Liefert Fundstellen mit Kontext, in der Reihenfolge des Suffix-Arrays (sortiert nach dem Text ab dem Treffer)
+     * @param bereich Ergebnis von suche()
+     * @param limit höchstens so viele Zeilen
+     * @param fenster Zeichen Kontext links und rechts
+     * @param ziel bekommt die Zeilen nacheinander (zum Streamen)
+     */
+    public void zeilen(Bereich bereich, int limit, int fenster, Consumer<Zeile> ziel) {
+        // Eine Rede kann mehrfach vorkommen, ihr Text wird pro Aufruf nur einmal geholt (Blob/entpacken)
+        Map<Rede, String> texte = new IdentityHashMap<>();
+        int ende = (int) Math.min(bereich.bis(), (long) bereich.von() + limit);
+        for (int i = bereich.von(); i < ende; i++) {
+            int pos = suffixe.get(i);
+            int r = redeAn(pos);
+            Rede rede = reden[r];
+            String t = texte.computeIfAbsent(rede, Rede::getText);
+            int start = pos - redeStart[r];
+            int trefferEnde = Math.min(t.length(), start + bereich.laenge());
+            ziel.accept(new Zeile(rede, start,
+                    einzeilig(t, Math.max(0, start - fenster), start),
+                    einzeilig(t, start, trefferEnde),
+                    einzeilig(t, trefferEnde, Math.min(t.length(), trefferEnde + fenster))));
+        }
+    }
+
+    /**
+     * @return Version des Stands, aus dessen Reden die Konkordanz gebaut wurde
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Anzahl der Zeichen im Gesamttext (mit Trennern)
+     */
+    public int getAnzahlZeichen() {
+        return n;
+    }
+
+    /**
+     * @param rang Eintrag im Suffix-Array (0 bis getAnzahlZeichen() - 1)
+     * @return Startposition des Suffixes mit diesem Rang im Gesamttext
+     */
+    int suffix(int rang) {
+        return suffixe.get(rang);
+    }
+
+    /**
+     * @return Bytes von Text und Suffix-Array außerhalb des Heaps
+     */
+    public long getOffHeapBytes() {
+        return 5L * n;
+    }
+
+    /**
+     * Geschätzter Heap (Reden-Array und Startpositionen), Text und Suffix-Array liegen außerhalb, für den SpeicherBericht
+     * @return Bytes
+     */
+    long geschaetzteBytes() {
+        return 2 * ((16L + 4L * reden.length + 7) & ~7L);
+    }
+
+    /**
+     * Ein Zeichen des Textes oder Suchbegriffs als Byte: kleingeschrieben, außerhalb von Latin-1 ein Platzhalter
+     */
+    static byte kodiere(char c) {
+        char klein = Character.toLowerCase(c);
+        return klein <= TRENNER || klein > 0xFF ? PLATZHALTER : (byte) klein;
+    }
+
+    /**
+     * Binäre Suche: erster Eintrag, dessen Suffix größer oder gleich (bzw. bei hinter = true größer) als das Muster
+     * ist, wobei ein Suffix, das mit dem Muster beginnt, als gleich gilt
+     */
+    private int grenze(byte[] muster, boolean hinter) {
+        int links = 0;
+        int rechts = n;
+        while (links < rechts) {
+            int mitte = (links + rechts) >>> 1;
+            int vergleich = vergleiche(suffixe.get(mitte), muster);
+            if (vergleich < 0 || hinter && vergleich == 0) {
+                links = mitte + 1;
+            } else {
+                rechts = mitte;
+            }
+        }
+        return links;
+    }
+
+    private int vergleiche(int pos, byte[] muster) {
+        for (int j = 0; j < muster.length; j++) {
+            if (pos + j >= n) return -1;
+            int a = text.get(pos + j) & 0xFF;
+            int b = muster[j] & 0xFF;
+            if (a != b) return a - b;
+        }
+        return 0;
+    }
+
+    /**
+     * Nummer der Rede, in deren Text die Position liegt
+     */
+    private int redeAn(int pos) {
+        int i = Arrays.binarySearch(redeStart, pos);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    private static String einzeilig(String text, int von, int bis) {
+        return text.substring(von, bis).replace('\n', ' ').replace('\r', ' ');
+    }
+
+    // ---- SA-IS, nach "Two Efficient Algorithms for Linear Time Suffix Array Construction" (Nong, Zhang, Chan) ----
+
+    /**
+     * Zeichen des Textes auf einer Rekursionsstufe (Bytes des Gesamttextes oder Namen der reduzierten Stufe)
+     */
+    private interface Zeichen {
+        int an(int i);
+    }
+
+    /**
+     * Sortiert alle Suffixe von s in sa
+     * @param s Text, das letzte Zeichen ist eindeutig und das kleinste
+     * @param sa Ziel mit mindestens n Plätzen, dient auch als Speicher für die Rekursion
+     * @param n Länge des Textes
+     * @param k größtes Zeichen
+     * @param veraltet Abbruch, wird vor jeder Stufe abgefragt
+     */
+    private static void sais(Zeichen s, IntBuffer sa, int n, int k, BooleanSupplier veraltet) {
+        if (n == 1) {
+            sa.put(0, 0);
+            return;
+        }
+
+        // Typen: S (true), wenn das Suffix kleiner als das folgende ist, sonst L
+        BitSet typS = new BitSet(n);
+        typS.set(n - 1);
+        for (int i = n - 2; i >= 0; i--) {
+            int c = s.an(i);
+            int d = s.an(i + 1);
+            if (c < d || c == d && typS.get(i + 1)) typS.set(i);
+        }
+        IntBuffer eimer = k < 1 << 16
+                ? IntBuffer.allocate(k + 1)
+                : ByteBuffer.allocateDirect(4 * (k + 1)).order(ByteOrder.nativeOrder()).asIntBuffer();
+
+        pruefe(veraltet);
+
+        // Stufe 1: LMS-Teilstrings sortieren, indem die LMS-Positionen an die Eimerenden gelegt und induziert werden
+        eimer(s, eimer, n, k, true);
+        for (int i = 0; i < n; i++) sa.put(i, -1);
+        for (int i = 1; i < n; i++) {
+            if (istLms(typS, i)) {
+                int c = s.an(i);
+                int stelle = eimer.get(c) - 1;
+                eimer.put(c, stelle);
+                sa.put(stelle, i);
+            }
+        }
+        induziereL(s, typS, sa, eimer, n, k);
+        induziereS(s, typS, sa, eimer, n, k);
+
+        // Sortierte LMS-Positionen nach vorne holen
+        int n1 = 0;
+        for (int i = 0; i < n; i++) {
+            int pos = sa.get(i);
+            if (istLms(typS, pos)) sa.put(n1++, pos);
+        }
+
+        // Gleiche LMS-Teilstrings bekommen denselben Namen, abgelegt bei n1 + pos / 2
+        for (int i = n1; i < n; i++) sa.put(i, -1);
+        int name = 0;
+        int vorher = -1;
+        for (int i = 0; i < n1; i++) {
+            int pos = sa.get(i);
+            boolean anders = false;
+            for (int d = 0; d < n; d++) {
+                if (vorher == -1 || s.an(pos + d) != s.an(vorher + d) || typS.get(pos + d) != typS.get(vorher + d)) {
+                    anders = true;
+                    break;
+                } else if (d > 0 && (istLms(typS, pos + d) || istLms(typS, vorher + d))) {
+                    break;
+                }
+            }
+            if (anders) {
+                name++;
+                vorher = pos;
+            }
+            sa.put(n1 + pos / 2, name - 1);
+        }
+        for (int i = n - 1, j = n - 1; i >= n1; i--) {
+            int wert = sa.get(i);
+            if (wert >= 0) sa.put(j--, wert);
+        }
+
+        // Stufe 2: reduzierten Text (hinten in sa) sortieren, rekursiv wenn Namen doppelt vorkommen
+        pruefe(veraltet);
+        IntBuffer sa1 = sa.slice(0, n1);
+        IntBuffer s1 = sa.slice(n - n1, n1);
+        if (name < n1) {
+            sais(s1::get, sa1, n1, name - 1, veraltet);
+        } else {
+            for (int i = 0; i < n1; i++) sa1.put(s1.get(i), i);
+        }
+
+        // Stufe 3: aus der Reihenfolge der LMS-Suffixe alle Suffixe induzieren
+        pruefe(veraltet);
+        eimer(s, eimer, n, k, true);
+        for (int i = 1, j = 0; i < n; i++) {
+            if (istLms(typS, i)) s1.put(j++, i);
+        }
+        for (int i = 0; i < n1; i++) sa1.put(i, s1.get(sa1.get(i)));
+        for (int i = n1; i < n; i++) sa.put(i, -1);
+        for (int i = n1 - 1; i >= 0; i--) {
+            int pos = sa.get(i);
+            sa.put(i, -1);
+            int c = s.an(pos);
+            int stelle = eimer.get(c) - 1;
+            eimer.put(c, stelle);
+            sa.put(stelle, pos);
+        }
+        induziereL(s, typS, sa, eimer, n, k);
+        induziereS(s, typS, sa, eimer, n, k);
+    }
+
+    private static boolean istLms(BitSet typS, int i) {
+        return i > 0 && typS.get(i) && !typS.get(i - 1);
+    }
+
+    /**
+     * Eimergrenzen pro Zeichen: Anfang (ende = false) oder Ende (ende = true) jedes Eimers
+     */
+    private static void eimer(Zeichen s, IntBuffer eimer, int n, int k, boolean ende) {
+        for (int c = 0; c <= k; c++) eimer.put(c, 0);
+        for (int i = 0; i < n; i++) {
+            int c = s.an(i);
+            eimer.put(c, eimer.get(c) + 1);
+        }
+        int summe = 0;
+        for (int c = 0; c <= k; c++) {
+            int anzahl = eimer.get(c);
+            summe += anzahl;
+            eimer.put(c, ende ? summe : summe - anzahl);
+        }
+    }
+
+    private static void induziereL(Zeichen s, BitSet typS, IntBuffer sa, IntBuffer eimer, int n, int k) {
+        eimer(s, eimer, n, k, false);
+        for (int i = 0; i < n; i++) {
+            int j = sa.get(i) - 1;
+            if (j >= 0 && !typS.get(j)) {
+                int c = s.an(j);
+                int stelle = eimer.get(c);
+                eimer.put(c, stelle + 1);
+                sa.put(stelle, j);
+            }
+        }
+    }
+
+    private static void induziereS(Zeichen s, BitSet typS, IntBuffer sa, IntBuffer eimer, int n, int k) {
+        eimer(s, eimer, n, k, true);
+        for (int i = n - 1; i >= 0; i--) {
+            int j = sa.get(i) - 1;
+            if (j >= 0 && typS.get(j)) {
+                int c = s.an(j);
+                int stelle = eimer.get(c) - 1;
+                eimer.put(c, stelle);
+                sa.put(stelle, j);
+            }
+        }
+    }
+}
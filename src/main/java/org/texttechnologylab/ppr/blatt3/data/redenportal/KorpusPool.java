@@ -0,0 +1,260 @@
+package org.texttechnologylab.ppr.blatt3.data.redenportal;
+
+import java.util.*;
+
+/**
+ * Pool mit kanonischen Objekten für Fraktionen, Redner, Sitzungen und häufige Strings
+ * Die Parser erzeugen pro Rede eigene Redner-, Fraktions- und Namensobjekte. Beim Übernehmen in die
+ * ObjectFactory werden sie hier gegen ein kanonisches Objekt getauscht, damit Duplikate vom GC
+ * eingesammelt werden können. Gleich heißt dabei gleicher Inhalt: ein Redner, der z.B. die Fraktion
+ * wechselt, bekommt pro Fraktion ein eigenes Objekt, damit seine Reden richtig zugeordnet bleiben.
+ * Sitzungen gibt es genau eine pro Wahlperiode und Nummer, eine neu geladene Fassung mit anderen Daten
+ * ersetzt die alte. Wird eine Quelle ersetzt, baut die ObjectFactory den Pool aus den verbliebenen Reden neu auf.
+ * Der Pool zählt mit, wie viel Heap dadurch ungefähr gespart wird.
+ */
+public class KorpusPool {
+
+    // Geschätzte Objektgrößen (64 Bit, komprimierte Referenzen): Header 12 Bytes + 4 pro Referenz, auf 8 gerundet
+    static final int REDNER_BYTES = 32;
+    static final int FRAKTION_BYTES = 16;
+    static final int SITZUNG_BYTES = 40;
+
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<String, Fraktion> fraktionen = new HashMap<>();
+    private final Map<String, Redner> redner = new HashMap<>();
+    private final Map<String, Sitzung> sitzungen = new HashMap<>();
+
+    private long aufgeloest = 0;  // ersetzte Objekte und Strings
+    private boolean kommentarTexte = true;  // Kommentartexte in den String-Pool aufnehmen
+    private long eingespartBytes = 0;
+
+    /**
+     * Legt fest, ob Kommentartexte in den String-Pool aufgenommen werden
+     * Abschalten, wenn die Texte außerhalb des Heaps liegen (TextBlobStore), sonst hält der Pool sie fest.
+     * @param kommentarTexte true = Kommentartexte zusammenlegen
+     */
+    public synchronized void setKommentarTexte(boolean kommentarTexte) {
+        this.kommentarTexte = kommentarTexte;
+    }
+
+    /**
+     * Tauscht Redner, Sitzung und die Daten der Kommentare einer Rede gegen kanonische Objekte
+     * @param rede frisch geparste Rede
+     */
+    public synchronized void uebernehme(Rede rede) {
+        Redner parsedRedner = rede.getRedner();
+        Redner kanonischerRedner = redner(parsedRedner);
+        rede.setRedner(kanonischerRedner);
+        rede.setSitzung(sitzung(rede.getSitzung()));
+        rede.absaetze().interniere(this::string);
+
+        for (Kommentar kommentar : rede.getKommentar()) {
+            Redner kommentarRedner = kommentar.getRedner() == parsedRedner ? kanonischerRedner : redner(kommentar.getRedner());
+            Fraktion fraktion = kommentar.getFraktion() != null ? fraktion(kommentar.getFraktion()) : null;
+            String text = kommentarTexte ? string(kommentar.getTextk()) : kommentar.getTextk();
+            kommentar.setDaten(kommentarRedner, fraktion, text);
+        }
+    }
+
+    /**
+     * Baut den Pool aus den Objekten der übergebenen Reden neu auf, damit er nichts mehr aus ersetzten Quellen festhält
+     * Die Reden sind bereits übernommen, ihre Objekte werden unverändert als kanonisch eingetragen.
+     * @param quellen Reden pro Quelle in Merge-Reihenfolge
+     */
+    public synchronized void neuAufbauen(Collection<List<Rede>> quellen) {
+        strings.clear();
+        fraktionen.clear();
+        redner.clear();
+        sitzungen.clear();
+
+        for (List<Rede> reden : quellen) {
+            for (Rede rede : reden) {
+                trageEin(rede.getRedner());
+                Sitzung sitzung = rede.getSitzung();
+                if (sitzung != null && sitzungen.putIfAbsent(ObjectFactory.sitzungId(sitzung), sitzung) == null) {
+                    string(sitzung.getWahlperiode());
+                    string(sitzung.getSitzungNr());
+                    string(sitzung.getSitzungOrt());
+                }
+                rede.absaetze().interniere(this::string);
+                for (Kommentar kommentar : rede.getKommentar()) {
+                    trageEin(kommentar.getRedner());
+                    if (kommentar.getFraktion() != null) trageEin(kommentar.getFraktion());
+                    if (kommentarTexte) string(kommentar.getTextk());
+                }
+            }
+        }
+    }
+
+    private void trageEin(Redner kanonisch) {
+        if (kanonisch == null || redner.putIfAbsent(rednerKey(kanonisch), kanonisch) != null) return;
+        string(kanonisch.getId());
+        string(kanonisch.getTitel());
+        string(kanonisch.getVorname());
+        string(kanonisch.getNachname());
+        if (kanonisch.getFraktion() != null) trageEin(kanonisch.getFraktion());
+    }
+
+    private void trageEin(Fraktion kanonisch) {
+        if (fraktionen.putIfAbsent(kanonisch.getName(), kanonisch) == null) string(kanonisch.getName());
+    }
+
+    /**
+     * Kanonische Fraktion für einen (normalisierten) Namen
+     * @param name z.B. "SPD"
+     * @return immer dasselbe Objekt für denselben Namen
+     */
+    public synchronized Fraktion fraktion(String name) {
+        Fraktion vorhanden = fraktionen.get(name);
+        if (vorhanden != null) return vorhanden;
+        Fraktion neu = new Fraktion(string(name));
+        fraktionen.put(neu.getName(), neu);
+        return neu;
+    }
+
+    private Fraktion fraktion(Fraktion fraktion) {
+        Fraktion kanonisch = fraktionen.get(fraktion.getName());
+        if (kanonisch == fraktion) return fraktion;
+        if (kanonisch != null) {
+            spare(FRAKTION_BYTES + groesse(fraktion.getName(), kanonisch.getName()));
+            return kanonisch;
+        }
+        return fraktion(fraktion.getName());
+    }
+
+    private Redner redner(Redner parsed) {
+        if (parsed == null) return null;
+        String key = rednerKey(parsed);
+        Redner kanonisch = redner.get(key);
+        if (kanonisch == parsed) return parsed;
+        if (kanonisch != null) {
+            spare(REDNER_BYTES
+                    + groesse(parsed.getId(), kanonisch.getId())
+                    + groesse(parsed.getTitel(), kanonisch.getTitel())
+                    + groesse(parsed.getVorname(), kanonisch.getVorname())
+                    + groesse(parsed.getNachname(), kanonisch.getNachname())
+                    + (parsed.getFraktion() != null && parsed.getFraktion() != kanonisch.getFraktion()
+                        ? FRAKTION_BYTES + groesse(parsed.getFraktion().getName(), kanonisch.getFraktion().getName()) : 0));
+            return kanonisch;
+        }
+
+        kanonisch = new Redner(string(parsed.getTitel()), string(parsed.getId()), string(parsed.getVorname()),
+                string(parsed.getNachname()), parsed.getFraktion() != null ? fraktion(parsed.getFraktion()) : null);
+        redner.put(key, kanonisch);
+        return kanonisch;
+    }
+
+    private static String rednerKey(Redner redner) {
+        return redner.getId() + '\u0000' + redner.getTitel() + '\u0000' + redner.getVorname() + '\u0000'
+                + redner.getNachname() + '\u0000' + (redner.getFraktion() != null ? redner.getFraktion().getName() : null);
+    }
+
+    private Sitzung sitzung(Sitzung parsed) {
+        if (parsed == null) return null;
+        String key = ObjectFactory.sitzungId(parsed);
+        Sitzung kanonisch = sitzungen.get(key);
+        if (kanonisch == parsed) return parsed;
+        // Eine geänderte Fassung derselben Sitzung (Ort, Datum, Zeiten) wird zum neuen kanonischen Objekt
+        if (kanonisch != null && gleicherInhalt(parsed, kanonisch)) {
+            spare(SITZUNG_BYTES
+                    + groesse(parsed.getWahlperiode(), kanonisch.getWahlperiode())
+                    + groesse(parsed.getSitzungNr(), kanonisch.getSitzungNr())
+                    + groesse(parsed.getSitzungOrt(), kanonisch.getSitzungOrt()));
+            return kanonisch;
+        }
+
+        kanonisch = new Sitzung(string(parsed.getWahlperiode()), string(parsed.getSitzungNr()), string(parsed.getSitzungOrt()),
+                parsed.getSitzungDatum(), parsed.getStartZeit(), parsed.getEndZeit());
+        sitzungen.put(key, kanonisch);
+        return kanonisch;
+    }
+
+    private static boolean gleicherInhalt(Sitzung a, Sitzung b) {
+        return Objects.equals(a.getSitzungOrt(), b.getSitzungOrt())
+                && Objects.equals(a.getSitzungDatum(), b.getSitzungDatum())
+                && Objects.equals(a.getStartZeit(), b.getStartZeit())
+                && Objects.equals(a.getEndZeit(), b.getEndZeit());
+    }
+
+    /**
+     * Kanonischer String (eigener Pool statt String.intern, damit er mit der Factory freigegeben wird)
+     */
+    private String string(String wert) {
+        if (wert == null) return null;
+        String vorhanden = strings.putIfAbsent(wert, wert);
+        if (vorhanden == null) return wert;
+        if (vorhanden != wert) spare(groesse(wert));
+        return vorhanden;
+    }
+
+    private void spare(long bytes) {
+        aufgeloest++;
+        eingespartBytes += bytes;
+    }
+
+    /**
+     * Bytes eines Duplikats, das durch das kanonische Objekt ersetzt wird (0, wenn es dasselbe Objekt ist)
+     */
+    private static long groesse(String duplikat, String kanonisch) {
+        return duplikat != null && duplikat != kanonisch ? groesse(duplikat) : 0;
+    }
+
+    /**
+     * Geschätzte Größe eines Strings: Objekt (24 Bytes) + byte[] (16 Bytes Header, 1 oder 2 Bytes pro Zeichen)
+     */
+    static long groesse(String wert) {
+        int bytesProZeichen = 1;
+        for (int i = 0; i < wert.length(); i++) {
+            if (wert.charAt(i) > 0xFF) {
+                bytesProZeichen = 2;
+                break;
+            }
+        }
+        return 24 + ((16L + (long) wert.length() * bytesProZeichen + 7) & ~7L);
+    }
+
+    /**
+     * @return Anzahl der kanonischen Redner-Objekte
+     */
+    public synchronized int getAnzahlRedner() { return redner.size(); }
+
+    /**
+     * @return Anzahl der kanonischen Fraktionen
+     */
+    public synchronized int getAnzahlFraktionen() { return fraktionen.size(); }
+
+    /**
+     * @return Anzahl der kanonischen Sitzungen
+     */
+    public synchronized int getAnzahlSitzungen() { return sitzungen.size(); }
+
+    /**
+     * @return Anzahl der verschiedenen Strings im Pool
+     */
+    public synchronized int getAnzahlStrings() { return strings.size(); }
+
+    /**
+     * @return Anzahl der Duplikate (Objekte und Strings), die durch kanonische Objekte ersetzt wurden
+     */
+    public synchronized long getAufgeloest() { return aufgeloest; }
+
+    /**
+     * @return geschätzte Bytes, die durch die ersetzten Duplikate frei werden
+     */
+    public synchronized long getEingespartBytes() { return eingespartBytes; }
+
+    /**
+     * Kurzbericht für Status und Log
+     * @return Anzahlen und eingesparte Bytes
+     */
+    public synchronized Map<String, Object> bericht() {
+        Map<String, Object> bericht = new LinkedHashMap<>();
+        bericht.put("redner", redner.size());
+        bericht.put("fraktionen", fraktionen.size());
+        bericht.put("sitzungen", sitzungen.size());
+        bericht.put("strings", strings.size());
+        bericht.put("aufgeloest", aufgeloest);
+        bericht.put("eingespartBytes", eingespartBytes);
+        return bericht;
+    }
+}
@@ -0,0 +1,483 @@
+package org.texttechnologylab.ppr.blatt3.data.redenportal;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Unveränderbarer, versionierter Stand der geladenen Daten
+ * Die ObjectFactory baut bei jeder Veröffentlichung einen neuen Stand mit allen Sammlungen,
+ * Partitionen und Indizes auf und ersetzt den alten mit einer einzigen Zuweisung.
+ * Ein Request, der sich einen Stand holt, sieht dadurch immer eine konsistente Version ohne Locks.
+ */
+public class KorpusStand {
+
+    /** Stand vor dem ersten Laden */
+    static final KorpusStand LEER = new KorpusStand(0, List.of(), Set.of(), Set.of(), Set.of(), Set.of(), Map.of(), Map.of());
+
+    private final long version;
+    private final long erstellt;
+
+    private final List<Rede> alleRede;
+    private final Set<Redner> alleRedner;
+    private final Set<Sitzung> alleSitzung;
+    private final Set<Fraktion> alleFraktion;
+    private final Set<Kommentar> alleKommentar;
+
+    // Partitionen pro Wahlperiode (numerisch sortiert)
+    private final Map<String, WahlperiodePartition> partitionen;
+
+    // ID-Indizes für Detail-Abfragen in konstanter Zeit
+    private final Map<String, Redner> rednerIndex;
+    private final Map<String, Rede> redeIndex;
+    private final Map<String, Sitzung> sitzungIndex;
+
+    // Spaltenspeicher für Statistiken, wird beim ersten Zugriff aufgebaut
+    private volatile RedenMetriken metriken;
+
+    // Sitzungen und Reden nach Datum, wird beim ersten Zugriff aufgebaut
+    private volatile DatumIndex datumIndex;
+
+    // Invertierter Index über die Redetexte, wird beim ersten Zugriff aufgebaut
+    private volatile VolltextIndex volltextIndex;
+
+    // Namen der Redner für Vorschläge beim Tippen, wird beim ersten Zugriff aufgebaut
+    private volatile RednerPrefixIndex rednerPrefixIndex;
+
+    // Trigramme der Rednernamen für die fehlertolerante Suche, wird beim ersten Zugriff aufgebaut
+    private volatile RednerSuche rednerSuche;
+
+    // Wortpositionen der Kommentartexte für die Phrasensuche, wird beim ersten Zugriff aufgebaut
+    private volatile KommentarIndex kommentarIndex;
+
+    // Eigenes Lock pro Index: ein langer Aufbau (z.B. Volltext) blockiert keine Requests, die einen anderen Index brauchen
+    private final Object metrikenLock = new Object();
+    private final Object datumIndexLock = new Object();
+    private final Object volltextIndexLock = new Object();
+    private final Object rednerPrefixIndexLock = new Object();
+    private final Object rednerSucheLock = new Object();
+    private final Object kommentarIndexLock = new Object();
+
+    /**
+     * Erstellt einen Stand aus Kopien des Arbeitsstands der ObjectFactory
+     * Die übergebenen Sammlungen dürfen danach nicht mehr verändert werden.
+     * @param version fortlaufende Versionsnummer
+     * @param reden alle Reden in Ladereihenfolge
+     * @param redner deduplizierte Redner
+     * @param sitzungen alle Sitzungen
+     * @param fraktionen deduplizierte Fraktionen
+     * @param kommentare alle Kommentare
+     * @param rednerMap deduplizierte Redner nach ID
+     * @param fraktionMap deduplizierte Fraktionen nach normalisiertem Namen
+     */
+    KorpusStand(long version, List<Rede> reden, Set<Redner> redner, Set<Sitzung> sitzungen, Set<Fraktion> fraktionen,
+                Set<Kommentar> kommentare, Map<String, Redner> rednerMap, Map<String, Fraktion> fraktionMap) {
+        this.version = version;
+        this.erstellt = System.currentTimeMillis();
+        this.alleRede = Collections.unmodifiableList(reden);
+        this.alleRedner = Collections.unmodifiableSet(redner);
+        this.alleSitzung = Collections.unmodifiableSet(sitzungen);
+        this.alleFraktion = Collections.unmodifiableSet(fraktionen);
+        this.alleKommentar = Collections.unmodifiableSet(kommentare);
+        this.rednerIndex = Collections.unmodifiableMap(rednerMap);
+        this.partitionen = erstellePartitionen(reden, rednerMap, fraktionMap);
+
+        // Bei doppelten IDs gewinnt das zuerst geladene Objekt (wie bei der Suche in der Liste)
+        Map<String, Rede> redeIds = new HashMap<>(reden.size() * 2);
+        Map<String, Sitzung> sitzungIds = new HashMap<>();
+        for (Rede rede : reden) {
+            if (rede.getRid() != null) {
+                redeIds.putIfAbsent(rede.getRid(), rede);
+            }
+            sitzungIds.putIfAbsent(ObjectFactory.sitzungId(rede.getSitzung()), rede.getSitzung());
+        }
+        this.redeIndex = Collections.unmodifiableMap(redeIds);
+        this.sitzungIndex = Collections.unmodifiableMap(sitzungIds);
+    }
+
+    /**
+     * Teilt die Reden nach Wahlperiode auf
+     * Die Partitionen teilen sich die Rede-Objekte, nur die Listen sind neu.
+     */
+    private static Map<String, WahlperiodePartition> erstellePartitionen(List<Rede> reden, Map<String, Redner> rednerMap,
+                                                                         Map<String, Fraktion> fraktionMap) {
+        Map<String, List<Rede>> redenProWahlperiode = new TreeMap<>(ObjectFactory.NAMEN_REIHENFOLGE);
+        for (Rede rede : reden) {
+            redenProWahlperiode.computeIfAbsent(rede.getSitzung().getWahlperiode(), wp -> new ArrayList<>()).add(rede);
+        }
+
+        Map<String, WahlperiodePartition> partitionen = new LinkedHashMap<>();
+        redenProWahlperiode.forEach((wahlperiode, redenDerPeriode) ->
+                partitionen.put(wahlperiode, new WahlperiodePartition(wahlperiode, redenDerPeriode, rednerMap, fraktionMap)));
+        return Collections.unmodifiableMap(partitionen);
+    }
+
+    /**
+     * @return Versionsnummer, steigt mit jeder Veröffentlichung
+     */
+    public long getVersion() { return version; }
+
+    /**
+     * @return Zeitpunkt der Veröffentlichung in Millisekunden
+     */
+    public long getErstellt() { return erstellt; }
+
+    public List<Rede> getAlleRede() { return alleRede; }
+    public Set<Redner> getAlleRedner() { return alleRedner; }
+    public Set<Sitzung> getAlleSitzung() { return alleSitzung; }
+    public Set<Fraktion> getAlleFraktion() { return alleFraktion; }
+    public Set<Kommentar> getAlleKommentar() { return alleKommentar; }
+
+    /**
+     * Redner nach ID über den Index
+     * @param id ID des Redners
+     * @return der (deduplizierte) Redner oder null
+     */
+    public Redner getRednerById(String id) {
+        return id != null ? rednerIndex.get(id) : null;
+    }
+
+    /**
+     * Rede nach ID über den Index
+     * Kommt eine ID in mehreren Dateien vor, wird die zuerst geladene Rede geliefert.
+     * @param id ID der Rede
+     * @return die Rede oder null
+     */
+    public Rede getRedeById(String id) {
+        return id != null ? redeIndex.get(id) : null;
+    }
+
+    /**
+     * Sitzung nach ID über den Index
+     * @param id Wahlperiode und Sitzungsnummer, z.B. "20_1" (siehe ObjectFactory.sitzungId)
+     * @return die zuerst geladene Sitzung mit dieser ID oder null
+     */
+    public Sitzung getSitzungById(String id) {
+        return id != null ? sitzungIndex.get(id) : null;
+    }
+
+    /**
+     * Kennzahlen aller Reden als Spalten (Länge, Wörter, Kommentare, ...), beim ersten Zugriff aufgebaut
+     * @return die Metriken, Positionen wie in getAlleRede()
+     */
+    public RedenMetriken getMetriken() {
+        RedenMetriken aktuell = metriken;
+        if (aktuell == null) {
+            synchronized (metrikenLock) {
+                aktuell = metriken;
+                if (aktuell == null) {
+                    aktuell = new RedenMetriken(alleRede);
+                    metriken = aktuell;
+                }
+            }
+        }
+        return aktuell;
+    }
+
+    /**
+     * Index über das Datum der Sitzungen für Abfragen nach Zeitraum, beim ersten Zugriff aufgebaut
+     * @return der Index über alle Reden und Sitzungen
+     */
+    public DatumIndex getDatumIndex() {
+        DatumIndex aktuell = datumIndex;
+        if (aktuell == null) {
+            synchronized (datumIndexLock) {
+                aktuell = datumIndex;
+                if (aktuell == null) {
+                    aktuell = new DatumIndex(alleRede, alleSitzung);
+                    datumIndex = aktuell;
+                }
+            }
+        }
+        return aktuell;
+    }
+
+    /**
+     * Volltextindex über die Redetexte, beim ersten Zugriff aufgebaut
+     * @return der Index, Positionen wie in getAlleRede()
+     */
+    public VolltextIndex getVolltextIndex() {
+        VolltextIndex aktuell = volltextIndex;
+        if (aktuell == null) {
+            synchronized (volltextIndexLock) {
+                aktuell = volltextIndex;
+                if (aktuell == null) {
+                    aktuell = new VolltextIndex(alleRede);
+                    volltextIndex = aktuell;
+                }
+            }
+        }
+        return aktuell;
+    }
+
+    /**
+     * @return der Volltextindex, wenn er schon aufgebaut ist, sonst null
+     */
+    VolltextIndex volltextIndexFallsVorhanden() {
+        return volltextIndex;
+    }
+
+    /**
+     * Präfixindex über die Namen der Redner, beim ersten Zugriff aufgebaut
+     * @return der Index über getAlleRedner()
+     */
+    public RednerPrefixIndex getRednerPrefixIndex() {
+        RednerPrefixIndex aktuell = rednerPrefixIndex;
+        if (aktuell == null) {
+            synchronized (rednerPrefixIndexLock) {
+                aktuell = rednerPrefixIndex;
+                if (aktuell == null) {
+                    aktuell = new RednerPrefixIndex(alleRedner);
+                    rednerPrefixIndex = aktuell;
+                }
+            }
+        }
+        return aktuell;
+    }
+
+    /**
+     * @return der Präfixindex, wenn er schon aufgebaut ist, sonst null
+     */
+    RednerPrefixIndex rednerPrefixIndexFallsVorhanden() {
+        return rednerPrefixIndex;
+    }
+
+    /**
+     * Fehlertolerante Namenssuche über die Redner, beim ersten Zugriff aufgebaut
+     * @return die Suche über getAlleRedner()
+     */
+    public RednerSuche getRednerSuche() {
+        RednerSuche aktuell = rednerSuche;
+        if (aktuell == null) {
+            synchronized (rednerSucheLock) {
+                aktuell = rednerSuche;
+                if (aktuell == null) {
+                    aktuell = new RednerSuche(alleRedner);
+                    rednerSuche = aktuell;
+                }
+            }
+        }
+        return aktuell;
+    }
+
+    /**
+     * @return die Namenssuche, wenn sie schon aufgebaut ist, sonst null
+     */
+    RednerSuche rednerSucheFallsVorhanden() {
+        return rednerSuche;
+    }
+
+    /**
+     * Positionsindex über die Kommentartexte, beim ersten Zugriff aufgebaut
+     * @return der Index über die Kommentare aller Reden
+     */
+    public KommentarIndex getKommentarIndex() {
+        KommentarIndex aktuell = kommentarIndex;
+        if (aktuell == null) {
+            synchronized (kommentarIndexLock) {
+                aktuell = kommentarIndex;
+                if (aktuell == null) {
+                    aktuell = new KommentarIndex(alleRede);
+                    kommentarIndex = aktuell;
+                }
+            }
+        }
+        return aktuell;
+    }
+
+    /**
+     * @return der Kommentarindex, wenn er schon aufgebaut ist, sonst null
+     */
+    KommentarIndex kommentarIndexFallsVorhanden() {
+        return kommentarIndex;
+    }
+
+    /**
+     * Baut alle Indizes auf, die sonst beim ersten Zugriff entstehen (die Konkordanz baut die ObjectFactory im Hintergrund)
+     * Wird vor dem Veröffentlichen aufgerufen, damit kein Request-Thread einen Index aufbauen muss.
+     */
+    void baueIndizes() {
+        getMetriken();
+        getDatumIndex();
+        getRednerPrefixIndex();
+        getRednerSuche();
+        getKommentarIndex();
+        getVolltextIndex();
+    }
+
+    /**
+     * Volltextsuche in den Redetexten mit BM25-Ranking, kombinierbar mit den Filtern von filterReden
+     * @param anfrage Suchtext
+     * @param k Anzahl der gewünschten Treffer
+     * @return Anzahl der Treffer und die besten k Reden
+     */
+    public VolltextIndex.Ergebnis sucheText(String anfrage, String wahlperiode, String rednerId, String fraktion,
+                                            String sitzungId, LocalDate von, LocalDate bis, int k) {
+        boolean gefiltert = wahlperiode != null || rednerId != null || fraktion != null || sitzungId != null
+                || von != null || bis != null;
+        List<Rede> erlaubt = gefiltert ? filterReden(wahlperiode, rednerId, fraktion, sitzungId, von, bis) : null;
+        return getVolltextIndex().suche(anfrage, erlaubt, k);
+    }
+
+    /**
+     * @return true, wenn der Datumsindex schon aufgebaut ist
+     */
+    boolean hatDatumIndex() {
+        return datumIndex != null;
+    }
+
+    /**
+     * @return true, wenn die Metriken schon aufgebaut sind
+     */
+    boolean hatMetriken() {
+        return metriken != null;
+    }
+
+    /**
+     * @return alle geladenen Wahlperioden, numerisch sortiert
+     */
+    public List<String> getWahlperioden() {
+        return new ArrayList<>(partitionen.keySet());
+    }
+
+    /**
+     * Partition einer Wahlperiode
+     * @param wahlperiode z.B. "20"
+     * @return die Partition oder null, wenn die Wahlperiode nicht geladen ist
+     */
+    public WahlperiodePartition getPartition(String wahlperiode) {
+        return wahlperiode != null ? partitionen.get(wahlperiode.trim()) : null;
+    }
+
+    /**
+     * Partitionen für eine Abfrage
+     * @param wahlperiode gewünschte Wahlperiode oder null für alle
+     * @return nur die passende Partition, bzw. alle Partitionen wenn keine Wahlperiode angegeben ist
+     */
+    public List<WahlperiodePartition> getPartitionen(String wahlperiode) {
+        if (wahlperiode == null || wahlperiode.isBlank()) {
+            return new ArrayList<>(partitionen.values());
+        }
+        WahlperiodePartition partition = getPartition(wahlperiode);
+        return partition != null ? List.of(partition) : List.of();
+    }
+
+    /**
+     * Filtert Reden über die Sekundärindizes der Partitionen (null = Filter nicht benutzt)
+     * Mit Wahlperiode (oder Sitzung, die die Wahlperiode enthält) wird nur deren Partition benutzt,
+     * sonst werden die Partitionen parallel abgefragt.
+     * @param wahlperiode Wahlperiode, z.B. "20"
+     * @param rednerId ID des Redners
+     * @param fraktion Name der Fraktion (wird normalisiert)
+     * @param sitzungId Sitzung, z.B. "20_1"
+     * @return passende Reden, nach Wahlperiode und Ladereihenfolge sortiert
+     */
+    public List<Rede> filterReden(String wahlperiode, String rednerId, String fraktion, String sitzungId) {
+        List<WahlperiodePartition> auswahl = getPartitionen(wahlperiodeFuer(wahlperiode, sitzungId));
+        if (auswahl.size() == 1) {
+            return auswahl.get(0).getIndex().filter(rednerId, fraktion, sitzungId);
+        }
+        return auswahl.parallelStream()
+                .flatMap(partition -> partition.getIndex().filter(rednerId, fraktion, sitzungId).stream())
+                .toList();
+    }
+
+    /**
+     * Filtert Reden in einem Zeitraum (von/bis null = ohne Zeitraum, dann wie filterReden ohne Datum)
+     * Der Zeitraum wird über den Datumsindex gesucht, die übrigen Filter werden nur auf die Reden
+     * im Zeitraum angewandt.
+     * @param von erster Tag (einschließlich) oder null
+     * @param bis letzter Tag (einschließlich) oder null
+     * @return passende Reden, mit Zeitraum nach Datum sortiert
+     */
+    public List<Rede> filterReden(String wahlperiode, String rednerId, String fraktion, String sitzungId,
+                                  LocalDate von, LocalDate bis) {
+        if (von == null && bis == null) {
+            return filterReden(wahlperiode, rednerId, fraktion, sitzungId);
+        }
+        List<Rede> imZeitraum = getDatumIndex().reden(von, bis);
+        if (wahlperiode == null && rednerId == null && fraktion == null && sitzungId == null) {
+            return imZeitraum;
+        }
+
+        String fraktionKey = fraktion != null ? RedenIndex.fraktionKey(fraktion) : null;
+        String periode = wahlperiode != null ? wahlperiode.trim() : null;
+        List<Rede> ergebnis = new ArrayList<>();
+        for (Rede rede : imZeitraum) {
+            Redner redner = rede.getRedner();
+            if (periode != null && !periode.equals(rede.getSitzung().getWahlperiode())) continue;
+            if (rednerId != null && !rednerId.equals(redner.getId())) continue;
+            if (sitzungId != null && !sitzungId.equals(ObjectFactory.sitzungId(rede.getSitzung()))) continue;
+            if (fraktionKey != null && (redner.getFraktion() == null
+                    || !fraktionKey.equals(RedenIndex.fraktionKey(redner.getFraktion().getName())))) continue;
+            ergebnis.add(rede);
+        }
+        return ergebnis;
+    }
+
+    /**
+     * Sitzungen einer Wahlperiode und/oder eines Zeitraums
+     * @param wahlperiode gewünschte Wahlperiode oder null für alle
+     * @param von erster Tag (einschließlich) oder null
+     * @param bis letzter Tag (einschließlich) oder null
+     * @return die Sitzungen, mit Zeitraum nach Datum sortiert
+     */
+    public Collection<Sitzung> filterSitzungen(String wahlperiode, LocalDate von, LocalDate bis) {
+        if (von == null && bis == null) {
+            if (wahlperiode == null) return alleSitzung;
+            WahlperiodePartition partition = getPartition(wahlperiode);
+            return partition != null ? partition.getSitzungen() : List.of();
+        }
+        List<Sitzung> imZeitraum = getDatumIndex().sitzungen(von, bis);
+        if (wahlperiode == null) return imZeitraum;
+        String periode = wahlperiode.trim();
+        return imZeitraum.stream().filter(s -> periode.equals(s.getWahlperiode())).toList();
+    }
+
+    /**
+     * Zählt Reden über die Sekundärindizes, ohne eine Liste zu erstellen (Parameter wie filterReden)
+     * @return Anzahl der passenden Reden
+     */
+    public int zaehleReden(String wahlperiode, String rednerId, String fraktion, String sitzungId) {
+        int anzahl = 0;
+        for (WahlperiodePartition partition : getPartitionen(wahlperiodeFuer(wahlperiode, sitzungId))) {
+            anzahl += partition.getIndex().anzahl(rednerId, fraktion, sitzungId);
+        }
+        return anzahl;
+    }
+
+    /**
+     * Wahlperiode für eine Abfrage, ggf. aus der Sitzung ("20_1") abgeleitet
+     */
+    private static String wahlperiodeFuer(String wahlperiode, String sitzungId) {
+        if (wahlperiode == null && sitzungId != null && sitzungId.contains("_")) {
+            return sitzungId.substring(0, sitzungId.indexOf('_'));
+        }
+        return wahlperiode;
+    }
+
+    /**
+     * Sucht Reden mit einer Bedingung
+     * Mit Wahlperiode wird nur deren Partition durchsucht, sonst alle Partitionen parallel.
+     * @param wahlperiode gewünschte Wahlperiode oder null für alle
+     * @param filter Bedingung für die Reden
+     * @return passende Reden, nach Wahlperiode und Ladereihenfolge sortiert
+     */
+    public List<Rede> sucheReden(String wahlperiode, Predicate<Rede> filter) {
+        List<WahlperiodePartition> auswahl = getPartitionen(wahlperiode);
+        if (auswahl.size() == 1) {
+            return auswahl.get(0).filterReden(filter);
+        }
+        return auswahl.parallelStream()
+                .flatMap(partition -> partition.filterReden(filter).stream())
+                .toList();
+    }
+
+    /**
+     * Prüfe ob der Stand leer ist
+     * @return true, wenn keine Objekte vorhanden sind
+     */
+    public boolean isEmpty() {
+        return alleRede.isEmpty() && alleRedner.isEmpty() && alleSitzung.isEmpty() && alleFraktion.isEmpty();
+    }
+}
@@ -1,12 +1,32 @@
 package org.texttechnologylab.ppr.blatt3.data.redenportal;
 
+import org.texttechnologylab.ppr.blatt3.data.helper.ArchivHelper;
+import org.texttechnologylab.ppr.blatt3.data.helper.ParseCacheHelper;
+import org.texttechnologylab.ppr.blatt3.data.helper.SnapshotHelper;
+import org.texttechnologylab.ppr.blatt3.data.helper.StaxXMLHelper;
+import org.texttechnologylab.ppr.blatt3.data.helper.TextBlobStore;
+import org.texttechnologylab.ppr.blatt3.data.helper.TextKompressor;
 import org.texttechnologylab.ppr.blatt3.data.helper.XMLHelper;
 import org.texttechnologylab.ppr.blatt3.data.redenportal.*;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import static org.texttechnologylab.ppr.blatt3.data.helper.NormalizeFraktion.normalizeFraktion;
 
@@ -16,103 +36,1152 @@ import static org.texttechnologylab.ppr.blatt3.data.helper.NormalizeFraktion.nor
  */
 public class ObjectFactory {
 
+    // Arbeitsstand, wird nur in synchronized Methoden verändert
     private List<Rede> alleRede = new ArrayList<>();
     private Set<Redner> alleRedner = new HashSet<>();
     private Set<Sitzung> alleSitzung = new HashSet<>();
     private Set<Fraktion> alleFraktion = new HashSet<>();
     private Set<Kommentar> alleKommentar = new HashSet<>();
 
+    // Veröffentlichter Stand für die Request-Threads
+    // Wird nach einem Merge komplett neu aufgebaut und mit einer Zuweisung ersetzt,
+    // Leser sehen nie einen halb zusammengeführten Stand
+    private volatile KorpusStand stand = KorpusStand.LEER;
+    private long version = 0;
 
     // Maps zur Deduplizierung von Rednern und Fraktionen
     private Map<String, Redner> rednerMap = new HashMap<>();
     private Map<String, Fraktion> fraktionMap = new HashMap<>();
 
-    // Getter
-    public List<Rede> getAlleRede() { return alleRede; }
-    public Set<Redner> getAlleRedner() { return alleRedner; }
-    public Set<Sitzung> getAlleSitzung() { return alleSitzung; }
-    public Set<Fraktion> getAlleFraktion() { return alleFraktion; }
-    public Set<Kommentar> getAlleKommentar() { return alleKommentar; }
+    // Kanonische Redner, Fraktionen, Sitzungen und Strings, gegen die neue Reden beim Merge getauscht werden
+    private final KorpusPool pool = new KorpusPool();
+
+    // Reden pro Quelle (z.B. "20/1.xml") in Merge-Reihenfolge, damit geänderte Dateien ersetzt werden können
+    private final Map<String, List<Rede>> redenProQuelle = new LinkedHashMap<>();
+
+    // Stand (Größe und Änderungszeit) jeder eingelesenen Datei
+    private final Map<String, String> dateiStand = new ConcurrentHashMap<>();
+
+    // Quellen, deren letzter Parse-Versuch fehlgeschlagen ist: sie gelten nicht als geladen (der Watcher versucht
+    // sie erneut) und ein Ladevorgang mit Fehlern schreibt keinen Snapshot
+    private final Set<String> fehlerhafteQuellen = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger parseFehler = new AtomicInteger();
+
+    // Konfiguration für das Einlesen der XML-Dateien
+    private int ingestThreads = Runtime.getRuntime().availableProcessors();
+    private String ingestExecutor = "forkjoin";
+    private String ingestParser = "stax";
+    private String snapshotVerzeichnis = null;  // null = kein Snapshot
+    private ParseCacheHelper parseCache = null;  // null = kein Parse-Cache
+    private final AtomicInteger cacheTreffer = new AtomicInteger();
+    // Hash des Inhalts pro Quelle, damit Cache-Einträge geänderter Dateien gelöscht werden können
+    private final Map<String, String> cacheHashProQuelle = new ConcurrentHashMap<>();
+    private boolean alleQuellenGehasht = true;  // false, wenn ein Ordner aus dem Snapshot kam oder fehlte
+    private int publishBatch = 20;  // nach so vielen Dateien wird der Zwischenstand veröffentlicht
+    private boolean textKomprimierung = false;  // Redetexte komprimiert speichern (siehe TextKompressor)
+    private final TextKompressor textKompressor = new TextKompressor();  // LRU-Cache für entpackte Texte
+    private TextBlobStore textBlobStore = null;  // null = Texte bleiben auf dem Heap
+    private boolean konkordanz = false;  // Suffix-Array für /api/konkordanz nach dem Laden im Hintergrund aufbauen
+
+    // Nach dem ersten Laden werden die Indizes neuer Stände im Hintergrund gebaut, bis dahin bleibt der alte Stand
+    // veröffentlicht. Es läuft höchstens ein Aufbau, immer für den neuesten Arbeitsstand.
+    private KorpusStand naechsterStand = null;  // wartet auf seine Indizes, nur in synchronized Methoden
+    private final AtomicBoolean indexAufbauLaeuft = new AtomicBoolean();
+
+    // Zuletzt fertige Konkordanz, wird auch für neuere Stände ausgeliefert, bis deren Suffix-Array fertig ist.
+    // Es läuft höchstens ein Aufbau, immer für den neuesten Stand.
+    private volatile Konkordanz fertigeKonkordanz = null;
+    private volatile long konkordanzVersion = 0;  // Version des letzten abgeschlossenen Aufbaus (auch fehlgeschlagen)
+    private volatile String konkordanzFehler = null;
+    private final AtomicBoolean konkordanzLaeuft = new AtomicBoolean();
+
+    // Speicherbericht der letzten gezählten Version, wird im Hintergrund für neuere Stände erneuert
+    private volatile SpeicherBericht speicherBericht = null;
+    private final AtomicBoolean speicherBerichtLaeuft = new AtomicBoolean();
+
+    // Fortschritt beim Einlesen (für Readiness- und Status-Endpunkte)
+    private volatile boolean bereit = false;
+    private volatile long ladeStart = 0;
+    private final AtomicInteger dateienGesamt = new AtomicInteger();
+    private final AtomicInteger dateienGeladen = new AtomicInteger();
+
+    /**
+     * Vergleicht Dateinamen numerisch, wenn beide mit einer Zahl beginnen (2.xml vor 10.xml)
+     */
+    static final Comparator<String> NAMEN_REIHENFOLGE = (nameA, nameB) -> {
+        String zahlA = nameA.replaceAll("^(\\d*).*$", "$1");
+        String zahlB = nameB.replaceAll("^(\\d*).*$", "$1");
+        if (!zahlA.isEmpty() && !zahlB.isEmpty() && zahlA.length() != zahlB.length()) {
+            return Integer.compare(zahlA.length(), zahlB.length());
+        }
+        return nameA.compareTo(nameB);
+    };
+
+    private static final Comparator<File> DATEI_REIHENFOLGE = Comparator.comparing(File::getName, NAMEN_REIHENFOLGE);
+
+    /**
+     * Vergleicht Archiv-Einträge erst nach Ordner, dann nach Dateiname ("20/9.xml" vor "20/10.xml")
+     */
+    private static final Comparator<String> EINTRAG_REIHENFOLGE = Comparator
+            .comparing((String name) -> name.substring(0, name.lastIndexOf('/') + 1))
+            .thenComparing(name -> name.substring(name.lastIndexOf('/') + 1), NAMEN_REIHENFOLGE);
+
+    /**
+     * Aktuell veröffentlichter Stand
+     * Für mehrere Abfragen in einem Request einmal holen und weiter benutzen,
+     * dann sehen alle Abfragen dieselbe Version.
+     * @return der unveränderbare Stand
+     */
+    public KorpusStand getStand() { return stand; }
+
+    /**
+     * @return Pool der kanonischen Objekte (mit Anzahl der ersetzten Duplikate und gesparten Bytes)
+     */
+    public KorpusPool getPool() { return pool; }
+
+    /**
+     * Zuletzt fertig gezählter Speicherbericht
+     * Ist er älter als der veröffentlichte Stand, wird der Bericht für den neuesten Stand in einem eigenen Thread
+     * gezählt. Bis dahin wird der alte Bericht geliefert, der aufrufende Request läuft also nie selbst über den Korpus.
+     * @return der Bericht oder null, solange noch keiner fertig ist
+     */
+    public SpeicherBericht getSpeicherBericht() {
+        SpeicherBericht aktuell = speicherBericht;
+        if ((aktuell == null || aktuell.getVersion() < stand.getVersion()) && speicherBerichtLaeuft.compareAndSet(false, true)) {
+            Thread.ofPlatform().daemon().name("speicherbericht").start(() -> {
+                try {
+                    speicherBericht = new SpeicherBericht(stand);
+                } catch (RuntimeException e) {
+                    System.err.println("Memory report could not be computed: " + e.getMessage());
+                } finally {
+                    speicherBerichtLaeuft.set(false);
+                }
+            });
+        }
+        return aktuell;
+    }
+
+    /**
+     * @return true, solange die Indizes eines neuen Stands im Hintergrund gebaut werden (der alte Stand antwortet)
+     */
+    public boolean isIndexAufbauLaeuft() {
+        return indexAufbauLaeuft.get();
+    }
+
+    /**
+     * Konkordanz für /api/konkordanz, nur für den vollständig geladenen Korpus
+     * Ist sie älter als der veröffentlichte Stand, wird im Hintergrund die des neuesten Stands aufgebaut,
+     * bis dahin wird die vorherige geliefert (ihre Reden sind dann die der älteren Version).
+     * @return die Konkordanz oder null, solange noch keine fertig ist (oder der Aufbau fehlgeschlagen ist)
+     */
+    public Konkordanz getKonkordanz() {
+        Konkordanz aktuell = fertigeKonkordanz;
+        if (bereit) {
+            starteKonkordanz();
+        }
+        return aktuell;
+    }
+
+    /**
+     * @return die zuletzt fertige Konkordanz oder null (startet keinen Aufbau)
+     */
+    public Konkordanz konkordanzFallsVorhanden() {
+        return fertigeKonkordanz;
+    }
+
+    /**
+     * @return Version des Stands, aus dem die ausgelieferte Konkordanz gebaut wurde (0 = keine)
+     */
+    public long getKonkordanzVersion() {
+        Konkordanz aktuell = fertigeKonkordanz;
+        return aktuell != null ? aktuell.getVersion() : 0;
+    }
+
+    /**
+     * @return true, solange ein Suffix-Array im Hintergrund aufgebaut wird
+     */
+    public boolean isKonkordanzImAufbau() {
+        return konkordanzLaeuft.get();
+    }
+
+    /**
+     * @return Fehlermeldung, wenn der letzte Aufbau der Konkordanz fehlgeschlagen ist, sonst null
+     */
+    public String getKonkordanzFehler() {
+        return konkordanzFehler;
+    }
+
+    /**
+     * Startet den Aufbau der Konkordanz, wenn sie älter als der veröffentlichte Stand ist und kein Aufbau läuft
+     */
+    private void starteKonkordanz() {
+        if (konkordanzVersion < stand.getVersion() && konkordanzLaeuft.compareAndSet(false, true)) {
+            Thread.ofPlatform().daemon().name("konkordanz").start(this::baueKonkordanz);
+        }
+    }
+
+    /**
+     * Baut die Konkordanz für den neuesten Stand auf
+     * Wird währenddessen ein neuerer Stand veröffentlicht, wird der Aufbau abgebrochen und mit dem neuesten wiederholt.
+     */
+    private void baueKonkordanz() {
+        try {
+            KorpusStand ziel;
+            while ((ziel = stand).getVersion() > konkordanzVersion) {
+                long start = System.currentTimeMillis();
+                KorpusStand aufbau = ziel;
+                try {
+                    Konkordanz neu = new Konkordanz(aufbau.getAlleRede(), aufbau.getVersion(), () -> stand != aufbau);
+                    fertigeKonkordanz = neu;
+                    konkordanzFehler = null;
+                    System.out.println("Concordance (version " + aufbau.getVersion() + "): " + neu.getAnzahlZeichen()
+                            + " characters, suffix array built in " + (System.currentTimeMillis() - start) + " ms");
+                } catch (CancellationException e) {
+                    System.out.println("Concordance for version " + aufbau.getVersion() + " abandoned, a newer version was published");
+                    continue;
+                } catch (RuntimeException | OutOfMemoryError e) {
+                    konkordanzFehler = e.getMessage() != null ? e.getMessage() : e.toString();
+                    System.err.println("Concordance could not be built: " + konkordanzFehler);
+                }
+                konkordanzVersion = aufbau.getVersion();
+            }
+        } finally {
+            konkordanzLaeuft.set(false);
+        }
+        // Eine Veröffentlichung zwischen Schleifenende und Freigabe hätte keinen Aufbau gestartet
+        if (konkordanz && bereit) {
+            starteKonkordanz();
+        }
+    }
+
+    // Getter (liefern den aktuell veröffentlichten, nicht veränderbaren Stand)
+    public List<Rede> getAlleRede() { return stand.getAlleRede(); }
+    public Set<Redner> getAlleRedner() { return stand.getAlleRedner(); }
+    public Set<Sitzung> getAlleSitzung() { return stand.getAlleSitzung(); }
+    public Set<Fraktion> getAlleFraktion() { return stand.getAlleFraktion(); }
+    public Set<Kommentar> getAlleKommentar() { return stand.getAlleKommentar(); }
+
+    // Abfragen auf dem aktuellen Stand (siehe KorpusStand)
+    public Redner getRednerById(String id) { return stand.getRednerById(id); }
+    public Rede getRedeById(String id) { return stand.getRedeById(id); }
+    public Sitzung getSitzungById(String id) { return stand.getSitzungById(id); }
+    public List<String> getWahlperioden() { return stand.getWahlperioden(); }
+    public WahlperiodePartition getPartition(String wahlperiode) { return stand.getPartition(wahlperiode); }
+    public List<WahlperiodePartition> getPartitionen(String wahlperiode) { return stand.getPartitionen(wahlperiode); }
+
+    public List<Rede> filterReden(String wahlperiode, String rednerId, String fraktion, String sitzungId) {
+        return stand.filterReden(wahlperiode, rednerId, fraktion, sitzungId);
+    }
+
+    public int zaehleReden(String wahlperiode, String rednerId, String fraktion, String sitzungId) {
+        return stand.zaehleReden(wahlperiode, rednerId, fraktion, sitzungId);
+    }
+
+    public List<Rede> sucheReden(String wahlperiode, Predicate<Rede> filter) {
+        return stand.sucheReden(wahlperiode, filter);
+    }
+
+    /**
+     * ID einer Sitzung aus Wahlperiode und Sitzungsnummer
+     * @param sitzung die Sitzung
+     * @return z.B. "20_1"
+     */
+    public static String sitzungId(Sitzung sitzung) {
+        return sitzung.getWahlperiode() + "_" + sitzung.getSitzungNr();
+    }
+
+    /**
+     * Setzt die Anzahl der Threads für das parallele Einlesen der XML-Dateien
+     * @param ingestThreads Anzahl Threads, 1 bedeutet sequentiell
+     */
+    public void setIngestThreads(int ingestThreads) {
+        this.ingestThreads = Math.max(1, ingestThreads);
+    }
+
+    /**
+     * Setzt den Pool-Typ für das Einlesen ("forkjoin", "virtual" oder "sequential")
+     * @param ingestExecutor Name des Pool-Typs
+     */
+    public void setIngestExecutor(String ingestExecutor) {
+        this.ingestExecutor = ingestExecutor != null ? ingestExecutor.trim().toLowerCase() : "forkjoin";
+    }
 
     /**
-     * Lädt und verarbeitet XML-Daten aus einem angegebenen Ordner
-     * @param folderPath
+     * Setzt den XML-Parser für das Einlesen ("stax" oder "dom")
+     * @param ingestParser Name des Parsers
      */
-    public void loadXML(String folderPath) {
+    public void setIngestParser(String ingestParser) {
+        this.ingestParser = ingestParser != null ? ingestParser.trim().toLowerCase() : "stax";
+    }
+
+    /**
+     * Setzt nach wie vielen Dateien der Zwischenstand beim Laden veröffentlicht wird
+     * @param publishBatch Anzahl Dateien pro Batch
+     */
+    public void setPublishBatch(int publishBatch) {
+        this.publishBatch = Math.max(1, publishBatch);
+    }
+
+    /**
+     * Schaltet die komprimierte Speicherung der Redetexte ein oder aus (gilt für neu übernommene Reden)
+     * Länge und Wortanzahl bleiben ohne Entpacken abrufbar, der Text wird erst bei getText() entpackt.
+     * @param textKomprimierung true = Texte komprimiert speichern
+     */
+    public void setTextKomprimierung(boolean textKomprimierung) {
+        this.textKomprimierung = textKomprimierung;
+    }
+
+    /**
+     * Speichert die Texte von Reden und Kommentaren in einer gemappten Datei außerhalb des Heaps
+     * Hat Vorrang vor der Komprimierung. Kann die Datei nicht angelegt werden, bleiben die Texte auf dem Heap.
+     * @param datei Pfad der Blob-Datei (wird neu angelegt), null schaltet den Blob-Store ab
+     */
+    public void setTextBlobDatei(String datei) {
+        if (datei == null) {
+            this.textBlobStore = null;
+            pool.setKommentarTexte(true);
+            return;
+        }
+        try {
+            this.textBlobStore = new TextBlobStore(datei);
+            pool.setKommentarTexte(false);
+        } catch (IOException e) {
+            System.err.println("Text blob store could not be created: " + e.getMessage());
+            this.textBlobStore = null;
+        }
+    }
+
+    /**
+     * Baut nach dem Laden und nach jeder späteren Veröffentlichung die Konkordanz (Suffix-Array über alle Redetexte)
+     * im Hintergrund auf. Ohne diese Einstellung wird sie erst beim Zugriff angestoßen (siehe getKonkordanz).
+     * @param konkordanz true = direkt nach dem Laden aufbauen
+     */
+    public void setKonkordanz(boolean konkordanz) {
+        this.konkordanz = konkordanz;
+    }
+
+    /**
+     * @return der Kompressor dieser Factory mit dem Cache für entpackte Texte
+     */
+    public TextKompressor getTextKompressor() {
+        return textKompressor;
+    }
+
+    /**
+     * @return der Blob-Store für Texte oder null, wenn die Texte auf dem Heap liegen
+     */
+    public TextBlobStore getTextBlobStore() {
+        return textBlobStore;
+    }
+
+    /**
+     * Prüft ob das Einlesen abgeschlossen ist
+     * @return true, wenn loadXML fertig ist
+     */
+    public boolean isBereit() {
+        return bereit;
+    }
+
+    /**
+     * @return Anzahl der Dateien, die beim aktuellen Laden eingelesen werden
+     */
+    public int getDateienGesamt() {
+        return dateienGesamt.get();
+    }
+
+    /**
+     * @return Anzahl der Dateien, die bereits zusammengeführt wurden
+     */
+    public int getDateienGeladen() {
+        return dateienGeladen.get();
+    }
+
+    /**
+     * Schätzt die restliche Ladezeit aus der bisherigen Zeit pro Datei
+     * @return geschätzte Sekunden bis zum Ende des Ladens, mindestens 1
+     */
+    public long schaetzeRestzeitSekunden() {
+        int geladen = dateienGeladen.get();
+        int gesamt = dateienGesamt.get();
+        if (bereit) return 0;
+        if (geladen == 0 || gesamt <= geladen) return 5;
+        long vergangen = System.currentTimeMillis() - ladeStart;
+        return Math.max(1, vergangen * (gesamt - geladen) / geladen / 1000);
+    }
+
+    /**
+     * Setzt den Ordner für den binären Snapshot der geladenen Daten
+     * @param snapshotVerzeichnis Ordner für Snapshot-Dateien, null schaltet den Snapshot ab
+     */
+    public void setSnapshotVerzeichnis(String snapshotVerzeichnis) {
+        this.snapshotVerzeichnis = snapshotVerzeichnis;
+    }
+
+    /**
+     * Setzt den Ordner für den Parse-Cache (Ergebnisse pro Datei, Schlüssel ist der Inhalts-Hash)
+     * @param cacheVerzeichnis Ordner für Cache-Dateien, null schaltet den Cache ab
+     */
+    public void setParseCacheVerzeichnis(String cacheVerzeichnis) {
+        this.parseCache = cacheVerzeichnis != null ? new ParseCacheHelper(cacheVerzeichnis) : null;
+    }
+
+    /**
+     * Lädt und verarbeitet XML-Daten aus einem angegebenen Ordner oder Archiv (.zip, .tar.gz)
+     * Während des Ladens wird der Zwischenstand alle publishBatch Dateien veröffentlicht,
+     * die Daten können also schon abgefragt werden (siehe isBereit).
+     * Mehrere Ordner (z.B. einer pro Wahlperiode) werden nacheinander in die gleiche Factory geladen.
+     * @param folderPaths Ordner mit XML-Dateien oder Pfade zu Archiven
+     */
+    public void loadXML(String... folderPaths) {
+        bereit = false;
+        ladeStart = System.currentTimeMillis();
+        dateienGesamt.set(0);
+        dateienGeladen.set(0);
+        alleQuellenGehasht = true;
+        try {
+            for (String folderPath : folderPaths) {
+                ladeKorpus(folderPath);
+            }
+            raeumeParseCacheAuf();
+            // Spaltenspeicher für die Statistiken, Datums-, Namens-, Kommentar- und Volltextindex einmal nach dem Laden aufbauen, nicht beim ersten Request
+            stand.getMetriken();
+            stand.getDatumIndex();
+            stand.getRednerPrefixIndex();
+            stand.getRednerSuche();
+            stand.getKommentarIndex();
+            long indexStart = System.currentTimeMillis();
+            VolltextIndex volltext = stand.getVolltextIndex();
+            System.out.println("Full-text index: " + volltext.getAnzahlTerme() + " terms, " + volltext.getPostingBytes()
+                    + " posting bytes in " + (System.currentTimeMillis() - indexStart) + " ms");
+            System.out.println("Object pool: " + pool.bericht());
+            // Speicherbericht schon jetzt im Hintergrund zählen, nicht erst beim ersten Scrape
+            getSpeicherBericht();
+        } finally {
+            bereit = true;
+        }
+        if (konkordanz) {
+            // Läuft in einem eigenen Thread weiter, die Daten gelten trotzdem schon als geladen
+            starteKonkordanz();
+        }
+    }
+
+    /**
+     * Lädt Ordner oder Archiv: Snapshot, sonst Parsen aller Dateien
+     * @param folderPath Ordner mit XML-Dateien oder Pfad zu einem Archiv
+     */
+    private void ladeKorpus(String folderPath) {
         File folder = new File(folderPath);
 
+        // Archive werden direkt gelesen, ohne sie auf die Festplatte auszupacken
+        boolean archiv = folder.isFile() && ArchivHelper.istArchiv(folder.getName());
+
         // Überprüfe ob der Ordner existiert und gültig ist
-        if (!folder.exists() || !folder.isDirectory()) {
+        if (!folder.exists() || (!folder.isDirectory() && !archiv)) {
             System.out.println("Folder not found: " + folderPath);
+            alleQuellenGehasht = false;
             return;
         }
 
+        File[] files;
+        if (archiv) {
+            files = new File[]{folder};
+            System.out.println("Reading archive " + folder.getName());
+        } else {
+            // Finde alle XML-Dateien im Ordner
+            files = folder.listFiles((dir, name) -> name.toLowerCase().endsWith(".xml"));
+            if (files == null) {
+                System.out.println("No XML files in folder: " + folderPath);
+                alleQuellenGehasht = false;
+                return;
+            }
 
-        // Finde alle XML-Dateien im Ordner
-        File[] files = folder.listFiles((dir, name) -> name.toLowerCase().endsWith(".xml"));
-        if (files == null) {
-            System.out.println("No XML files in folder: " + folderPath);
-            return;
+            // Feste Reihenfolge (1.xml, 2.xml, ... 10.xml), damit das Ergebnis immer gleich ist
+            Arrays.sort(files, DATEI_REIHENFOLGE);
+            dateienGesamt.addAndGet(files.length);
+            System.out.println("Founded " + files.length + " XML files");
         }
+        long start = System.currentTimeMillis();
+
+        // Größe und Änderungszeit vor dem Lesen festhalten: eine Datei, die sich während des Ladens ändert,
+        // passt danach nicht mehr und wird vom Watcher erneut eingelesen
+        Map<File, String> dateiStempel = dateiStempel(files);
 
-        System.out.println("Founded " + files.length + " XML files");
+        // Snapshot benutzen, wenn er zu den aktuellen Dateien passt
+        Path snapshot = snapshotVerzeichnis != null ? SnapshotHelper.snapshotDatei(snapshotVerzeichnis, folder) : null;
+        String fingerprint = null;
+        if (snapshot != null) {
+            fingerprint = SnapshotHelper.fingerprint(files);
+            Map<String, List<Rede>> snapshotReden = SnapshotHelper.ladeSnapshot(snapshot, fingerprint);
+            if (snapshotReden != null) {
+                alleQuellenGehasht = false;
+                // Ein Ordner hat seine Dateien oben schon gezählt, ein Archiv erst hier
+                if (archiv) {
+                    dateienGesamt.addAndGet(snapshotReden.size());
+                }
+                snapshotReden.forEach(this::mergeReden);
+                dateienGeladen.addAndGet(snapshotReden.size());
+                merkeDateiStand(dateiStempel);
+                publiziere();
+                System.out.println("Snapshot loaded in " + (System.currentTimeMillis() - start) + " ms: " + snapshot);
+                return;
+            }
+        }
 
-        // Verarbeite jede XML Datei
-        XMLHelper xmlHelper = new XMLHelper();
+        Map<String, List<Rede>> geladen = new LinkedHashMap<>();
+        cacheTreffer.set(0);
+        parseFehler.set(0);
+        boolean sequentiell = ingestThreads <= 1 || "sequential".equals(ingestExecutor);
+        ExecutorService pool = erstelleIngestPool(sequentiell);
+        try {
+            if (!archiv) {
+                geladen = ladeDateien(files, pool);
+            } else if (ArchivHelper.istZip(folder.getName())) {
+                geladen = ladeZip(folder, pool);
+            } else {
+                geladen = ladeTarGz(folder, pool);
+            }
+        } catch (IOException e) {
+            System.err.println(" !! Error reading archive !! : " + folder.getName() + " (" + e.getMessage() + ")");
+            snapshot = null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Loading XML interrupted");
+            snapshot = null;
+        } finally {
+            pool.shutdownNow();
+        }
+        merkeDateiStand(dateiStempel);
+        publiziere();
+
+        System.out.println(geladen.size() + " XML files loaded in " + (System.currentTimeMillis() - start) + " ms ("
+                + ingestParser + ", " + (sequentiell ? "sequential" : ingestExecutor + ", " + ingestThreads + " threads") + ")");
+        if (parseCache != null) {
+            System.out.println("Parse cache: " + cacheTreffer.get() + " of " + geladen.size() + " files unchanged");
+        }
+
+        // Ein Snapshot mit fehlenden Dateien würde beim nächsten Start trotzdem zum Fingerprint passen
+        if (snapshot != null && parseFehler.get() > 0) {
+            System.err.println(parseFehler.get() + " files could not be parsed, snapshot not written: " + snapshot);
+            try {
+                Files.deleteIfExists(snapshot);
+            } catch (IOException e) {
+                System.err.println("Old snapshot could not be deleted: " + e.getMessage());
+            }
+            snapshot = null;
+        }
+
+        // Snapshot für den nächsten Start schreiben
+        if (snapshot != null) {
+            try {
+                SnapshotHelper.schreibeSnapshot(snapshot, fingerprint, geladen);
+                System.out.println("Snapshot written: " + snapshot);
+            } catch (IOException e) {
+                System.err.println("Snapshot could not be written: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Parst alle Dateien eines Ordners im Pool, jede Datei mit eigenem Parser.
+     * @param files sortierte XML-Dateien
+     * @param pool Pool für die Parsing-Aufgaben
+     * @return alle zusammengeführten Reden pro Quelle in Dateireihenfolge
+     */
+    private Map<String, List<Rede>> ladeDateien(File[] files, ExecutorService pool) throws InterruptedException {
+        List<String> quellen = new ArrayList<>(files.length);
+        List<Future<List<Rede>>> ergebnisse = new ArrayList<>(files.length);
         for (File file : files) {
-            parseXMLFile(file, xmlHelper);
+            quellen.add(quelleName(file));
+            ergebnisse.add(pool.submit(() -> parseXMLFile(file)));
         }
+        return mergeInReihenfolge(quellen, ergebnisse);
+    }
+
+    /**
+     * Parst alle XML-Einträge eines ZIP-Archivs parallel
+     * Jeder Eintrag wird beim Parsen direkt aus dem Archiv entpackt.
+     * @param archiv die ZIP-Datei
+     * @param pool Pool für die Parsing-Aufgaben
+     * @return alle zusammengeführten Reden pro Eintrag in Namensreihenfolge
+     */
+    private Map<String, List<Rede>> ladeZip(File archiv, ExecutorService pool) throws IOException, InterruptedException {
+        try (ZipFile zip = new ZipFile(archiv)) {
+            List<? extends ZipEntry> eintraege = zip.stream()
+                    .filter(eintrag -> !eintrag.isDirectory() && ArchivHelper.istXmlEintrag(eintrag.getName()))
+                    .sorted(Comparator.comparing(ZipEntry::getName, EINTRAG_REIHENFOLGE))
+                    .toList();
+            dateienGesamt.addAndGet(eintraege.size());
+            System.out.println("Founded " + eintraege.size() + " XML files in " + archiv.getName());
+
+            List<String> quellen = new ArrayList<>(eintraege.size());
+            List<Future<List<Rede>>> ergebnisse = new ArrayList<>(eintraege.size());
+            for (ZipEntry eintrag : eintraege) {
+                String quelle = archiv.getName() + "!/" + eintrag.getName();
+                quellen.add(quelle);
+                ergebnisse.add(pool.submit(() -> {
+                    try (InputStream in = zip.getInputStream(eintrag)) {
+                        return parseStream(quelle, in);
+                    }
+                }));
+            }
+            // Der Merge wartet auf alle Aufgaben, danach darf das Archiv geschlossen werden
+            return mergeInReihenfolge(quellen, ergebnisse);
+        }
+    }
+
+    /**
+     * Parst alle XML-Einträge eines .tar.gz Archivs
+     * Das Entpacken läuft nacheinander im aufrufenden Thread, das Parsen parallel im Pool.
+     * Ein Semaphore begrenzt, wie viele entpackte Einträge gleichzeitig im Speicher liegen.
+     * @param archiv die .tar.gz Datei
+     * @param pool Pool für die Parsing-Aufgaben
+     * @return alle zusammengeführten Reden pro Eintrag in Namensreihenfolge
+     */
+    private Map<String, List<Rede>> ladeTarGz(File archiv, ExecutorService pool) throws IOException, InterruptedException {
+        Semaphore imSpeicher = new Semaphore(Math.max(2, ingestThreads * 2));
+        Map<String, Future<List<Rede>>> ergebnisse = new TreeMap<>(EINTRAG_REIHENFOLGE);
+
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(archiv), 1 << 16), 1 << 16)) {
+            ArchivHelper.TarLeser tar = new ArchivHelper.TarLeser(in);
+            String name;
+            while ((name = tar.naechsterEintrag()) != null) {
+                if (!ArchivHelper.istXmlEintrag(name)) continue;
+
+                imSpeicher.acquire();
+                dateienGesamt.incrementAndGet();
+                byte[] inhalt = tar.leseInhalt();
+                String quelle = archiv.getName() + "!/" + name;
+                ergebnisse.put(quelle, pool.submit(() -> {
+                    try {
+                        return parseStream(quelle, new ByteArrayInputStream(inhalt));
+                    } finally {
+                        imSpeicher.release();
+                    }
+                }));
+            }
+        }
+        System.out.println("Founded " + ergebnisse.size() + " XML files in " + archiv.getName());
+        return mergeInReihenfolge(new ArrayList<>(ergebnisse.keySet()), new ArrayList<>(ergebnisse.values()));
+    }
+
+    /**
+     * Wartet auf die Parse-Ergebnisse und führt sie in der angegebenen Reihenfolge zusammen.
+     * Dadurch ist die Deduplizierung unabhängig davon, welcher Thread zuerst fertig ist.
+     * Nach jeweils publishBatch Dateien wird der Zwischenstand veröffentlicht, immer mit ganzen Dateien.
+     * @param quellen Namen der Quellen in Merge-Reihenfolge
+     * @param ergebnisse Parse-Aufgaben in der gleichen Reihenfolge
+     * @return alle zusammengeführten Reden pro Quelle
+     */
+    private Map<String, List<Rede>> mergeInReihenfolge(List<String> quellen, List<Future<List<Rede>>> ergebnisse)
+            throws InterruptedException {
+        Map<String, List<Rede>> geladen = new LinkedHashMap<>();
+        for (int i = 0; i < quellen.size(); i++) {
+            try {
+                List<Rede> reden = ergebnisse.get(i).get();
+                mergeReden(quellen.get(i), reden);
+                geladen.put(quellen.get(i), reden);
+            } catch (ExecutionException e) {
+                System.err.println(" !! Error parsing file !! : " + quellen.get(i));
+                e.getCause().printStackTrace();
+                merkeFehler(quellen.get(i));
+            }
+            if (dateienGeladen.incrementAndGet() % publishBatch == 0) {
+                publiziere();
+            }
+        }
+        return geladen;
+    }
+
+    /**
+     * Erstellt den Thread-Pool für das Einlesen.
+     * Bei virtuellen Threads begrenzt ein Semaphore wie viele Dateien gleichzeitig geparst werden,
+     * sonst liegen alle Dateien gleichzeitig im Speicher.
+     * @param sequentiell true, wenn nur ein Thread benutzt werden soll
+     * @return ExecutorService für die Parsing-Aufgaben
+     */
+    private ExecutorService erstelleIngestPool(boolean sequentiell) {
+        if (sequentiell) {
+            return Executors.newSingleThreadExecutor();
+        }
+        if ("virtual".equals(ingestExecutor)) {
+            Semaphore limit = new Semaphore(ingestThreads);
+            ThreadFactory virtuell = Thread.ofVirtual().name("xml-ingest-", 0).factory();
+            return Executors.newThreadPerTaskExecutor(runnable -> virtuell.newThread(() -> {
+                limit.acquireUninterruptibly();
+                try {
+                    runnable.run();
+                } finally {
+                    limit.release();
+                }
+            }));
+        }
+        return new ForkJoinPool(ingestThreads);
     }
 
     /**
      * Liest eine einzelne XML-Datei ein und holt alle enthaltenen Reden.
+     * Die Methode verändert die Factory nicht und kann daher parallel aufgerufen werden.
      * @param file   die zu parsende XML-Datei
-     * @param xmlHelper XML Helper für Parsing
+     * @return alle gültigen Reden der Datei (mit Redner und Sitzung)
+     */
+    public List<Rede> parseXMLFile(File file) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+            return parseStream(quelleName(file), in);
+        } catch (IOException e) {
+            System.err.println(" !! Error parsing file !! : " + file.getName());
+            e.printStackTrace();
+            merkeFehler(quelleName(file));
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Liest ein Protokoll aus einem Stream (Datei oder Archiv-Eintrag) ein.
+     * Ist der Parse-Cache aktiv, werden unveränderte Inhalte aus dem Cache gelesen.
+     * @param quelle Name der Quelle für Fehlermeldungen und Cache
+     * @param in XML des Protokolls
+     * @return alle gültigen Reden (mit Redner und Sitzung)
      */
-    private void parseXMLFile(File file, XMLHelper xmlHelper) {
+    private List<Rede> parseStream(String quelle, InputStream in) {
         try {
+            List<Rede> reden;
+            if (parseCache == null) {
+                reden = parseProtokoll(in);
+            } else {
+                // Cache-Schlüssel ist der Hash des Inhalts
+                byte[] inhalt = in.readAllBytes();
+                String hash = SnapshotHelper.sha256(inhalt);
+                String alterHash = cacheHashProQuelle.put(quelle, hash);
+                if (alterHash != null && !alterHash.equals(hash) && !cacheHashProQuelle.containsValue(alterHash)) {
+                    // Die Datei wurde geändert, der Eintrag des alten Inhalts wird nicht mehr gebraucht
+                    parseCache.entferne(alterHash);
+                }
+                reden = parseCache.lade(hash);
+                if (reden != null) {
+                    cacheTreffer.incrementAndGet();
+                } else {
+                    reden = parseProtokoll(new ByteArrayInputStream(inhalt));
+                    parseCache.speichere(hash, quelle, reden);
+                }
+            }
+            fehlerhafteQuellen.remove(quelle);
+            return reden;
+        } catch (Exception e) {
+            System.err.println(" !! Error parsing file !! : " + quelle);
+            e.printStackTrace();
+            merkeFehler(quelle);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Merkt sich eine Quelle, die nicht geparst werden konnte
+     * @param quelle Name der Quelle (z.B. "20/1.xml")
+     */
+    /**
+     * Löscht nach dem Laden die Cache-Einträge, die zu keiner geladenen Datei mehr gehören
+     * Nur wenn alle Dateien gehasht und fehlerfrei geparst wurden: die Dateien eines Ordners aus dem Snapshot
+     * sind nicht gehasht und ihre Einträge werden gebraucht, sobald der Snapshot veraltet.
+     */
+    private void raeumeParseCacheAuf() {
+        if (parseCache == null || !alleQuellenGehasht || !fehlerhafteQuellen.isEmpty()) return;
+        int geloescht = parseCache.raeumeAuf(new HashSet<>(cacheHashProQuelle.values()));
+        if (geloescht > 0) {
+            System.out.println("Parse cache: " + geloescht + " unused entries deleted");
+        }
+    }
+
+    private void merkeFehler(String quelle) {
+        fehlerhafteQuellen.add(quelle);
+        parseFehler.incrementAndGet();
+    }
+
+    /**
+     * Parst ein Protokoll mit dem eingestellten Parser (StAX oder DOM)
+     * @param in XML des Protokolls
+     * @return alle gültigen Reden (mit Redner und Sitzung)
+     * @throws Exception bei ungültigem XML
+     */
+    private List<Rede> parseProtokoll(InputStream in) throws Exception {
+        return gueltigeReden("dom".equals(ingestParser) ?
+                parseProtokollDom(in, new XMLHelper()) : new StaxXMLHelper().parseProtokoll(in));
+    }
+
+    /**
+     * Nur Reden mit Redner und Sitzung
+     */
+    private static List<Rede> gueltigeReden(List<Rede> alle) {
+        List<Rede> reden = new ArrayList<>();
+        for (Rede rede : alle) {
+            if (rede != null && rede.getRedner() != null && rede.getSitzung() != null) {
+                reden.add(rede);
+            }
+        }
+        return reden;
+    }
+
+    /**
+     * Liest ein Protokoll über den DOM-Baum ein (alter Weg, über ingest.parser=dom wählbar)
+     * @param in XML des Protokolls
+     * @param xmlHelper XML Helper für Parsing (pro Datei bzw. Thread eine eigene Instanz)
+     * @return alle Reden im Sitzungsverlauf
+     * @throws Exception bei ungültigem XML
+     */
+    private List<Rede> parseProtokollDom(InputStream in, XMLHelper xmlHelper) throws Exception {
+        List<Rede> reden = new ArrayList<>();
+
+        // Cache zurücksetzen für neue Datei
+        xmlHelper.resetCache();
+
+        // Dokument erstellen und normalize (externe DTD wird nicht gebraucht)
+        // Die Protokolle haben eine DOCTYPE-Zeile, daher werden statt der ganzen Deklaration externe Entitäten
+        // verboten: eine im internen Subset deklarierte Entität darf keine Datei oder URL nachladen (XXE)
+        javax.xml.parsers.DocumentBuilderFactory documentFactory = javax.xml.parsers.DocumentBuilderFactory.newInstance();
+        documentFactory.setFeature(javax.xml.XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        documentFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        documentFactory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+        documentFactory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+        documentFactory.setXIncludeAware(false);
+        documentFactory.setExpandEntityReferences(false);
+        org.w3c.dom.Document doc = documentFactory.newDocumentBuilder().parse(in);
+        doc.getDocumentElement().normalize();
+
+        // Finde den Sitzungsverlauf im Dokument
+        Element root = doc.getDocumentElement();
+        Element sitzungsverlauf = (Element) root.getElementsByTagName("sitzungsverlauf").item(0);
+        if (sitzungsverlauf == null) return reden;
+
+        // Finde alle Rede Elemente
+        NodeList redeElements = sitzungsverlauf.getElementsByTagName("rede");
+
+        // Parsing Rede Element mit XML Helper
+        for (int i = 0; i < redeElements.getLength(); i++) {
+            Element redeElement = (Element) redeElements.item(i);
+            reden.add(xmlHelper.parseRede(redeElement, root));
+        }
+        return reden;
+    }
+
+    /**
+     * Liest eine einzelne (neue oder geänderte) XML-Datei ein, während die Daten weiter gelesen werden.
+     * Reden aus einer früheren Version der Datei werden ersetzt.
+     * @param file die XML-Datei
+     * @return true, wenn die Datei neu eingelesen wurde, false wenn sie unverändert war oder nicht geparst werden konnte
+     */
+    public boolean ladeDatei(File file) {
+        return ladeGeaenderteDateien(List.of(file)) > 0;
+    }
+
+    /**
+     * Liest neue oder geänderte XML-Dateien ein (z.B. alle Änderungen, die der Watcher gesammelt hat)
+     * und veröffentlicht sie zusammen als eine neue Version. Reden aus früheren Versionen der Dateien werden ersetzt,
+     * unveränderte und fehlerhafte Dateien übersprungen (bei einem Fehler bleiben die alten Reden der Datei).
+     * @param files die XML-Dateien
+     * @return Anzahl der neu eingelesenen Dateien
+     */
+    public int ladeGeaenderteDateien(List<File> files) {
+        long start = System.currentTimeMillis();
+        Map<String, List<Rede>> quellen = new LinkedHashMap<>();
+        Map<File, String> stempel = new LinkedHashMap<>();
+        for (File file : files) {
+            String wert = stempel(file);
+            if (wert.equals(dateiStand.get(file.getAbsolutePath()))) continue;
+
+            List<Rede> reden = parseXMLFile(file);
+            if (fehlerhafteQuellen.contains(quelleName(file))) {
+                // Alte Reden der Datei behalten, beim nächsten Ändern wird es erneut versucht
+                continue;
+            }
+            quellen.put(quelleName(file), reden);
+            stempel.put(file, wert);
+        }
+        if (quellen.isEmpty()) {
+            return 0;
+        }
+        long geparst = System.currentTimeMillis();
+
+        synchronized (this) {
+            mergeReden(quellen);
+            publiziere();
+        }
+        stempel.forEach((file, wert) -> dateiStand.put(file.getAbsolutePath(), wert));
 
-            // Cache zurücksetzen für neue Datei
-            xmlHelper.resetCache();
+        long ende = System.currentTimeMillis();
+        int anzahlReden = quellen.values().stream().mapToInt(List::size).sum();
+        System.out.println("Incremental load " + String.join(", ", quellen.keySet()) + ": " + anzahlReden + " Reden in "
+                + (ende - start) + " ms (parse " + (geparst - start) + " ms, merge " + (ende - geparst) + " ms)");
+        return quellen.size();
+    }
 
-            // Dokument erstellen und normalize
-            javax.xml.parsers.DocumentBuilder builder =
-                    javax.xml.parsers.DocumentBuilderFactory.newInstance().newDocumentBuilder();
-            org.w3c.dom.Document doc = builder.parse(file);
-            doc.getDocumentElement().normalize();
+    /**
+     * Liest ein hochgeladenes Protokoll direkt aus dem Stream ein und übernimmt es in die laufenden Daten.
+     * Für mehrere Protokolle eines Uploads parseUpload und uebernehmeProtokolle benutzen, damit sie zusammen
+     * als eine Version veröffentlicht werden.
+     * @param name Name des Uploads (z.B. Dateiname), nur für die Ausgabe
+     * @param in XML des Protokolls
+     * @return die übernommenen Reden
+     * @throws Exception bei ungültigem XML
+     */
+    public List<Rede> ladeProtokoll(String name, InputStream in) throws Exception {
+        List<Rede> reden = parseUpload(in);
+        uebernehmeProtokolle(List.of(reden));
+        return reden;
+    }
 
-            // Finde den Sitzungsverlauf im Dokument
-            Element root = doc.getDocumentElement();
-            Element sitzungsverlauf = (Element) root.getElementsByTagName("sitzungsverlauf").item(0);
-            if (sitzungsverlauf == null) return;
+    /**
+     * Liest ein hochgeladenes Protokoll direkt aus dem Stream, ohne es zu übernehmen.
+     * Der Stream wird beim Parsen gelesen und nicht vorher komplett gepuffert.
+     * Uploads kommen aus dem Netz und werden unabhängig von ingest.parser immer mit dem StAX-Parser gelesen,
+     * der weder DTDs noch externe Entitäten verarbeitet.
+     * Die Methode verändert die Factory nicht und kann daher parallel aufgerufen werden.
+     * @param in XML des Protokolls
+     * @return alle gültigen Reden (mit Redner und Sitzung)
+     * @throws Exception bei ungültigem XML
+     */
+    public List<Rede> parseUpload(InputStream in) throws Exception {
+        return gueltigeReden(new StaxXMLHelper().parseProtokoll(in));
+    }
 
-            // Finde alle Rede Elemente
-            NodeList redeElements = sitzungsverlauf.getElementsByTagName("rede");
+    /**
+     * Übernimmt die Protokolle eines Uploads in die laufenden Daten und veröffentlicht sie zusammen als eine Version,
+     * Leser sehen also nie einen halb übernommenen Upload.
+     * Die Quelle ist die Sitzung (Wahlperiode und Sitzungsnummer): ist die Sitzung schon geladen, aus dem Ordner
+     * oder durch einen früheren Upload unter beliebigem Namen, werden deren Reden ersetzt statt verdoppelt.
+     * Enthält ein Upload dieselbe Sitzung mehrmals, gilt das letzte Protokoll.
+     * @param protokolle Reden pro Protokoll (siehe parseUpload), leere Protokolle werden übersprungen
+     * @return der neue Stand (nach dem ersten Laden erst veröffentlicht, wenn seine Indizes gebaut sind)
+     */
+    public KorpusStand uebernehmeProtokolle(List<List<Rede>> protokolle) {
+        long start = System.currentTimeMillis();
+        Map<String, List<Rede>> quellen = new LinkedHashMap<>();
+        KorpusStand neu;
+        synchronized (this) {
+            for (List<Rede> reden : protokolle) {
+                if (reden.isEmpty()) continue;
+                quellen.put(quelleFuerSitzung(sitzungId(reden.get(0).getSitzung())), reden);
+            }
+            if (quellen.isEmpty()) {
+                return stand;
+            }
+            mergeReden(quellen);
+            neu = publiziere();
+        }
 
-            // Parsing Rede Element mit XML Helper
-            for (int i = 0; i < redeElements.getLength(); i++) {
-                Element redeElement = (Element) redeElements.item(i);
+        int anzahlReden = quellen.values().stream().mapToInt(List::size).sum();
+        System.out.println("Upload as " + String.join(", ", quellen.keySet()) + ": " + anzahlReden + " Reden merged in "
+                + (System.currentTimeMillis() - start) + " ms, version " + neu.getVersion());
+        return neu;
+    }
 
-                Rede rede = xmlHelper.parseRede(redeElement, root);
+    /**
+     * Quelle, unter der eine Sitzung schon geladen ist (ein Protokoll enthält genau eine Sitzung)
+     * @param sitzungId z.B. "20_1"
+     * @return die vorhandene Quelle (z.B. "20/1.xml") oder "upload/20_1" für eine neue Sitzung
+     */
+    private synchronized String quelleFuerSitzung(String sitzungId) {
+        for (Map.Entry<String, List<Rede>> eintrag : redenProQuelle.entrySet()) {
+            List<Rede> reden = eintrag.getValue();
+            if (!reden.isEmpty() && sitzungId.equals(sitzungId(reden.get(0).getSitzung()))) {
+                return eintrag.getKey();
+            }
+        }
+        return "upload/" + sitzungId;
+    }
 
-                // Dedupliziere Redner und speichere alle Objekte
-                // Duplizieren vermeiden
-                if (rede != null && rede.getRedner() != null && rede.getSitzung() != null) {
-                    Redner dedupRedner = deduplicateRedner(rede.getRedner());
-                    Sitzung sitzung = rede.getSitzung();
+    /**
+     * Übernimmt die geparsten Reden einer Quelle in den Arbeitsstand.
+     * Wurde die Quelle schon einmal geladen, werden ihre alten Reden vorher entfernt.
+     * @param quelle Name der Quelle (z.B. "20/1.xml")
+     * @param reden Reden einer Datei
+     */
+    private void mergeReden(String quelle, List<Rede> reden) {
+        mergeReden(Map.of(quelle, reden));
+    }
 
-                    alleRede.add(rede);
-                    alleSitzung.add(sitzung);
-                    alleKommentar.addAll(rede.getKommentar());
+    /**
+     * Übernimmt die geparsten Reden mehrerer Quellen in den Arbeitsstand (Quellen in der Reihenfolge der Map).
+     * Werden dabei Quellen ersetzt, wird der Arbeitsstand nur einmal neu aufgebaut.
+     * @param quellen Name der Quelle (z.B. "20/1.xml") -> Reden der Datei
+     */
+    private synchronized void mergeReden(Map<String, List<Rede>> quellen) {
+        boolean ersetzt = false;
+        for (Map.Entry<String, List<Rede>> eintrag : quellen.entrySet()) {
+            // Redner, Fraktionen, Sitzungen und Strings gegen die kanonischen Objekte tauschen
+            for (Rede rede : eintrag.getValue()) {
+                pool.uebernehme(rede);
+                if (textBlobStore != null) {
+                    speichereTexte(rede);
+                } else if (textKomprimierung) {
+                    rede.komprimiereText(textKompressor);
                 }
             }
+            ersetzt |= redenProQuelle.put(eintrag.getKey(), eintrag.getValue()) != null;
+        }
 
-        } catch (Exception e) {
-            System.err.println(" !! Error parsing file !! : " + file.getName());
-            e.printStackTrace();
+        if (ersetzt) {
+            // Geänderte Datei: Arbeitsstand in der alten Reihenfolge neu aufbauen
+            neuAufbauen();
+            return;
+        }
+
+        for (List<Rede> reden : quellen.values()) {
+            for (Rede rede : reden) {
+                uebernehmeRede(rede);
+            }
+        }
+    }
+
+    /**
+     * Schreibt Redetext und Kommentartexte in den Blob-Store (bei einem Fehler bleiben sie auf dem Heap)
+     */
+    private void speichereTexte(Rede rede) {
+        try {
+            rede.speichereText(textBlobStore);
+            for (Kommentar kommentar : rede.getKommentar()) {
+                kommentar.speichereText(textBlobStore);
+            }
+        } catch (IOException e) {
+            System.err.println("Text of Rede " + rede.getRid() + " could not be written to the blob store: " + e.getMessage());
         }
     }
 
+    /**
+     * Baut den Arbeitsstand aus allen Quellen neu auf (gleiche Deduplizierung wie beim Laden)
+     * Der Pool wird dabei aus den verbliebenen Reden neu aufgebaut, damit ersetzte Quellen nicht darin hängen bleiben.
+     */
+    private synchronized void neuAufbauen() {
+        pool.neuAufbauen(redenProQuelle.values());
+        alleRede = new ArrayList<>();
+        alleRedner = new HashSet<>();
+        alleSitzung = new HashSet<>();
+        alleFraktion = new HashSet<>();
+        alleKommentar = new HashSet<>();
+        rednerMap = new HashMap<>();
+        fraktionMap = new HashMap<>();
+
+        for (List<Rede> reden : redenProQuelle.values()) {
+            for (Rede rede : reden) {
+                uebernehmeRede(rede);
+            }
+        }
+    }
+
+    /**
+     * Übernimmt eine Rede mit Redner, Sitzung und Kommentaren in den Arbeitsstand
+     */
+    private void uebernehmeRede(Rede rede) {
+        // Dedupliziere Redner und speichere alle Objekte
+        // Duplizieren vermeiden
+        Redner dedupRedner = deduplicateRedner(rede.getRedner());
+        Sitzung sitzung = rede.getSitzung();
+
+        alleRede.add(rede);
+        alleSitzung.add(sitzung);
+        alleKommentar.addAll(rede.getKommentar());
+    }
+
+    /**
+     * Veröffentlicht den Arbeitsstand als neuen, unveränderbaren Stand mit der nächsten Version
+     * Sammlungen und Partitionen werden vollständig aufgebaut, bevor der Stand ersetzt wird.
+     * Nach dem ersten Laden (Watcher, Upload) wird der Stand erst ersetzt, wenn im Hintergrund auch Volltext-,
+     * Namens-, Datums- und Kommentarindex gebaut sind: bis dahin beantwortet der alte Stand die Requests,
+     * weder der Aufrufer noch der erste Request bauen einen Index.
+     * @return der neue Stand
+     */
+    private synchronized KorpusStand publiziere() {
+        KorpusStand neu = new KorpusStand(++version,
+                new ArrayList<>(alleRede),
+                new HashSet<>(alleRedner),
+                new HashSet<>(alleSitzung),
+                new HashSet<>(alleFraktion),
+                new HashSet<>(alleKommentar),
+                new HashMap<>(rednerMap),
+                new HashMap<>(fraktionMap));
+        if (!bereit) {
+            stand = neu;
+            return neu;
+        }
+        naechsterStand = neu;
+        if (indexAufbauLaeuft.compareAndSet(false, true)) {
+            Thread.ofPlatform().daemon().name("indexaufbau").start(this::baueIndizes);
+        }
+        return neu;
+    }
+
+    /**
+     * Baut die Indizes des neuesten Arbeitsstands und veröffentlicht ihn danach
+     * Kommt währenddessen ein neuerer Stand dazu, wird der fertige trotzdem veröffentlicht und danach der neueste gebaut.
+     */
+    private void baueIndizes() {
+        while (true) {
+            KorpusStand ziel;
+            synchronized (this) {
+                ziel = naechsterStand;
+                naechsterStand = null;
+                if (ziel == null) {
+                    // Freigabe im Lock: publiziere sieht entweder den laufenden Aufbau oder startet einen neuen
+                    indexAufbauLaeuft.set(false);
+                    return;
+                }
+            }
+
+            long start = System.currentTimeMillis();
+            try {
+                ziel.baueIndizes();
+            } catch (RuntimeException | OutOfMemoryError e) {
+                // Der Stand wird trotzdem veröffentlicht, fehlende Indizes entstehen dann beim ersten Zugriff
+                System.err.println("Indexes for version " + ziel.getVersion() + " could not be built: " + e.getMessage());
+            }
+            synchronized (this) {
+                if (ziel.getVersion() > stand.getVersion()) {
+                    stand = ziel;
+                }
+            }
+            System.out.println("Version " + ziel.getVersion() + " published, indexes built in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            if (konkordanz) {
+                starteKonkordanz();
+            }
+        }
+    }
+
+    /**
+     * Größe und Änderungszeit einer Datei, wie sie in dateiStand verglichen werden
+     */
+    private static String stempel(File file) {
+        return file.length() + "|" + file.lastModified();
+    }
+
+    /**
+     * Größe und Änderungszeit aller Dateien, vor dem Lesen geholt
+     */
+    private static Map<File, String> dateiStempel(File[] files) {
+        Map<File, String> stempel = new LinkedHashMap<>();
+        for (File file : files) {
+            stempel.put(file, stempel(file));
+        }
+        return stempel;
+    }
+
+    /**
+     * Merkt sich Größe und Änderungszeit der geladenen Dateien (nicht der fehlerhaften, die werden erneut versucht)
+     * @param stempel Stand der Dateien vor dem Lesen
+     */
+    private void merkeDateiStand(Map<File, String> stempel) {
+        stempel.forEach((file, wert) -> {
+            if (!fehlerhafteQuellen.contains(quelleName(file))) {
+                dateiStand.put(file.getAbsolutePath(), wert);
+            }
+        });
+    }
+
+    /**
+     * Name einer Quelle aus Ordner und Dateiname (z.B. "20/1.xml")
+     */
+    private static String quelleName(File file) {
+        File ordner = file.getAbsoluteFile().getParentFile();
+        return (ordner != null ? ordner.getName() + "/" : "") + file.getName();
+    }
 
     /**
      * Dedupliziert Redner Objekt anhand ihrer ID
@@ -148,7 +1217,7 @@ public class ObjectFactory {
                 }
             } else {
                 // Ohne Fraktion
-                Fraktion fraktionslos = new Fraktion("FRAKTIONSLOS");
+                Fraktion fraktionslos = pool.fraktion("FRAKTIONSLOS");
                 if (!fraktionMap.containsKey("FRAKTIONSLOS")) {
                     fraktionMap.put("FRAKTIONSLOS", fraktionslos);
                     alleFraktion.add(fraktionslos);
@@ -164,10 +1233,9 @@ public class ObjectFactory {
      * @return true, wenn keine Objekte vorhanden sind, false sonst
      */
     public boolean isEmpty() {
-        return alleRede.isEmpty() && alleRedner.isEmpty() &&
-                alleSitzung.isEmpty() && alleFraktion.isEmpty();
+        return stand.isEmpty();
     }
 
 
 
-}
+}
\ No newline at end of file
@@ -1,11 +1,15 @@
 package org.texttechnologylab.ppr.blatt3.data.redenportal;
 
 
+import org.texttechnologylab.ppr.blatt3.data.helper.TextBlobStore;
+import org.texttechnologylab.ppr.blatt3.data.helper.TextKompressor;
 import org.texttechnologylab.ppr.blatt3.data.interfaces.RedeIn;
 import org.json.JSONObject;
 import org.json.JSONArray;
 
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -21,6 +25,20 @@ public class Rede implements RedeIn {
     private String rid;
     private String text;
 
+    // Im komprimierten Modus ist text null und der Text liegt hier, entpackt wird über den Kompressor der Factory
+    private byte[] textKomprimiert;
+    private TextKompressor kompressor;
+    private int laenge;
+    private int woerter = -1;  // -1 = noch nicht gezählt
+
+    // Absätze als Bereiche im Text, null = ein Absatz über den ganzen Text
+    private Absaetze absaetze;
+
+    // Im Blob-Modus liegt der Text außerhalb des Heaps (siehe TextBlobStore)
+    private TextBlobStore textBlob;
+    private long blobOffset;
+    private int blobBytes;
+
     //Erstellt neue Rede
     public Rede(String id, Redner redner, Sitzung sitzung) {
         this.rid = id;
@@ -41,6 +59,15 @@ public class Rede implements RedeIn {
         return sitzung;
     }
 
+    // Redner und Sitzung werden beim Übernehmen gegen die Objekte aus dem KorpusPool getauscht
+    void setRedner(Redner redner) {
+        this.redner = redner;
+    }
+
+    void setSitzung(Sitzung sitzung) {
+        this.sitzung = sitzung;
+    }
+
     public List<Kommentar> getKommentar() {
         return kommentar;
     }
@@ -48,16 +75,84 @@ public class Rede implements RedeIn {
 
     //get und set für Text der Rede
     public String getText() {
+        if (textBlob != null) {
+            return textBlob.lese(blobOffset, blobBytes);
+        }
+        if (textKomprimiert != null) {
+            return kompressor.text(rid, textKomprimiert, laenge);
+        }
         return text;
     }
     public void setText(String text) {
         this.text = text;
+        this.textKomprimiert = null;
+        this.kompressor = null;
+        this.textBlob = null;
+        this.laenge = text != null ? text.length() : 0;
+        this.woerter = -1;
+        this.absaetze = null;
+    }
+
+    // Text mit Absätzen, wie ihn die Parser aus den p-Elementen zusammensetzen
+    public void setText(String text, Absaetze absaetze) {
+        setText(text);
+        this.absaetze = absaetze;
+    }
+
+    // Absätze der Rede (kein Bean-Getter, damit sie nicht in jedem JSON der Rede landen)
+    public Absaetze absaetze() {
+        return absaetze != null ? absaetze : Absaetze.ganzerText(laenge);
+    }
+
+    // Was vom Text auf dem Heap liegt, ohne zu entpacken oder zu lesen (für den SpeicherBericht)
+    String heapText() {
+        return text;
+    }
+
+    byte[] heapTextKomprimiert() {
+        return textKomprimiert;
+    }
+
+    Absaetze heapAbsaetze() {
+        return absaetze;
+    }
+
+    // Ersetzt den Text durch komprimierte Bytes, Länge und Wortanzahl bleiben ohne Entpacken abrufbar
+    void komprimiereText(TextKompressor kompressor) {
+        if (text == null) return;
+        woerter = RedenMetriken.zaehleWoerter(text);
+        textKomprimiert = TextKompressor.komprimiere(text);
+        this.kompressor = kompressor;
+        text = null;
+    }
+
+
+    // Schreibt den Text in den Blob-Store, auf dem Heap bleiben nur Offset, Länge und Wortanzahl
+    void speichereText(TextBlobStore store) throws IOException {
+        String aktuell = getText();
+        if (aktuell == null) return;
+        woerter = RedenMetriken.zaehleWoerter(aktuell);
+        byte[] daten = aktuell.getBytes(StandardCharsets.UTF_8);
+        blobOffset = store.schreibe(daten);
+        blobBytes = daten.length;
+        textBlob = store;
+        text = null;
+        textKomprimiert = null;
+        kompressor = null;
     }
 
 
     // Gesamtlänge aller Reden in Zeichen, wird in Aufgabe 4 benutzen
     public int getLaenge() {
-        return text != null ? text.length() : 0;
+        return laenge;
+    }
+
+    // Anzahl der Wörter (durch Leerraum getrennt), wird beim ersten Aufruf bzw. beim Komprimieren gezählt
+    public int getWoerter() {
+        if (woerter < 0) {
+            woerter = RedenMetriken.zaehleWoerter(text);
+        }
+        return woerter;
     }
 
 
@@ -78,7 +173,7 @@ public class Rede implements RedeIn {
                 "rid='" + rid + '\'' +
                 ", redner=" + (redner != null ? redner.getVorname() + " " + redner.getNachname() : "null") +
                 ", kommentare=" + kommentar.size() +
-                ", textLength=" + (text != null ? text.length() : 0) +
+                ", textLength=" + laenge +
                 '}' + "\n";
     }
 
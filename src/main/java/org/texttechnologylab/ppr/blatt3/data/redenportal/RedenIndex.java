@@ -0,0 +1,171 @@
+package org.texttechnologylab.ppr.blatt3.data.redenportal;
+
+import java.util.*;
+
+import static org.texttechnologylab.ppr.blatt3.data.helper.NormalizeFraktion.normalizeFraktion;
+
+/**
+ * Sekundärindizes für die Reden einer Wahlperiode
+ * Pro Redner, Fraktion und Sitzung gibt es eine aufsteigend sortierte Liste der Positionen (int)
+ * in der Redenliste. Gefilterte Abfragen schneiden diese Listen, statt alle Reden zu durchsuchen.
+ */
+public class RedenIndex {
+
+    private static final int[] LEER = new int[0];
+
+    private final List<Rede> reden;
+    private final Map<String, int[]> nachRedner;
+    private final Map<String, int[]> nachFraktion;
+    private final Map<String, int[]> nachSitzung;
+
+    /**
+     * Baut die Indizes über eine Redenliste auf
+     * @param reden Reden in Ladereihenfolge, die Positionen beziehen sich auf diese Liste
+     */
+    RedenIndex(List<Rede> reden) {
+        this.reden = reden;
+
+        Map<String, Positionen> redner = new HashMap<>();
+        Map<String, Positionen> fraktion = new HashMap<>();
+        Map<String, Positionen> sitzung = new HashMap<>();
+        for (int i = 0; i < reden.size(); i++) {
+            Rede rede = reden.get(i);
+            redner.computeIfAbsent(rede.getRedner().getId(), k -> new Positionen()).add(i);
+            if (rede.getRedner().getFraktion() != null) {
+                fraktion.computeIfAbsent(fraktionKey(rede.getRedner().getFraktion().getName()), k -> new Positionen()).add(i);
+            }
+            sitzung.computeIfAbsent(ObjectFactory.sitzungId(rede.getSitzung()), k -> new Positionen()).add(i);
+        }
+
+        this.nachRedner = fertig(redner);
+        this.nachFraktion = fertig(fraktion);
+        this.nachSitzung = fertig(sitzung);
+    }
+
+    /**
+     * Schlüssel für eine Fraktion: normalisierter Name, ohne Groß-/Kleinschreibung
+     * @param name Name der Fraktion wie im Protokoll oder in der Abfrage
+     * @return Schlüssel für den Index
+     */
+    public static String fraktionKey(String name) {
+        return normalizeFraktion(name).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Reden, die alle angegebenen Filter erfüllen (null = Filter nicht benutzt)
+     * @param rednerId ID des Redners
+     * @param fraktion Name der Fraktion
+     * @param sitzungId Sitzung, z.B. "20_1"
+     * @return passende Reden in Ladereihenfolge, ohne Filter alle Reden
+     */
+    public List<Rede> filter(String rednerId, String fraktion, String sitzungId) {
+        int[] positionen = positionen(rednerId, fraktion, sitzungId);
+        if (positionen == null) return reden;
+
+        List<Rede> treffer = new ArrayList<>(positionen.length);
+        for (int position : positionen) {
+            treffer.add(reden.get(position));
+        }
+        return treffer;
+    }
+
+    /**
+     * Anzahl der Reden, die alle angegebenen Filter erfüllen (null = Filter nicht benutzt)
+     */
+    public int anzahl(String rednerId, String fraktion, String sitzungId) {
+        int[] positionen = positionen(rednerId, fraktion, sitzungId);
+        return positionen == null ? reden.size() : positionen.length;
+    }
+
+    /**
+     * Schnittmenge der Positionslisten für die benutzten Filter
+     * @return sortierte Positionen oder null, wenn kein Filter benutzt wird
+     */
+    private int[] positionen(String rednerId, String fraktion, String sitzungId) {
+        List<int[]> listen = new ArrayList<>(3);
+        if (rednerId != null) listen.add(nachRedner.getOrDefault(rednerId, LEER));
+        if (fraktion != null) listen.add(nachFraktion.getOrDefault(fraktionKey(fraktion), LEER));
+        if (sitzungId != null) listen.add(nachSitzung.getOrDefault(sitzungId, LEER));
+        if (listen.isEmpty()) return null;
+        return schneide(listen);
+    }
+
+    /**
+     * Schneidet sortierte Listen: jede Position der kürzesten Liste wird in den anderen Listen
+     * per exponentieller Suche gesucht, der Aufwand hängt also von der kürzesten Liste ab
+     * @param listen aufsteigend sortierte Positionslisten
+     * @return Positionen, die in allen Listen vorkommen
+     */
+    static int[] schneide(List<int[]> listen) {
+        listen.sort(Comparator.comparingInt(liste -> liste.length));
+        int[] kleinste = listen.get(0);
+        if (listen.size() == 1) return kleinste;
+
+        int[] ergebnis = new int[kleinste.length];
+        int anzahl = 0;
+        int[] start = new int[listen.size()];
+
+        kandidaten:
+        for (int wert : kleinste) {
+            for (int i = 1; i < listen.size(); i++) {
+                int[] liste = listen.get(i);
+                int position = suche(liste, start[i], wert);
+                if (position >= liste.length) break kandidaten;  // keine weiteren Treffer möglich
+                start[i] = position;
+                if (liste[position] != wert) continue kandidaten;
+            }
+            ergebnis[anzahl++] = wert;
+        }
+        return Arrays.copyOf(ergebnis, anzahl);
+    }
+
+    /**
+     * Erste Position ab start, deren Wert >= wert ist (exponentielle, dann binäre Suche)
+     * @return Position oder liste.length, wenn es keine gibt
+     */
+    private static int suche(int[] liste, int start, int wert) {
+        int unten = start;
+        int oben = start;
+        int schritt = 1;
+        while (oben < liste.length && liste[oben] < wert) {
+            unten = oben + 1;
+            oben += schritt;
+            schritt <<= 1;
+        }
+        oben = Math.min(oben, liste.length);
+        while (unten < oben) {
+            int mitte = (unten + oben) >>> 1;
+            if (liste[mitte] < wert) {
+                unten = mitte + 1;
+            } else {
+                oben = mitte;
+            }
+        }
+        return unten;
+    }
+
+    private static Map<String, int[]> fertig(Map<String, Positionen> positionen) {
+        Map<String, int[]> ergebnis = new HashMap<>(positionen.size() * 2);
+        positionen.forEach((key, liste) -> ergebnis.put(key, liste.toArray()));
+        return ergebnis;
+    }
+
+    /**
+     * Wachsende int-Liste ohne Boxing
+     */
+    private static class Positionen {
+        private int[] werte = new int[4];
+        private int anzahl;
+
+        void add(int wert) {
+            if (anzahl == werte.length) {
+                werte = Arrays.copyOf(werte, anzahl * 2);
+            }
+            werte[anzahl++] = wert;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(werte, anzahl);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package org.texttechnologylab.ppr.blatt3.data.redenportal;
+
+import java.util.*;
+
+/**
+ * Spaltenspeicher mit Kennzahlen aller Reden eines KorpusStands
+ * Pro Rede gibt es einen Eintrag an derselben Position in parallelen int-Arrays (Redner, Fraktion,
+ * Sitzung als Ordinalzahl, Datum als Epochentag, Textlänge, Wortanzahl, Kommentaranzahl).
+ * Summen, Durchschnitte und Gruppierungen laufen in einfachen Schleifen über die Arrays,
+ * ohne die Rede-Objekte anzufassen und ohne Objekte pro Rede zu erzeugen.
+ */
+public class RedenMetriken {
+
+    /** Ordinalzahl für "keine Fraktion" bzw. Epochentag für "kein Datum" */
+    public static final int KEINE = -1;
+
+    /** Spalten mit Werten */
+    public enum Spalte { LAENGE, WOERTER, KOMMENTARE }
+
+    /** Spalten mit Ordinalzahlen, nach denen gruppiert werden kann */
+    public enum Gruppe { REDNER, FRAKTION, SITZUNG }
+
+    private final int anzahl;
+
+    private final int[] redner;
+    private final int[] fraktion;
+    private final int[] sitzung;
+    private final int[] tag;
+    private final int[] laenge;
+    private final int[] woerter;
+    private final int[] kommentare;
+
+    // Namen der Ordinalzahlen
+    private final String[] rednerIds;
+    private final String[] fraktionNamen;
+    private final String[] sitzungIds;
+
+    /**
+     * Baut die Spalten über eine Redenliste auf
+     * @param reden Reden in Ladereihenfolge, die Positionen beziehen sich auf diese Liste
+     */
+    RedenMetriken(List<Rede> reden) {
+        this.anzahl = reden.size();
+        this.redner = new int[anzahl];
+        this.fraktion = new int[anzahl];
+        this.sitzung = new int[anzahl];
+        this.tag = new int[anzahl];
+        this.laenge = new int[anzahl];
+        this.woerter = new int[anzahl];
+        this.kommentare = new int[anzahl];
+
+        Map<String, Integer> rednerOrdinal = new HashMap<>();
+        Map<String, Integer> fraktionOrdinal = new HashMap<>();
+        Map<String, Integer> sitzungOrdinal = new HashMap<>();
+
+        for (int i = 0; i < anzahl; i++) {
+            Rede rede = reden.get(i);
+            redner[i] = ordinal(rednerOrdinal, rede.getRedner().getId());
+
+            // Fraktion wie in der Statistik: ohne Fraktion keine Gruppe, ohne Namen "Fraktionslos"
+            Fraktion f = rede.getRedner().getFraktion();
+            if (f == null) {
+                fraktion[i] = KEINE;
+            } else {
+                fraktion[i] = ordinal(fraktionOrdinal, f.getName() != null ? f.getName() : "Fraktionslos");
+            }
+
+            Sitzung s = rede.getSitzung();
+            sitzung[i] = ordinal(sitzungOrdinal, ObjectFactory.sitzungId(s));
+            tag[i] = s.getSitzungDatum() != null ? DatumIndex.epochentag(s.getSitzungDatum()) : KEINE;
+
+            laenge[i] = rede.getLaenge();
+            woerter[i] = rede.getWoerter();
+            kommentare[i] = rede.getKommentar().size();
+        }
+
+        this.rednerIds = namen(rednerOrdinal);
+        this.fraktionNamen = namen(fraktionOrdinal);
+        this.sitzungIds = namen(sitzungOrdinal);
+    }
+
+    /**
+     * @return Anzahl der Reden (Zeilen)
+     */
+    public int getAnzahl() { return anzahl; }
+
+    /**
+     * Summe einer Spalte über alle Reden
+     * @param spalte z.B. Spalte.KOMMENTARE
+     * @return Summe
+     */
+    public long summe(Spalte spalte) {
+        int[] werte = werte(spalte);
+        long summe = 0;
+        for (int i = 0; i < anzahl; i++) {
+            summe += werte[i];
+        }
+        return summe;
+    }
+
+    /**
+     * Durchschnitt einer Spalte über alle Reden
+     * @param spalte z.B. Spalte.LAENGE
+     * @return Durchschnitt oder 0, wenn es keine Reden gibt
+     */
+    public double durchschnitt(Spalte spalte) {
+        return anzahl == 0 ? 0.0 : (double) summe(spalte) / anzahl;
+    }
+
+    /**
+     * Anzahl der Reden pro Gruppe
+     * @param gruppe z.B. Gruppe.FRAKTION
+     * @return Anzahl pro Ordinalzahl (Reden ohne Gruppe werden nicht gezählt)
+     */
+    public int[] anzahlProGruppe(Gruppe gruppe) {
+        int[] ordinale = ordinale(gruppe);
+        // Platz 0 sammelt die Reden ohne Gruppe (KEINE), dadurch braucht die Schleife keine Abfrage
+        int[] ergebnis = new int[namen(gruppe).length + 1];
+        for (int i = 0; i < anzahl; i++) {
+            ergebnis[ordinale[i] + 1]++;
+        }
+        return Arrays.copyOfRange(ergebnis, 1, ergebnis.length);
+    }
+
+    /**
+     * Summe einer Spalte pro Gruppe
+     * @param gruppe z.B. Gruppe.REDNER
+     * @param spalte z.B. Spalte.WOERTER
+     * @return Summe pro Ordinalzahl (Reden ohne Gruppe werden nicht gezählt)
+     */
+    public long[] summeProGruppe(Gruppe gruppe, Spalte spalte) {
+        int[] ordinale = ordinale(gruppe);
+        int[] werte = werte(spalte);
+        long[] ergebnis = new long[namen(gruppe).length + 1];
+        for (int i = 0; i < anzahl; i++) {
+            ergebnis[ordinale[i] + 1] += werte[i];
+        }
+        return Arrays.copyOfRange(ergebnis, 1, ergebnis.length);
+    }
+
+    /**
+     * Anzahl der Reden pro Gruppe als Map (für JSON-Antworten)
+     * @param gruppe z.B. Gruppe.FRAKTION
+     * @return Name der Gruppe -> Anzahl der Reden
+     */
+    public Map<String, Long> anzahlProGruppeMap(Gruppe gruppe) {
+        int[] anzahlen = anzahlProGruppe(gruppe);
+        String[] namen = namen(gruppe);
+        Map<String, Long> ergebnis = new HashMap<>(namen.length * 2);
+        for (int o = 0; o < namen.length; o++) {
+            ergebnis.put(namen[o], (long) anzahlen[o]);
+        }
+        return ergebnis;
+    }
+
+    /**
+     * Name einer Ordinalzahl
+     * @param gruppe z.B. Gruppe.REDNER
+     * @param ordinal Ordinalzahl aus anzahlProGruppe / summeProGruppe
+     * @return Redner-ID, Fraktionsname oder Sitzungs-ID ("20_1")
+     */
+    public String name(Gruppe gruppe, int ordinal) {
+        return namen(gruppe)[ordinal];
+    }
+
+    /**
+     * @return Anzahl der verschiedenen Werte einer Gruppe
+     */
+    public int anzahlGruppen(Gruppe gruppe) {
+        return namen(gruppe).length;
+    }
+
+    /**
+     * Epochentag (LocalDate.toEpochDay) der Sitzung einer Rede
+     * @param position Position in der Redenliste
+     * @return Tag oder KEINE, wenn die Sitzung kein Datum hat
+     */
+    public int tag(int position) {
+        return tag[position];
+    }
+
+    private int[] werte(Spalte spalte) {
+        return switch (spalte) {
+            case LAENGE -> laenge;
+            case WOERTER -> woerter;
+            case KOMMENTARE -> kommentare;
+        };
+    }
+
+    private int[] ordinale(Gruppe gruppe) {
+        return switch (gruppe) {
+            case REDNER -> redner;
+            case FRAKTION -> fraktion;
+            case SITZUNG -> sitzung;
+        };
+    }
+
+    private String[] namen(Gruppe gruppe) {
+        return switch (gruppe) {
+            case REDNER -> rednerIds;
+            case FRAKTION -> fraktionNamen;
+            case SITZUNG -> sitzungIds;
+        };
+    }
+
+    private static int ordinal(Map<String, Integer> ordinale, String name) {
+        Integer vorhanden = ordinale.get(name);
+        if (vorhanden != null) return vorhanden;
+        int neu = ordinale.size();
+        ordinale.put(name, neu);
+        return neu;
+    }
+
+    private static String[] namen(Map<String, Integer> ordinale) {
+        String[] namen = new String[ordinale.size()];
+        ordinale.forEach((name, o) -> namen[o] = name);
+        return namen;
+    }
+
+    /**
+     * Zählt durch Leerraum getrennte Wörter, ohne den Text zu zerlegen
+     * @param text Text der Rede (darf null sein)
+     * @return Anzahl der Wörter
+     */
+    static int zaehleWoerter(String text) {
+        if (text == null) return 0;
+        int woerter = 0;
+        boolean imWort = false;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                imWort = false;
+            } else if (!imWort) {
+                imWort = true;
+                woerter++;
+            }
+        }
+        return woerter;
+    }
+}
@@ -0,0 +1,133 @@
+package org.texttechnologylab.ppr.blatt3.data.redenportal;
+
+import org.texttechnologylab.ppr.blatt3.data.helper.Tokenizer;
+
+import java.util.*;
+
+/**
+ * Präfixindex über die Namen der Redner für die Vorschläge beim Tippen
+ * Pro Redner werden Vorname, Nachname, "Vorname Nachname" und jedes einzelne Namenswort normalisiert
+ * (klein, Umlaute gefaltet, siehe Tokenizer) und in ein sortiertes Array gelegt. Eine Abfrage sucht den
+ * ersten Schlüssel mit dem Präfix per binärer Suche und liest dann nur die passenden Schlüssel der Reihe nach.
+ */
+public class RednerPrefixIndex {
+
+    private final String[] schluessel;  // sortiert
+    private final Redner[] redner;      // redner[i] gehört zu schluessel[i]
+
+    /**
+     * Baut den Index auf
+     * @param alleRedner die (deduplizierten) Redner
+     */
+    RednerPrefixIndex(Collection<Redner> alleRedner) {
+        List<Map.Entry<String, Redner>> eintraege = new ArrayList<>();
+        for (Redner r : alleRedner) {
+            Set<String> namen = new LinkedHashSet<>();
+            String vorname = normalisiere(r.getVorname());
+            String nachname = normalisiere(r.getNachname());
+            namen.add(vorname);
+            namen.add(nachname);
+            namen.add((vorname + " " + nachname).trim());
+            for (String teil : (vorname + " " + nachname).split(" ")) {
+                namen.add(teil);
+            }
+            for (String name : namen) {
+                if (!name.isEmpty()) eintraege.add(Map.entry(name, r));
+            }
+        }
+        eintraege.sort(Map.Entry.comparingByKey());
+
+        this.schluessel = new String[eintraege.size()];
+        this.redner = new Redner[eintraege.size()];
+        for (int i = 0; i < eintraege.size(); i++) {
+            schluessel[i] = eintraege.get(i).getKey();
+            redner[i] = eintraege.get(i).getValue();
+        }
+    }
+
+    /**
+     * Redner, bei denen ein Namensschlüssel mit der Eingabe beginnt
+     * @param eingabe getippter Text, z.B. "olaf sch"
+     * @param limit höchstens so viele Redner
+     * @return passende Redner, alphabetisch nach dem passenden Schlüssel, ohne Doppelte
+     */
+    public List<Redner> vorschlaege(String eingabe, int limit) {
+        String praefix = normalisiere(eingabe);
+        if (praefix.isEmpty() || limit <= 0) return List.of();
+
+        List<Redner> ergebnis = new ArrayList<>(Math.min(limit, 16));
+        for (int i = untereGrenze(praefix); i < schluessel.length && schluessel[i].startsWith(praefix); i++) {
+            // Ein Redner kann über mehrere Schlüssel passen, die Liste ist klein genug für eine lineare Prüfung
+            if (!enthaelt(ergebnis, redner[i])) {
+                ergebnis.add(redner[i]);
+                if (ergebnis.size() == limit) break;
+            }
+        }
+        return ergebnis;
+    }
+
+    /**
+     * @return Anzahl der Schlüssel
+     */
+    public int getAnzahlSchluessel() {
+        return schluessel.length;
+    }
+
+    /**
+     * Geschätzter Heap des Index (Schlüssel und beide Arrays), für den SpeicherBericht
+     * @return Bytes
+     */
+    long geschaetzteBytes() {
+        long bytes = 2 * ((16L + 4L * schluessel.length + 7) & ~7L);
+        for (String s : schluessel) bytes += KorpusPool.groesse(s);
+        return bytes;
+    }
+
+    /**
+     * Normalisiert einen Namen oder eine Eingabe: Wörter wie im Tokenizer, mit einem Leerzeichen verbunden
+     * @param text Name (darf null sein)
+     * @return z.B. "olaf scholz" für "Olaf  Scholz"
+     */
+    static String normalisiere(String text) {
+        if (text == null) return "";
+        StringBuilder ergebnis = new StringBuilder(text.length() + 2);
+        boolean leerzeichen = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                leerzeichen = ergebnis.length() > 0;
+            } else if (Character.isLetterOrDigit(c)) {
+                if (leerzeichen) {
+                    ergebnis.append(' ');
+                    leerzeichen = false;
+                }
+                Tokenizer.falte(Character.toLowerCase(c), ergebnis);
+            }
+        }
+        return ergebnis.toString();
+    }
+
+    /**
+     * Binäre Suche: erste Position mit schluessel[i] >= praefix
+     */
+    private int untereGrenze(String praefix) {
+        int links = 0;
+        int rechts = schluessel.length;
+        while (links < rechts) {
+            int mitte = (links + rechts) >>> 1;
+            if (schluessel[mitte].compareTo(praefix) < 0) {
+                links = mitte + 1;
+            } else {
+                rechts = mitte;
+            }
+        }
+        return links;
+    }
+
+    private static boolean enthaelt(List<Redner> liste, Redner r) {
+        for (Redner vorhanden : liste) {
+            if (vorhanden == r) return true;
+        }
+        return false;
+    }
+}
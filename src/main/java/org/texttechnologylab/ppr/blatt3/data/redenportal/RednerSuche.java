@@ -0,0 +1,221 @@
+package org.texttechnologylab.ppr.blatt3.data.redenportal;
+
+import java.util.*;
+
+/**
+ * Fehlertolerante Namenssuche über die Redner
+ * Namen werden wie im Präfixindex normalisiert und zusätzlich werden "ae", "oe" und "ue" zu "a", "o" und "u",
+ * damit "Müller", "Mueller" und "Muller" gleich aussehen. Pro Schlüssel (voller Name, Vorname, Nachname,
+ * einzelne Namenswörter) werden die Trigramme von "$schluessel$" in Postinglisten abgelegt.
+ * Eine Suche zählt nur für die Trigramme der Anfrage, wie viele davon jeder Schlüssel enthält, prüft die
+ * Kandidaten mit genug gemeinsamen Trigrammen direkt (Teilstring) oder über die Levenshtein-Distanz und
+ * sortiert: gleich, Anfang, Teilstring, dann nach Distanz.
+ */
+public class RednerSuche {
+
+    // Trefferklassen, kleiner = besser
+    private static final int GLEICH = 0;
+    private static final int ANFANG = 1;
+    private static final int TEIL = 2;
+    private static final int AEHNLICH = 3;
+
+    private final String[] schluessel;
+    private final Redner[] redner;                 // redner[i] gehört zu schluessel[i]
+    private final Map<String, int[]> trigramme;    // Trigramm -> aufsteigende Schlüsselnummern
+
+    /**
+     * Treffer einer Suche
+     * @param redner der Redner
+     * @param schluessel der am besten passende Namensschlüssel
+     * @param distanz Levenshtein-Distanz zur Anfrage (0 bei Teilstring)
+     */
+    public record Treffer(Redner redner, String schluessel, int distanz) {}
+
+    /**
+     * Baut die Trigrammlisten auf
+     * @param alleRedner die (deduplizierten) Redner
+     */
+    RednerSuche(Collection<Redner> alleRedner) {
+        List<String> keys = new ArrayList<>();
+        List<Redner> besitzer = new ArrayList<>();
+        for (Redner r : alleRedner) {
+            String vorname = falte(r.getVorname());
+            String nachname = falte(r.getNachname());
+            Set<String> namen = new LinkedHashSet<>();
+            namen.add((vorname + " " + nachname).trim());
+            namen.add(vorname);
+            namen.add(nachname);
+            namen.addAll(Arrays.asList((vorname + " " + nachname).trim().split(" ")));
+            for (String name : namen) {
+                if (name.isEmpty()) continue;
+                keys.add(name);
+                besitzer.add(r);
+            }
+        }
+        this.schluessel = keys.toArray(new String[0]);
+        this.redner = besitzer.toArray(new Redner[0]);
+
+        Map<String, List<Integer>> listen = new HashMap<>();
+        for (int i = 0; i < schluessel.length; i++) {
+            for (String trigramm : trigramme(schluessel[i])) {
+                listen.computeIfAbsent(trigramm, t -> new ArrayList<>()).add(i);
+            }
+        }
+        this.trigramme = new HashMap<>(listen.size() * 2);
+        listen.forEach((trigramm, nummern) -> trigramme.put(trigramm, nummern.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    /**
+     * Sucht Redner mit einem Namen, der die Anfrage enthält oder ihr bis auf wenige Tippfehler gleicht
+     * @param anfrage Name oder Teil eines Namens
+     * @param limit höchstens so viele Redner
+     * @return Treffer, bester zuerst (pro Redner der beste Schlüssel)
+     */
+    public List<Treffer> suche(String anfrage, int limit) {
+        String q = falte(anfrage);
+        if (q.isEmpty() || limit <= 0) return List.of();
+        int maxDistanz = maxDistanz(q.length());
+
+        // Ein Tippfehler zerstört höchstens drei Trigramme, ein Teilstring verliert die zwei Randtrigramme
+        Set<String> qTrigramme = trigramme(q);
+        int schwelle = Math.max(1, qTrigramme.size() - Math.max(2, 3 * maxDistanz));
+
+        // Kandidaten: Schlüssel, die beim Zählen der gemeinsamen Trigramme die Schwelle erreichen.
+        // Kürzere Anfragen haben kein inneres Trigramm, dann wird jeder Schlüssel geprüft.
+        int[] kandidaten;
+        int anzahlKandidaten = 0;
+        if (q.length() < 3) {
+            kandidaten = new int[schluessel.length];
+            for (int i = 0; i < schluessel.length; i++) kandidaten[anzahlKandidaten++] = i;
+        } else {
+            kandidaten = new int[64];
+            int[] gemeinsam = new int[schluessel.length];
+            for (String trigramm : qTrigramme) {
+                int[] nummern = trigramme.get(trigramm);
+                if (nummern == null) continue;
+                for (int nummer : nummern) {
+                    if (++gemeinsam[nummer] == schwelle) {
+                        if (anzahlKandidaten == kandidaten.length) kandidaten = Arrays.copyOf(kandidaten, anzahlKandidaten * 2);
+                        kandidaten[anzahlKandidaten++] = nummer;
+                    }
+                }
+            }
+        }
+
+        Map<Redner, long[]> beste = new IdentityHashMap<>();  // Redner -> {Rang, Schlüsselnummer}
+        for (int k = 0; k < anzahlKandidaten; k++) {
+            int i = kandidaten[k];
+            String key = schluessel[i];
+            int klasse;
+            int distanz = 0;
+            if (key.equals(q)) {
+                klasse = GLEICH;
+            } else if (key.startsWith(q)) {
+                klasse = ANFANG;
+            } else if (key.contains(q)) {
+                klasse = TEIL;
+            } else {
+                distanz = levenshtein(q, key, maxDistanz);
+                if (distanz > maxDistanz) continue;
+                klasse = AEHNLICH;
+            }
+            long rang = (long) klasse << 8 | distanz;
+            long[] vorhanden = beste.get(redner[i]);
+            if (vorhanden == null || rang < vorhanden[0]) {
+                beste.put(redner[i], new long[]{rang, i});
+            }
+        }
+
+        List<long[]> sortiert = new ArrayList<>(beste.values());
+        sortiert.sort(Comparator.<long[]>comparingLong(e -> e[0])
+                .thenComparing(e -> name(redner[(int) e[1]])));
+        List<Treffer> ergebnis = new ArrayList<>(Math.min(limit, sortiert.size()));
+        for (long[] e : sortiert.subList(0, Math.min(limit, sortiert.size()))) {
+            int i = (int) e[1];
+            ergebnis.add(new Treffer(redner[i], schluessel[i], (int) (e[0] & 0xFF)));
+        }
+        return ergebnis;
+    }
+
+    /**
+     * @return Anzahl der Namensschlüssel
+     */
+    public int getAnzahlSchluessel() {
+        return schluessel.length;
+    }
+
+    /**
+     * Geschätzter Heap (Schlüssel, Trigrammlisten), für den SpeicherBericht
+     * @return Bytes
+     */
+    long geschaetzteBytes() {
+        long bytes = 2 * ((16L + 4L * schluessel.length + 7) & ~7L);
+        for (String s : schluessel) bytes += KorpusPool.groesse(s);
+        for (Map.Entry<String, int[]> e : trigramme.entrySet()) {
+            bytes += KorpusPool.groesse(e.getKey()) + SpeicherBericht.MAP_ENTRY_BYTES + ((16L + 4L * e.getValue().length + 7) & ~7L);
+        }
+        return bytes;
+    }
+
+    /**
+     * Erlaubte Tippfehler je nach Länge der Anfrage
+     */
+    private static int maxDistanz(int laenge) {
+        if (laenge <= 3) return 0;
+        if (laenge <= 6) return 1;
+        return 2;
+    }
+
+    /**
+     * Normalisiert einen Namen für die fehlertolerante Suche
+     * @param text Name (darf null sein)
+     * @return z.B. "muller" für "Müller", "Mueller" und "Muller"
+     */
+    static String falte(String text) {
+        String normal = RednerPrefixIndex.normalisiere(text);
+        if (normal.indexOf('e') < 0) return normal;
+        return normal.replace("ae", "a").replace("oe", "o").replace("ue", "u");
+    }
+
+    /**
+     * Trigramme von "$text$"
+     */
+    private static Set<String> trigramme(String text) {
+        String markiert = "$" + text + "$";
+        Set<String> ergebnis = new HashSet<>();
+        for (int i = 0; i + 3 <= markiert.length(); i++) {
+            ergebnis.add(markiert.substring(i, i + 3));
+        }
+        return ergebnis;
+    }
+
+    /**
+     * Levenshtein-Distanz mit Abbruch, sobald sie sicher größer als max ist
+     * @return die Distanz oder max + 1
+     */
+    static int levenshtein(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) return max + 1;
+        int[] vorher = new int[b.length() + 1];
+        int[] aktuell = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) vorher[j] = j;
+
+        for (int i = 1; i <= a.length(); i++) {
+            aktuell[0] = i;
+            int zeilenMinimum = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int kosten = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                aktuell[j] = Math.min(Math.min(aktuell[j - 1] + 1, vorher[j] + 1), vorher[j - 1] + kosten);
+                zeilenMinimum = Math.min(zeilenMinimum, aktuell[j]);
+            }
+            if (zeilenMinimum > max) return max + 1;
+            int[] tausch = vorher;
+            vorher = aktuell;
+            aktuell = tausch;
+        }
+        return Math.min(vorher[b.length()], max + 1);
+    }
+
+    private static String name(Redner r) {
+        return r.getNachname() + " " + r.getVorname();
+    }
+}
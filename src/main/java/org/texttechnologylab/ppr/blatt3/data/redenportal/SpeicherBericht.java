@@ -0,0 +1,306 @@
+package org.texttechnologylab.ppr.blatt3.data.redenportal;
+
+import java.util.*;
+
+/**
+ * Geschätzter Heap-Verbrauch eines KorpusStands
+ * Läuft einmal über alle Objekte des Stands und schätzt die belegten Bytes pro Typ (Reden, Redetexte,
+ * Absätze, Kommentare, Kommentartexte, Kommentarlisten der Reden, Redner, Fraktionen, Sitzungen, Indizes)
+ * und pro Wahlperiode. Jedes Objekt wird nur einmal gezählt (Identität), geteilte Objekte wie Redner
+ * oder gepoolte Strings beim ersten Typ, der sie erreicht. Dazu wird pro String-Kategorie gezählt,
+ * wie viele String-Objekte denselben Inhalt haben (Duplikate, die der KorpusPool zusammenlegen könnte).
+ * Die Größen sind Schätzungen für eine 64-Bit JVM mit komprimierten Referenzen, wie im KorpusPool.
+ * Der Durchlauf ist teuer und wird von der ObjectFactory im Hintergrund gemacht. Die Indizes zählen nicht zum
+ * Durchlauf, sie werden bei jeder Abfrage für den aktuellen Stand geschätzt (auch später fertige wie die Konkordanz).
+ * Texte im Blob-Store liegen außerhalb des Heaps und zählen nicht mit.
+ */
+public class SpeicherBericht {
+
+    // Geschätzte Objektgrößen: Header 12 Bytes + Felder, auf 8 gerundet
+    static final int REDE_BYTES = 72;
+    static final int KOMMENTAR_BYTES = 48;
+    static final int ABSAETZE_BYTES = 16;
+    static final int ARRAYLIST_BYTES = 24;
+    static final int DATE_BYTES = 24;
+    static final int LOCALTIME_BYTES = 24;
+    static final int MAP_ENTRY_BYTES = 32;
+
+    /** Typen in der Reihenfolge des Berichts */
+    public static final List<String> TYPEN = List.of("reden", "redeTexte", "absaetze", "kommentare", "kommentarTexte",
+            "kommentarListen", "redner", "fraktionen", "sitzungen", "indizes");
+
+    private final long version;
+    private final long dauerMillis;
+    private final Map<String, Long> bytesProTyp = new LinkedHashMap<>();
+    private final Map<String, Long> objekteProTyp = new LinkedHashMap<>();
+    private final Map<String, Long> bytesProWahlperiode = new LinkedHashMap<>();
+    private final Map<String, StringStatistik> strings = new LinkedHashMap<>();
+
+    // Bereits gezählte Objekte, nur während des Aufbaus
+    private Set<Object> gezaehlt = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Läuft über einen Stand und schätzt den Speicher
+     * @param stand der veröffentlichte Stand
+     */
+    SpeicherBericht(KorpusStand stand) {
+        long start = System.nanoTime();
+        this.version = stand.getVersion();
+        for (String typ : TYPEN) {
+            bytesProTyp.put(typ, 0L);
+            objekteProTyp.put(typ, 0L);
+        }
+        objekteProTyp.put("indizes", 1L);
+        for (String kategorie : List.of("redeIds", "redeTexte", "absatzKlassen", "kommentarTexte", "namen", "sitzungen")) {
+            strings.put(kategorie, new StringStatistik());
+        }
+
+        // Reden mit allem, was nur an ihnen hängt, pro Wahlperiode
+        for (WahlperiodePartition partition : stand.getPartitionen(null)) {
+            long vorher = summeRedenBytes();
+            for (Rede rede : partition.getReden()) {
+                zaehleRede(rede);
+            }
+            bytesProWahlperiode.put(partition.getWahlperiode(), summeRedenBytes() - vorher);
+        }
+
+        // Geteilte Objekte, die nicht über eine Rede erreicht wurden
+        for (Kommentar kommentar : stand.getAlleKommentar()) zaehleKommentar(kommentar);
+        for (Redner redner : stand.getAlleRedner()) zaehleRedner(redner);
+        for (Fraktion fraktion : stand.getAlleFraktion()) zaehleFraktion(fraktion);
+        for (Sitzung sitzung : stand.getAlleSitzung()) zaehleSitzung(sitzung);
+
+        gezaehlt = null;
+        strings.values().forEach(StringStatistik::abschliessen);
+        this.dauerMillis = (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private void zaehleRede(Rede rede) {
+        if (!gezaehlt.add(rede)) return;
+        add("reden", REDE_BYTES + string("redeIds", rede.getRid()));
+
+        // Text: als String, komprimiert oder (Blob) gar nicht auf dem Heap
+        if (rede.heapText() != null) {
+            add("redeTexte", string("redeTexte", rede.heapText()));
+        } else if (rede.heapTextKomprimiert() != null && gezaehlt.add(rede.heapTextKomprimiert())) {
+            add("redeTexte", array(rede.heapTextKomprimiert().length, 1));
+        }
+
+        Absaetze absaetze = rede.heapAbsaetze();
+        if (absaetze != null && gezaehlt.add(absaetze)) {
+            long bytes = ABSAETZE_BYTES + array(2 * absaetze.getAnzahl(), 4) + array(absaetze.getAnzahl(), 4);
+            for (int i = 0; i < absaetze.getAnzahl(); i++) {
+                bytes += string("absatzKlassen", absaetze.klasse(i));
+            }
+            add("absaetze", bytes);
+        }
+
+        // Rückverweise der Rede auf ihre Kommentare (Kommentar -> Rede steckt in der Kommentargröße)
+        List<Kommentar> kommentare = rede.getKommentar();
+        add("kommentarListen", ARRAYLIST_BYTES + array(kommentare.size(), 4));
+        for (Kommentar kommentar : kommentare) {
+            zaehleKommentar(kommentar);
+        }
+
+        zaehleRedner(rede.getRedner());
+        zaehleSitzung(rede.getSitzung());
+    }
+
+    private void zaehleKommentar(Kommentar kommentar) {
+        if (kommentar == null || !gezaehlt.add(kommentar)) return;
+        add("kommentare", KOMMENTAR_BYTES);
+        long text = string("kommentarTexte", kommentar.heapText());
+        if (text > 0) add("kommentarTexte", text);
+        zaehleRedner(kommentar.getRedner());
+        zaehleFraktion(kommentar.getFraktion());
+    }
+
+    private void zaehleRedner(Redner redner) {
+        if (redner == null || !gezaehlt.add(redner)) return;
+        add("redner", KorpusPool.REDNER_BYTES
+                + string("namen", redner.getId())
+                + string("namen", redner.getTitel())
+                + string("namen", redner.getVorname())
+                + string("namen", redner.getNachname()));
+        zaehleFraktion(redner.getFraktion());
+    }
+
+    private void zaehleFraktion(Fraktion fraktion) {
+        if (fraktion == null || !gezaehlt.add(fraktion)) return;
+        add("fraktionen", KorpusPool.FRAKTION_BYTES + string("namen", fraktion.getName()));
+    }
+
+    private void zaehleSitzung(Sitzung sitzung) {
+        if (sitzung == null || !gezaehlt.add(sitzung)) return;
+        long bytes = KorpusPool.SITZUNG_BYTES
+                + string("sitzungen", sitzung.getWahlperiode())
+                + string("sitzungen", sitzung.getSitzungNr())
+                + string("sitzungen", sitzung.getSitzungOrt());
+        if (sitzung.getSitzungDatum() != null && gezaehlt.add(sitzung.getSitzungDatum())) bytes += DATE_BYTES;
+        if (sitzung.getStartZeit() != null && gezaehlt.add(sitzung.getStartZeit())) bytes += LOCALTIME_BYTES;
+        if (sitzung.getEndZeit() != null && gezaehlt.add(sitzung.getEndZeit())) bytes += LOCALTIME_BYTES;
+        add("sitzungen", bytes);
+    }
+
+    /**
+     * Sammlungen und ID-Indizes des Stands (HashMap/HashSet: Tabelle + ein Eintrag pro Element),
+     * Partitionslisten und, falls schon aufgebaut, die Metrik-Spalten, der Datumsindex, der Volltextindex
+     * sowie Präfixindex und Trigramme der Rednernamen, der Kommentarindex und der Heap-Teil der Konkordanz
+     */
+    private static long indexBytes(KorpusStand stand, Konkordanz konkordanz) {
+        int reden = stand.getAlleRede().size();
+        long bytes = ARRAYLIST_BYTES + array(reden, 4);
+        bytes += hashMap(stand.getAlleRedner().size()) + hashMap(stand.getAlleSitzung().size())
+                + hashMap(stand.getAlleFraktion().size()) + hashMap(stand.getAlleKommentar().size());
+        bytes += hashMap(reden) + hashMap(stand.getAlleRedner().size()) + hashMap(stand.getAlleSitzung().size());
+        for (WahlperiodePartition partition : stand.getPartitionen(null)) {
+            bytes += ARRAYLIST_BYTES + array(partition.getReden().size(), 4);
+        }
+        if (stand.hatMetriken()) {
+            bytes += 7 * array(reden, 4);
+        }
+        if (stand.hatDatumIndex()) {
+            int sitzungen = stand.getDatumIndex().getAnzahlSitzungen();
+            bytes += array(reden, 4) + 2 * array(sitzungen, 4) + array(sitzungen + 1, 4);
+        }
+        VolltextIndex volltext = stand.volltextIndexFallsVorhanden();
+        if (volltext != null) {
+            bytes += volltext.geschaetzteBytes();
+        }
+        RednerPrefixIndex prefix = stand.rednerPrefixIndexFallsVorhanden();
+        if (prefix != null) {
+            bytes += prefix.geschaetzteBytes();
+        }
+        RednerSuche namen = stand.rednerSucheFallsVorhanden();
+        if (namen != null) {
+            bytes += namen.geschaetzteBytes();
+        }
+        KommentarIndex kommentare = stand.kommentarIndexFallsVorhanden();
+        if (kommentare != null) {
+            bytes += kommentare.geschaetzteBytes();
+        }
+        if (konkordanz != null) {
+            bytes += konkordanz.geschaetzteBytes();
+        }
+        return bytes;
+    }
+
+    private void add(String typ, long bytes) {
+        bytesProTyp.merge(typ, bytes, Long::sum);
+        objekteProTyp.merge(typ, 1L, Long::sum);
+    }
+
+    /**
+     * Zählt einen String für die Duplikat-Statistik
+     * @return Bytes des Strings, wenn er zum ersten Mal gezählt wird, sonst 0
+     */
+    private long string(String kategorie, String wert) {
+        if (wert == null) return 0;
+        StringStatistik statistik = strings.get(kategorie);
+        statistik.referenzen++;
+        if (!gezaehlt.add(wert)) return 0;
+
+        long bytes = KorpusPool.groesse(wert);
+        statistik.objekte++;
+        statistik.bytes += bytes;
+        if (!statistik.werte.add(wert)) {
+            statistik.duplikatBytes += bytes;
+        }
+        return bytes;
+    }
+
+    private long summeRedenBytes() {
+        return bytesProTyp.get("reden") + bytesProTyp.get("redeTexte") + bytesProTyp.get("absaetze")
+                + bytesProTyp.get("kommentare") + bytesProTyp.get("kommentarTexte") + bytesProTyp.get("kommentarListen");
+    }
+
+    private static long array(int laenge, int bytesProElement) {
+        return (16L + (long) laenge * bytesProElement + 7) & ~7L;
+    }
+
+    private static long hashMap(int eintraege) {
+        int tabelle = Integer.highestOneBit(Math.max(1, (int) (eintraege / 0.75f)) * 2 - 1);
+        return 48 + array(tabelle, 4) + (long) eintraege * MAP_ENTRY_BYTES;
+    }
+
+    /**
+     * Zähler pro String-Kategorie
+     */
+    public static class StringStatistik {
+        private long referenzen = 0;      // Felder, die auf einen String zeigen
+        private long objekte = 0;         // verschiedene String-Objekte (Identität)
+        private long bytes = 0;           // Bytes aller Objekte
+        private long duplikatBytes = 0;   // Bytes der weiteren Objekte mit gleichem Inhalt
+        private Set<String> werte = new HashSet<>();
+        private int anzahlWerte = -1;
+
+        public long getReferenzen() { return referenzen; }
+        public long getObjekte() { return objekte; }
+        public long getWerte() { return anzahlWerte >= 0 ? anzahlWerte : werte.size(); }
+        public long getDuplikatBytes() { return duplikatBytes; }
+        public long getBytes() { return bytes; }
+
+        /**
+         * @return Anteil der String-Objekte, die nur ein Duplikat eines anderen sind (0 = keine Duplikate)
+         */
+        public double getDuplikatAnteil() {
+            return objekte == 0 ? 0.0 : 1.0 - (double) getWerte() / objekte;
+        }
+
+        // Die Inhalte werden nach dem Zählen nicht mehr gebraucht
+        private void abschliessen() {
+            anzahlWerte = werte.size();
+            werte = null;
+        }
+    }
+
+    /**
+     * @return Version des gezählten Stands
+     */
+    public long getVersion() { return version; }
+
+    /**
+     * @return Dauer der Zählung in Millisekunden
+     */
+    public long getDauerMillis() { return dauerMillis; }
+
+    /**
+     * Geschätzte Bytes pro Typ (siehe TYPEN), die Indizes live für den übergebenen Stand
+     * @param stand aktueller Stand (darf neuer sein als die Version des Berichts)
+     * @param konkordanz die ausgelieferte Konkordanz (siehe ObjectFactory.getKonkordanz) oder null
+     * @return Typ -> Bytes
+     */
+    public Map<String, Long> getBytesProTyp(KorpusStand stand, Konkordanz konkordanz) {
+        Map<String, Long> bytes = new LinkedHashMap<>(bytesProTyp);
+        bytes.put("indizes", indexBytes(stand, konkordanz));
+        return bytes;
+    }
+
+    /**
+     * @return gezählte Objekte pro Typ
+     */
+    public Map<String, Long> getObjekteProTyp() { return Collections.unmodifiableMap(objekteProTyp); }
+
+    /**
+     * Bytes der Reden einer Wahlperiode mit Texten, Absätzen, Kommentaren und Kommentarlisten
+     * (Redner, Fraktionen und Sitzungen werden geteilt und nur pro Typ gezählt)
+     * @return Wahlperiode -> Bytes
+     */
+    public Map<String, Long> getBytesProWahlperiode() { return Collections.unmodifiableMap(bytesProWahlperiode); }
+
+    /**
+     * @return Duplikat-Statistik pro String-Kategorie
+     */
+    public Map<String, StringStatistik> getStrings() { return Collections.unmodifiableMap(strings); }
+
+    /**
+     * @param stand aktueller Stand für die Indizes (siehe getBytesProTyp)
+     * @param konkordanz die ausgelieferte Konkordanz oder null
+     * @return Summe aller Typen
+     */
+    public long getGesamtBytes(KorpusStand stand, Konkordanz konkordanz) {
+        long summe = 0;
+        for (long bytes : getBytesProTyp(stand, konkordanz).values()) summe += bytes;
+        return summe;
+    }
+}
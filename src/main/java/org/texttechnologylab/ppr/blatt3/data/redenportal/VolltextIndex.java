@@ -0,0 +1,246 @@
+package org.texttechnologylab.ppr.blatt3.data.redenportal;
+
+import org.texttechnologylab.ppr.blatt3.data.helper.Tokenizer;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Invertierter Index über die Redetexte mit BM25-Ranking
+ * Pro Term gibt es eine Postingliste mit den Positionen der Reden (in getAlleRede() des Stands) und der
+ * Häufigkeit des Terms in der Rede. Die Listen sind aufsteigend sortiert und als Varint-Bytes gespeichert:
+ * pro Eintrag der Abstand zur vorherigen Rede und die Häufigkeit, meist je ein Byte.
+ * Eine Suche dekodiert nur die Listen der Suchterme, summiert die BM25-Werte pro Rede und
+ * liefert die besten k Reden über einen Heap, ohne die Texte anzufassen.
+ */
+public class VolltextIndex {
+
+    // BM25-Parameter (übliche Standardwerte)
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Reden pro parallel zerlegtem Block beim Aufbau
+    private static final int BLOCK = 1024;
+
+    private final List<Rede> reden;
+    private final IdentityHashMap<Rede, Integer> positionen;
+
+    private final Map<String, Integer> termIds;
+    private final byte[][] postings;
+    private final int[] dokumentFrequenz;
+
+    private final int[] dokumentLaenge;  // Terme pro Rede
+    private final double durchschnittLaenge;
+
+    /**
+     * Treffer einer Suche
+     * @param rede die Rede
+     * @param score BM25-Wert (höher = relevanter)
+     */
+    public record Treffer(Rede rede, double score) {}
+
+    /**
+     * Ergebnis einer Suche
+     * @param anzahl Anzahl aller Reden, die mindestens einen Suchterm enthalten (nach Filter)
+     * @param treffer die besten Reden, absteigend nach Score
+     * @param terme die Suchterme nach der Zerlegung
+     */
+    public record Ergebnis(int anzahl, List<Treffer> treffer, List<String> terme) {}
+
+    /**
+     * Baut den Index über alle Reden auf (liest jeden Text einmal)
+     * Die Texte werden blockweise parallel zerlegt, die Postinglisten danach in Ladereihenfolge gefüllt.
+     * @param reden Reden in Ladereihenfolge, die Positionen beziehen sich auf diese Liste
+     */
+    VolltextIndex(List<Rede> reden) {
+        this.reden = reden;
+        this.positionen = new IdentityHashMap<>(reden.size() * 2);
+        this.dokumentLaenge = new int[reden.size()];
+
+        Map<String, Integer> ids = new HashMap<>();
+        List<PostingPuffer> puffer = new ArrayList<>();
+        long summeLaenge = 0;
+
+        for (int block = 0; block < reden.size(); block += BLOCK) {
+            int start = block;
+            List<Map<String, int[]>> zerlegt = IntStream.range(start, Math.min(start + BLOCK, reden.size()))
+                    .parallel()
+                    .mapToObj(pos -> haeufigkeiten(reden.get(pos)))
+                    .toList();
+
+            for (int i = 0; i < zerlegt.size(); i++) {
+                int pos = start + i;
+                positionen.put(reden.get(pos), pos);
+                for (Map.Entry<String, int[]> eintrag : zerlegt.get(i).entrySet()) {
+                    Integer id = ids.get(eintrag.getKey());
+                    if (id == null) {
+                        id = puffer.size();
+                        ids.put(eintrag.getKey(), id);
+                        puffer.add(new PostingPuffer());
+                    }
+                    puffer.get(id).add(pos, eintrag.getValue()[0]);
+                    dokumentLaenge[pos] += eintrag.getValue()[0];
+                }
+                summeLaenge += dokumentLaenge[pos];
+            }
+        }
+
+        this.termIds = ids;
+        this.postings = new byte[puffer.size()][];
+        this.dokumentFrequenz = new int[puffer.size()];
+        for (int id = 0; id < puffer.size(); id++) {
+            postings[id] = puffer.get(id).fertig();
+            dokumentFrequenz[id] = puffer.get(id).anzahl;
+        }
+        this.durchschnittLaenge = reden.isEmpty() ? 0.0 : (double) summeLaenge / reden.size();
+    }
+
+    /**
+     * Häufigkeit jedes Terms im Text einer Rede
+     */
+    private static Map<String, int[]> haeufigkeiten(Rede rede) {
+        Map<String, int[]> haeufigkeiten = new HashMap<>();
+        Tokenizer.terme(rede.getText(), term -> haeufigkeiten.computeIfAbsent(term, t -> new int[1])[0]++);
+        return haeufigkeiten;
+    }
+
+    /**
+     * Sucht die relevantesten Reden
+     * @param anfrage Suchtext, wird wie die Redetexte zerlegt
+     * @param erlaubt nur diese Reden berücksichtigen, null = alle
+     * @param k Anzahl der gewünschten Treffer
+     * @return Anzahl der Treffer und die besten k nach BM25
+     */
+    public Ergebnis suche(String anfrage, Collection<Rede> erlaubt, int k) {
+        Set<String> terme = new LinkedHashSet<>();
+        Tokenizer.terme(anfrage, terme::add);
+
+        BitSet filter = null;
+        if (erlaubt != null) {
+            filter = new BitSet(reden.size());
+            for (Rede rede : erlaubt) {
+                Integer pos = positionen.get(rede);
+                if (pos != null) filter.set(pos);
+            }
+        }
+
+        // Scores nur für Reden, die in einer der Postinglisten vorkommen
+        double[] scores = new double[reden.size()];
+        BitSet getroffen = new BitSet(reden.size());
+        int n = reden.size();
+        for (String term : terme) {
+            Integer id = termIds.get(term);
+            if (id == null) continue;
+
+            int df = dokumentFrequenz[id];
+            double idf = Math.log(1.0 + (n - df + 0.5) / (df + 0.5));
+            byte[] liste = postings[id];
+            int[] lesePosition = {0};
+            int pos = 0;
+            for (int i = 0; i < df; i++) {
+                pos += leseVarint(liste, lesePosition);
+                int tf = leseVarint(liste, lesePosition);
+                if (filter != null && !filter.get(pos)) continue;
+
+                double norm = K1 * (1 - B + B * dokumentLaenge[pos] / durchschnittLaenge);
+                scores[pos] += idf * tf * (K1 + 1) / (tf + norm);
+                getroffen.set(pos);
+            }
+        }
+
+        // Top-k über einen Min-Heap, bei gleichem Score gewinnt die früher geladene Rede
+        Comparator<Integer> reihenfolge = Comparator.<Integer>comparingDouble(pos -> scores[pos])
+                .thenComparing(Comparator.<Integer>naturalOrder().reversed());
+        PriorityQueue<Integer> beste = new PriorityQueue<>(Math.max(1, k), reihenfolge);
+        for (int pos = getroffen.nextSetBit(0); pos >= 0; pos = getroffen.nextSetBit(pos + 1)) {
+            if (beste.size() < k) {
+                beste.add(pos);
+            } else if (k > 0 && reihenfolge.compare(pos, beste.peek()) > 0) {
+                beste.poll();
+                beste.add(pos);
+            }
+        }
+
+        List<Treffer> treffer = new ArrayList<>(beste.size());
+        while (!beste.isEmpty()) {
+            int pos = beste.poll();
+            treffer.add(new Treffer(reden.get(pos), scores[pos]));
+        }
+        Collections.reverse(treffer);
+        return new Ergebnis(getroffen.cardinality(), treffer, new ArrayList<>(terme));
+    }
+
+    /**
+     * @return Anzahl der verschiedenen Terme
+     */
+    public int getAnzahlTerme() {
+        return termIds.size();
+    }
+
+    /**
+     * @return Bytes aller Postinglisten
+     */
+    public long getPostingBytes() {
+        long summe = 0;
+        for (byte[] liste : postings) summe += liste.length;
+        return summe;
+    }
+
+    /**
+     * Geschätzter Heap des Index (Wörterbuch, Postinglisten, Längen, Positionen), für den SpeicherBericht
+     * @return Bytes
+     */
+    long geschaetzteBytes() {
+        long bytes = 0;
+        for (String term : termIds.keySet()) {
+            bytes += KorpusPool.groesse(term) + SpeicherBericht.MAP_ENTRY_BYTES + 16;  // Eintrag + Integer
+        }
+        for (byte[] liste : postings) bytes += (16L + liste.length + 7) & ~7L;
+        bytes += 4L * postings.length + 8L * dokumentFrequenz.length + 4L * dokumentLaenge.length;
+        bytes += (long) positionen.size() * 2 * 2 * 4 + 16L * positionen.size();  // IdentityHashMap + Integer
+        return bytes;
+    }
+
+    private static int leseVarint(byte[] daten, int[] position) {
+        int wert = 0;
+        int shift = 0;
+        while (true) {
+            byte b = daten[position[0]++];
+            wert |= (b & 0x7F) << shift;
+            if (b >= 0) return wert;
+            shift += 7;
+        }
+    }
+
+    /**
+     * Wachsende Postingliste beim Aufbau: (Abstand, Häufigkeit) als Varints
+     */
+    private static class PostingPuffer {
+        private byte[] daten = new byte[8];
+        private int laenge = 0;
+        private int letzte = 0;
+        private int anzahl = 0;
+
+        void add(int pos, int tf) {
+            schreibeVarint(pos - letzte);
+            schreibeVarint(tf);
+            letzte = pos;
+            anzahl++;
+        }
+
+        private void schreibeVarint(int wert) {
+            if (laenge + 5 > daten.length) {
+                daten = Arrays.copyOf(daten, daten.length * 2);
+            }
+            while ((wert & ~0x7F) != 0) {
+                daten[laenge++] = (byte) ((wert & 0x7F) | 0x80);
+                wert >>>= 7;
+            }
+            daten[laenge++] = (byte) wert;
+        }
+
+        byte[] fertig() {
+            return Arrays.copyOf(daten, laenge);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.texttechnologylab.ppr.blatt3.data.redenportal;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.texttechnologylab.ppr.blatt3.data.helper.NormalizeFraktion.normalizeFraktion;
+
+/**
+ * Teil der Daten für eine Wahlperiode
+ * Die Reden werden beim Veröffentlichen zugeordnet. Redner, Sitzungen, Fraktionen und Kommentare
+ * der Wahlperiode werden erst bei der ersten Abfrage aufgebaut, d.h. nur für abgefragte Wahlperioden.
+ */
+public class WahlperiodePartition {
+    private final String wahlperiode;
+    private final List<Rede> reden;
+
+    // Deduplizierte Redner und Fraktionen der Factory zum Zeitpunkt der Veröffentlichung
+    private final Map<String, Redner> rednerMap;
+    private final Map<String, Fraktion> fraktionMap;
+
+    // Wird beim ersten Zugriff aufgebaut
+    private volatile Inhalt inhalt;
+    private volatile RedenIndex index;
+
+    /**
+     * Erstellt eine Partition (nur von der ObjectFactory beim Veröffentlichen)
+     * @param wahlperiode Wahlperiode, z.B. "20"
+     * @param reden alle Reden der Wahlperiode in Ladereihenfolge
+     * @param rednerMap deduplizierte Redner nach ID
+     * @param fraktionMap deduplizierte Fraktionen nach normalisiertem Namen
+     */
+    WahlperiodePartition(String wahlperiode, List<Rede> reden, Map<String, Redner> rednerMap, Map<String, Fraktion> fraktionMap) {
+        this.wahlperiode = wahlperiode;
+        this.reden = Collections.unmodifiableList(reden);
+        this.rednerMap = rednerMap;
+        this.fraktionMap = fraktionMap;
+    }
+
+    public String getWahlperiode() { return wahlperiode; }
+    public List<Rede> getReden() { return reden; }
+    public Set<Redner> getRedner() { return Collections.unmodifiableSet(inhalt().redner); }
+    public Set<Sitzung> getSitzungen() { return Collections.unmodifiableSet(inhalt().sitzungen); }
+    public Set<Fraktion> getFraktionen() { return Collections.unmodifiableSet(inhalt().fraktionen); }
+    public Set<Kommentar> getKommentare() { return Collections.unmodifiableSet(inhalt().kommentare); }
+
+    /**
+     * Sekundärindizes (Redner, Fraktion, Sitzung) der Wahlperiode, beim ersten Zugriff aufgebaut
+     * @return der Index über getReden()
+     */
+    public RedenIndex getIndex() {
+        RedenIndex aktuell = index;
+        if (aktuell == null) {
+            synchronized (this) {
+                aktuell = index;
+                if (aktuell == null) {
+                    aktuell = new RedenIndex(reden);
+                    index = aktuell;
+                }
+            }
+        }
+        return aktuell;
+    }
+
+    /**
+     * Filtert die Reden dieser Wahlperiode
+     * @param filter Bedingung für die Reden
+     * @return passende Reden in Ladereihenfolge
+     */
+    public List<Rede> filterReden(Predicate<Rede> filter) {
+        List<Rede> treffer = new ArrayList<>();
+        for (Rede rede : reden) {
+            if (filter.test(rede)) {
+                treffer.add(rede);
+            }
+        }
+        return treffer;
+    }
+
+    /**
+     * Baut Redner, Sitzungen, Fraktionen und Kommentare einmalig aus den Reden auf
+     */
+    private Inhalt inhalt() {
+        Inhalt aktuell = inhalt;
+        if (aktuell == null) {
+            synchronized (this) {
+                aktuell = inhalt;
+                if (aktuell == null) {
+                    aktuell = new Inhalt();
+                    for (Rede rede : reden) {
+                        Redner redner = rednerMap.getOrDefault(rede.getRedner().getId(), rede.getRedner());
+                        aktuell.redner.add(redner);
+                        aktuell.sitzungen.add(rede.getSitzung());
+                        aktuell.kommentare.addAll(rede.getKommentar());
+
+                        // Fraktion wie bei der Deduplizierung in der ObjectFactory
+                        String name = redner.getFraktion() != null ? redner.getFraktion().getName() : null;
+                        String key = (name == null || name.trim().isEmpty()) ? "FRAKTIONSLOS" : normalizeFraktion(name);
+                        Fraktion fraktion = fraktionMap.get(key);
+                        if (fraktion != null) {
+                            aktuell.fraktionen.add(fraktion);
+                        }
+                    }
+                    inhalt = aktuell;
+                }
+            }
+        }
+        return aktuell;
+    }
+
+    /**
+     * Abgeleitete Objekte einer Wahlperiode
+     */
+    private static class Inhalt {
+        final Set<Redner> redner = new LinkedHashSet<>();
+        final Set<Sitzung> sitzungen = new LinkedHashSet<>();
+        final Set<Fraktion> fraktionen = new LinkedHashSet<>();
+        final Set<Kommentar> kommentare = new HashSet<>();
+    }
+}
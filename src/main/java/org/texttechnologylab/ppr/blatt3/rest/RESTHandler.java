@@ -4,16 +4,36 @@ package org.texttechnologylab.ppr.blatt3.rest;
 import freemarker.template.Configuration;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
+import io.javalin.http.UploadedFile;
 import io.javalin.http.staticfiles.Location;
 import io.javalin.rendering.template.JavalinFreemarker;
 import org.texttechnologylab.ppr.blatt3.config.AppProperties;
+import org.texttechnologylab.ppr.blatt3.data.helper.ArchivHelper;
 import org.texttechnologylab.ppr.blatt3.data.redenportal.*;
-
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 
 /**
@@ -26,6 +46,20 @@ public class RESTHandler {
     private final AppProperties properties;  // Server, template, and API configuration
     private Javalin app;  // Javalin web server instance
     private final List<Map<String, Object>> apiRoutes = new ArrayList<>();  // API route metadata for OpenAPI
+    private final Semaphore uploadSlots;  // Limits how many protocol uploads are parsed at the same time
+    private static final String KORPUS_STAND = "korpusStand";  // Context attribute with the pinned corpus version
+    private static final int ABSAETZE_PRO_SEITE = 20;  // Paragraphs per page on /rede/{id} and /api/reden/{id}/text
+    private static final int MAX_ABSAETZE = 200;
+    private static final int SUCHTREFFER = 10;  // Default hits of /api/reden/search
+    private static final int MAX_SUCHTREFFER = 100;
+    private static final int VORSCHLAEGE = 10;  // Default suggestions of /api/redner/typeahead
+    private static final int MAX_VORSCHLAEGE = 50;
+    private static final int KOMMENTARTREFFER = 20;  // Default hits of /api/kommentare/search
+    private static final int MAX_KOMMENTARTREFFER = 200;
+    private static final int KONTEXT = 40;  // Default context characters of /api/konkordanz
+    private static final int MAX_KONTEXT = 500;
+    private static final int KONKORDANZ_ZEILEN = 100;  // Default lines of /api/konkordanz
+    private static final int MAX_KONKORDANZ_ZEILEN = 10000;
 
 
     /**
@@ -36,6 +70,7 @@ public class RESTHandler {
     public RESTHandler(ObjectFactory factory, AppProperties properties) {
         this.factory = factory;
         this.properties = properties;
+        this.uploadSlots = new Semaphore(Math.max(1, properties.getUploadMaxConcurrent()));
     }
 
 
@@ -86,6 +121,9 @@ public class RESTHandler {
     private void setupRoutes() {
         String apiBase = properties.getApiBasePath();
 
+        // Every request works on one corpus version, reported in the X-Korpus-Version header
+        app.before(this::pinKorpusStand);
+
         // FreeMarker Template routes
         app.get("/", this::renderHomePage);
         app.get("/redner/{id}", this::renderRednerPage);
@@ -94,14 +132,30 @@ public class RESTHandler {
         app.get("/sitzungen", this::renderSitzungenPage);
         app.get("/statistiken", this::renderStatistikenPage);
 
+        // Readiness and loading progress, always available
+        app.get(apiBase + "/status", this::getStatus);
+        registerApiRoute("GET", apiBase + "/status", "Ladestatus", "Gibt den Fortschritt beim Laden der Daten zurück (Dateien, Reden, Aufbau der Konkordanz)");
+        app.get(apiBase + "/ready", this::getReady);
+        registerApiRoute("GET", apiBase + "/ready", "Readiness", "200 wenn alle Daten geladen sind, sonst 503 mit Retry-After");
+
+        // Memory footprint of the published corpus, as JSON and in Prometheus text format
+        app.get(apiBase + "/admin/speicher", this::getSpeicher);
+        registerApiRoute("GET", apiBase + "/admin/speicher", "Speicherverbrauch", "Geschätzter Heap-Verbrauch pro Typ und Wahlperiode sowie doppelte Strings");
+        app.get("/metrics", this::getMetrics);
+
+        // While loading: either mark responses as partial or answer 503
+        app.before(apiBase + "/*", this::checkLoading);
+
         // REST API routes
         // Get Redner
         app.get(apiBase + "/redner", this::getAllRedner);
         registerApiRoute("GET", apiBase + "/redner", "Liste aller Redner", "Gibt eine Liste aller Abgeordneten zurück, optional filterbar");
+        app.get(apiBase + "/redner/typeahead", this::typeaheadRedner);
+        registerApiRoute("GET", apiBase + "/redner/typeahead", "Namensvorschläge", "Redner, deren Vorname, Nachname oder voller Name mit q beginnt (limit Vorschläge, Standard 10)");
         app.get(apiBase + "/redner/{id}", this::getRednerById);
         registerApiRoute("GET", apiBase + "/redner/{id}", "Redner nach ID", "Gibt einen Redner anhand der ID zurück");
         app.get(apiBase + "/redner/search/{name}", this::searchRedner);
-        registerApiRoute("GET", apiBase + "/redner/search/{name}", "Redner suchen", "Sucht Redner anhand des Namens");
+        registerApiRoute("GET", apiBase + "/redner/search/{name}", "Redner suchen", "Sucht Redner anhand des Namens, fehlertolerant (Umlaute, Tippfehler) und nach Treffergüte sortiert, ohne limit alle Treffer");
 
         // Put, Post, Delete for Redner
         app.post(apiBase + "/redner", this::createRedner);
@@ -113,12 +167,27 @@ public class RESTHandler {
 
         // Get Reden
         app.get(apiBase + "/reden", this::getAllReden);
-        registerApiRoute("GET", apiBase + "/reden", "Liste aller Reden", "Gibt alle Reden zurück, filterbar nach Redner, Fraktion, Sitzung");
+        registerApiRoute("GET", apiBase + "/reden", "Liste aller Reden", "Gibt alle Reden zurück, filterbar nach Redner, Fraktion, Sitzung und Zeitraum (from/to als JJJJ-MM-TT oder JJJJ-MM)");
+        app.get(apiBase + "/reden/search", this::searchReden);
+        registerApiRoute("GET", apiBase + "/reden/search", "Volltextsuche in Reden", "Sucht q in den Redetexten (BM25), kombinierbar mit rednerId, fraktion, sitzung, wahlperiode, from/to; limit Treffer (Standard 10)");
         app.get(apiBase + "/reden/{id}", this::getRedeById);
         registerApiRoute("GET", apiBase + "/reden/{id}", "Rede nach ID", "Gibt eine Rede anhand der ID zurück");
+        app.get(apiBase + "/reden/{id}/text", this::getRedeText);
+        registerApiRoute("GET", apiBase + "/reden/{id}/text", "Absätze einer Rede", "Gibt count Absätze ab Absatz from (ab 0) mit ihrer Klasse zurück");
         app.get(apiBase + "/reden/redner/{rednerId}", this::getRedenByRedner);
         registerApiRoute("GET", apiBase + "/reden/redner/{rednerId}", "Reden nach Redner", "Gibt alle Reden eines bestimmten Redners zurück");
 
+        // Search Kommentare (applause, heckling, ...)
+        app.get(apiBase + "/kommentare/search", this::searchKommentare);
+        registerApiRoute("GET", apiBase + "/kommentare/search", "Kommentare suchen", "Sucht Kommentare, deren Text alle Wörter von q enthält; Teile in Anführungszeichen als Phrase (z.B. \"Beifall bei der AfD\"), mit Anzahl pro Fraktion; limit Treffer (Standard 20)");
+
+        // Substring search with keyword in context over all speech texts
+        app.get(apiBase + "/konkordanz", this::getKonkordanz);
+        registerApiRoute("GET", apiBase + "/konkordanz", "Konkordanz", "Findet term als Teilstring in allen Redetexten (auch in Wortteilen) und liefert Anzahl und Zeilen mit window Zeichen Kontext (Standard 40), Rede, Redner und Sitzung; limit Zeilen (Standard 100)");
+
+        // Upload Protokolle
+        app.post(apiBase + "/protokolle", this::uploadProtokolle);
+        registerApiRoute("POST", apiBase + "/protokolle", "Protokolle hochladen", "Lädt ein oder mehrere Plenarprotokolle (XML, ZIP oder multipart) hoch und übernimmt die Reden");
 
         // Get Fraktionen
         app.get(apiBase + "/fraktionen", this::getAllFraktionen);
@@ -128,7 +197,7 @@ public class RESTHandler {
 
         // Get Sitzungen
         app.get(apiBase + "/sitzungen", this::getAllSitzungen);
-        registerApiRoute("GET", apiBase + "/sitzungen", "Liste aller Sitzungen", "Gibt alle Sitzungen zurück");
+        registerApiRoute("GET", apiBase + "/sitzungen", "Liste aller Sitzungen", "Gibt alle Sitzungen zurück, filterbar nach Wahlperiode und Zeitraum (from/to als JJJJ-MM-TT oder JJJJ-MM)");
 
         app.get(apiBase + "/sitzungen/{id}", this::getSitzungById);
         registerApiRoute("GET", apiBase + "/sitzungen/{id}", "Sitzung nach ID", "Gibt eine Sitzung anhand der ID zurück");
@@ -212,6 +281,16 @@ public class RESTHandler {
                 operation.put("tags", List.of("Sitzungen"));
             } else if (path.contains("/statistiken")) {
                 operation.put("tags", List.of("Statistiken"));
+            } else if (path.contains("/protokolle")) {
+                operation.put("tags", List.of("Protokolle"));
+            } else if (path.contains("/status") || path.contains("/ready")) {
+                operation.put("tags", List.of("Status"));
+            } else if (path.contains("/admin")) {
+                operation.put("tags", List.of("Admin"));
+            } else if (path.contains("/kommentare")) {
+                operation.put("tags", List.of("Kommentare"));
+            } else if (path.contains("/konkordanz")) {
+                operation.put("tags", List.of("Konkordanz"));
             }
 
             // Add parameters for path variables (ex. {id}, {name})
@@ -338,13 +417,13 @@ public class RESTHandler {
         model.put("title", "Reden-Portal - Startseite");
 
         // Basic stastitics (Übersicht Statistiken)
-        model.put("totalReden", factory.getAlleRede().size());
-        model.put("totalRedner", factory.getAlleRedner().size());
-        model.put("totalSitzungen", factory.getAlleSitzung().size());
-        model.put("totalFraktionen", factory.getAlleFraktion().size());
+        model.put("totalReden", stand(ctx).getAlleRede().size());
+        model.put("totalRedner", stand(ctx).getAlleRedner().size());
+        model.put("totalSitzungen", stand(ctx).getAlleSitzung().size());
+        model.put("totalFraktionen", stand(ctx).getAlleFraktion().size());
 
         // Load a list of top speakers(Redner)
-        List<Redner> topRedner = factory.getAlleRedner().stream()
+        List<Redner> topRedner = stand(ctx).getAlleRedner().stream()
                 .limit(26000)
                 .collect(Collectors.toList());
         model.put("topRedner", topRedner);
@@ -368,7 +447,7 @@ public class RESTHandler {
         Map<String, Object> model = new HashMap<>();
 
         // Finde the speaker
-        Redner redner = findRednerById(rednerId);
+        Redner redner = findRednerById(ctx, rednerId);
         if (redner == null) {
             ctx.status(404).render("error.ftl", Map.of("message", "Redner nicht gefunden"));
             return;
@@ -379,9 +458,7 @@ public class RESTHandler {
         model.put("redner", redner);
 
         // Load all speeches (Rede) from this speaker
-        List<Rede> reden = factory.getAlleRede().stream()
-                .filter(rede -> rede.getRedner() != null && rednerId.equals(rede.getRedner().getId()))
-                .collect(Collectors.toList());
+        List<Rede> reden = stand(ctx).filterReden(null, rednerId, null, null);
         model.put("reden", reden);
 
         // Total of speeches
@@ -411,7 +488,7 @@ public class RESTHandler {
         Map<String, Object> model = new HashMap<>();
 
         // Try to find the speech
-        Rede rede = findRedeById(redeId);
+        Rede rede = findRedeById(ctx, redeId);
         if (rede == null) {
             ctx.status(404).render("error.ftl", Map.of("message", "Rede nicht gefunden"));
             return;
@@ -423,6 +500,9 @@ public class RESTHandler {
                         rede.getRedner().getVorname() + " " + rede.getRedner().getNachname() : "Unbekannt"));
         model.put("rede", rede);
 
+        // First page of paragraphs, the rest is loaded from /api/reden/{id}/text
+        model.put("textSeite", absatzSeite(rede, 0, ABSAETZE_PRO_SEITE));
+
         // Load comments for this speech
         model.put("kommentare", rede.getKommentar());
 
@@ -441,11 +521,11 @@ public class RESTHandler {
         model.put("title", "Fraktionen Übersicht");
 
         // All factions from factory
-        model.put("fraktionen", factory.getAlleFraktion());
+        model.put("fraktionen", stand(ctx).getAlleFraktion());
 
         // Count how many speakers each faction has.
         // Speakers without a faction are grouped as "Fraktionslos".
-        Map<String, Long> rednerProFraktion = factory.getAlleRedner().stream()
+        Map<String, Long> rednerProFraktion = stand(ctx).getAlleRedner().stream()
                 .collect(Collectors.groupingBy(
                         redner -> redner.getFraktion() != null ? redner.getFraktion().getName() : "Fraktionslos",
                         Collectors.counting()
@@ -465,7 +545,7 @@ public class RESTHandler {
         Map<String, Object> model = new HashMap<>();
         model.put("title", "Sitzungen Übersicht");
         // All sessions
-        model.put("sitzungen", factory.getAlleSitzung());
+        model.put("sitzungen", stand(ctx).getAlleSitzung());
 
         // Show the page
         ctx.render("sitzungen.ftl", model);
@@ -488,7 +568,7 @@ public class RESTHandler {
     // REST API Methods
     /**
      * Returns all speakers (Redner) as JSON.
-     * Allows optional filtering by faction, searching by name, and sorting by name or number of speeches.
+     * Allows optional filtering by faction and Wahlperiode, searching by name, and sorting by name or number of speeches.
      * @param ctx Javalin context object.
      * ctx is used to read request data (query params) and to send back the JSON response.
      */
@@ -497,8 +577,11 @@ public class RESTHandler {
             String fraktion = ctx.queryParam("fraktion");
             String sort = ctx.queryParam("sort");
             String search = ctx.queryParam("search");
+            String wahlperiode = ctx.queryParam("wahlperiode");
 
-            List<Redner> redner = factory.getAlleRedner().stream()
+            // With a Wahlperiode only the speakers of this period are searched
+            Collection<Redner> alleRedner = wahlperiode != null ? rednerInWahlperiode(ctx, wahlperiode) : stand(ctx).getAlleRedner();
+            List<Redner> redner = alleRedner.stream()
 
                     // Filter by faction (optional)
                     .filter(r -> fraktion == null ||
@@ -539,7 +622,7 @@ public class RESTHandler {
             String id = ctx.pathParam("id");
 
             // Find speaker by ID
-            Redner redner = findRednerById(id);
+            Redner redner = findRednerById(ctx, id);
             if (redner != null) {
                 ctx.json(redner);
             } else {
@@ -553,32 +636,77 @@ public class RESTHandler {
 
     /**
      * Searches speakers based on a name or part of a name.
-     * The search is case-insensitive and matches first name, last name, or the full name.
+     * The search ignores case, umlauts (Müller = Mueller = Muller) and small typos and matches first name, last name, or the full name.
+     * Results are ranked: exact name, name starting with the query, name containing it, then by edit distance.
+     * Optional query param: limit (default: all matches).
      * @param ctx Javalin context object.
      * ctx is used to read the path parameter "name" and to return search results as JSON.
      */
     private void searchRedner(Context ctx) {
         try {
-            String name = ctx.pathParam("name").toLowerCase();
-            List<Redner> results = factory.getAlleRedner().stream()
-                    // Check if first name or last name contains the search term
-                    .filter(redner ->
-                            redner.getVorname().toLowerCase().contains(name) ||
-                                    redner.getNachname().toLowerCase().contains(name) ||
-                                    (redner.getVorname() + " " + redner.getNachname()).toLowerCase().contains(name))
-                    .collect(Collectors.toList());
+            String name = ctx.pathParam("name");
+            // Without limit every match is returned, as before the ranked search
+            int limit = intParam(ctx, "limit", Integer.MAX_VALUE);
+            if (limit < 1) {
+                ctx.status(400).json(Map.of("error", "limit muss mindestens 1 sein"));
+                return;
+            }
+
+            // Candidates come from the trigram lists of the corpus version, not from a scan over all speakers
+            List<Redner> results = new ArrayList<>();
+            for (RednerSuche.Treffer treffer : stand(ctx).getRednerSuche().suche(name, limit)) {
+                results.add(treffer.redner());
+            }
 
             // Return matching results as JSON
             ctx.json(results);
+        } catch (NumberFormatException e) {
+            ctx.status(400).json(Map.of("error", "limit muss eine Zahl sein"));
         } catch (Exception e) {
             ctx.status(500).json(Map.of("error", "Fehler bei der Suche: " + e.getMessage()));
         }
     }
 
 
+    /**
+     * Name suggestions while typing: speakers whose first name, last name or full name starts with q.
+     * Answered from the sorted prefix index of the corpus version (binary search, no scan over all speakers).
+     * Query params: q (required), limit (default 10).
+     * @param ctx Javalin request context
+     */
+    private void typeaheadRedner(Context ctx) {
+        try {
+            String q = ctx.queryParam("q");
+            if (q == null || q.isBlank()) {
+                ctx.json(List.of());
+                return;
+            }
+            int limit = intParam(ctx, "limit", VORSCHLAEGE);
+            if (limit < 1 || limit > MAX_VORSCHLAEGE) {
+                ctx.status(400).json(Map.of("error", "limit muss zwischen 1 und " + MAX_VORSCHLAEGE + " liegen"));
+                return;
+            }
+
+            List<Map<String, Object>> vorschlaege = new ArrayList<>();
+            for (Redner redner : stand(ctx).getRednerPrefixIndex().vorschlaege(q, limit)) {
+                Map<String, Object> eintrag = new LinkedHashMap<>();
+                eintrag.put("id", redner.getId());
+                eintrag.put("name", redner.getVorname() + " " + redner.getNachname());
+                eintrag.put("fraktion", redner.getFraktion() != null ? redner.getFraktion().getName() : null);
+                vorschlaege.add(eintrag);
+            }
+            ctx.json(vorschlaege);
+        } catch (NumberFormatException e) {
+            ctx.status(400).json(Map.of("error", "limit muss eine Zahl sein"));
+        } catch (Exception e) {
+            ctx.status(500).json(Map.of("error", "Fehler bei den Vorschlägen: " + e.getMessage()));
+        }
+    }
+
+
     /**
      * Returns all speeches (Reden) as JSON.
-     * Supports optional filtering.
+     * Supports optional filtering by Redner, Fraktion, Sitzung and Wahlperiode.
      * @param ctx Javalin context object.
      * ctx is used to read query parameters and send JSON response.
      */
@@ -588,24 +716,217 @@ public class RESTHandler {
             String fraktion = ctx.queryParam("fraktion");
             String sitzung = ctx.queryParam("sitzung");
             String sort = ctx.queryParam("sort");
+            String wahlperiode = ctx.queryParam("wahlperiode");
+            LocalDate from = dateParam(ctx, "from", false);
+            LocalDate to = dateParam(ctx, "to", true);
 
-            List<Rede> reden = factory.getAlleRede().stream()
-                    .filter(rede -> rednerId == null ||
-                            (rede.getRedner() != null && rednerId.equals(rede.getRedner().getId())))
-                    .filter(rede -> fraktion == null ||
-                            (rede.getRedner() != null && rede.getRedner().getFraktion() != null &&
-                                    rede.getRedner().getFraktion().getName().equalsIgnoreCase(fraktion)))
-                    .filter(rede -> sitzung == null ||
-                            (rede.getSitzung() != null &&
-                                    (rede.getSitzung().getWahlperiode() + "_" + rede.getSitzung().getSitzungNr()).equals(sitzung)))
-                    .collect(Collectors.toList());
+            // The filters are answered by intersecting the posting lists of the index,
+            // only the partition of the Wahlperiode (or Sitzung, ex. "20_1") is used.
+            // A date range is looked up by binary search in the date index, sorted by date.
+            List<Rede> reden = stand(ctx).filterReden(wahlperiode, rednerId, fraktion, sitzung, from, to);
 
             ctx.json(reden);
+        } catch (DateTimeParseException e) {
+            ctx.status(400).json(Map.of("error", "from und to müssen Daten im Format JJJJ-MM-TT oder JJJJ-MM sein"));
         } catch (Exception e) {
             ctx.status(500).json(Map.of("error", "Fehler beim Laden der Reden: " + e.getMessage()));
         }
     }
 
+    /**
+     * Full-text search over the speech texts, ranked with BM25.
+     * Query params: q (required), limit (default 10) and the filters of /api/reden (rednerId, fraktion, sitzung, wahlperiode, from, to).
+     * Only the posting lists of the query terms are read, the texts themselves are not scanned.
+     * @param ctx Javalin request context
+     */
+    private void searchReden(Context ctx) {
+        try {
+            String q = ctx.queryParam("q");
+            if (q == null || q.isBlank()) {
+                ctx.status(400).json(Map.of("error", "Parameter q fehlt"));
+                return;
+            }
+            int limit = intParam(ctx, "limit", SUCHTREFFER);
+            if (limit < 1 || limit > MAX_SUCHTREFFER) {
+                ctx.status(400).json(Map.of("error", "limit muss zwischen 1 und " + MAX_SUCHTREFFER + " liegen"));
+                return;
+            }
+
+            VolltextIndex.Ergebnis ergebnis = stand(ctx).sucheText(q, ctx.queryParam("wahlperiode"), ctx.queryParam("rednerId"),
+                    ctx.queryParam("fraktion"), ctx.queryParam("sitzung"),
+                    dateParam(ctx, "from", false), dateParam(ctx, "to", true), limit);
+
+            List<Map<String, Object>> treffer = new ArrayList<>();
+            for (VolltextIndex.Treffer t : ergebnis.treffer()) {
+                Rede rede = t.rede();
+                Map<String, Object> eintrag = new LinkedHashMap<>();
+                eintrag.put("id", rede.getRid());
+                eintrag.put("score", t.score());
+                eintrag.put("rednerId", rede.getRedner().getId());
+                eintrag.put("redner", rede.getRedner().getVorname() + " " + rede.getRedner().getNachname());
+                eintrag.put("fraktion", rede.getRedner().getFraktion() != null ? rede.getRedner().getFraktion().getName() : null);
+                eintrag.put("sitzung", ObjectFactory.sitzungId(rede.getSitzung()));
+                treffer.add(eintrag);
+            }
+
+            Map<String, Object> antwort = new LinkedHashMap<>();
+            antwort.put("q", q);
+            antwort.put("terme", ergebnis.terme());
+            antwort.put("anzahl", ergebnis.anzahl());
+            antwort.put("treffer", treffer);
+            ctx.json(antwort);
+        } catch (NumberFormatException e) {
+            ctx.status(400).json(Map.of("error", "limit muss eine Zahl sein"));
+        } catch (DateTimeParseException e) {
+            ctx.status(400).json(Map.of("error", "from und to müssen Daten im Format JJJJ-MM-TT oder JJJJ-MM sein"));
+        } catch (Exception e) {
+            ctx.status(500).json(Map.of("error", "Fehler bei der Suche: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Searches the Kommentare (applause, heckling, ...) of all speeches.
+     * Query params: q (required, quoted parts are phrases) and limit (default 20).
+     * Answered from the positional index over the distinct Kommentar texts, the texts are not scanned.
+     * The counts per Fraktion cover all hits, the list only the first limit.
+     * @param ctx Javalin request context
+     */
+    private void searchKommentare(Context ctx) {
+        try {
+            String q = ctx.queryParam("q");
+            if (q == null || q.isBlank()) {
+                ctx.status(400).json(Map.of("error", "Parameter q fehlt"));
+                return;
+            }
+            int limit = intParam(ctx, "limit", KOMMENTARTREFFER);
+            if (limit < 1 || limit > MAX_KOMMENTARTREFFER) {
+                ctx.status(400).json(Map.of("error", "limit muss zwischen 1 und " + MAX_KOMMENTARTREFFER + " liegen"));
+                return;
+            }
+
+            KommentarIndex.Ergebnis ergebnis = stand(ctx).getKommentarIndex().suche(q, limit);
+
+            List<Map<String, Object>> treffer = new ArrayList<>();
+            for (Kommentar kommentar : ergebnis.kommentare()) {
+                Rede rede = kommentar.getRede();
+                Map<String, Object> eintrag = new LinkedHashMap<>();
+                eintrag.put("text", kommentar.getTextk());
+                eintrag.put("redeId", rede != null ? rede.getRid() : null);
+                eintrag.put("rednerId", kommentar.getRedner() != null ? kommentar.getRedner().getId() : null);
+                eintrag.put("redner", kommentar.getRedner() != null
+                        ? kommentar.getRedner().getVorname() + " " + kommentar.getRedner().getNachname() : null);
+                eintrag.put("fraktion", kommentar.getFraktion() != null ? kommentar.getFraktion().getName() : null);
+                eintrag.put("sitzung", rede != null ? ObjectFactory.sitzungId(rede.getSitzung()) : null);
+                treffer.add(eintrag);
+            }
+
+            Map<String, Object> antwort = new LinkedHashMap<>();
+            antwort.put("q", q);
+            antwort.put("anzahl", ergebnis.anzahl());
+            antwort.put("proFraktion", ergebnis.proFraktion());
+            antwort.put("treffer", treffer);
+            ctx.json(antwort);
+        } catch (NumberFormatException e) {
+            ctx.status(400).json(Map.of("error", "limit muss eine Zahl sein"));
+        } catch (Exception e) {
+            ctx.status(500).json(Map.of("error", "Fehler bei der Kommentarsuche: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Keyword in context: finds term as a substring of all speech texts, also inside words ("klima" in "Klimaschutzgesetz").
+     * Query params: term (required), window (context characters per side, default 40) and limit (lines, default 100).
+     * The count comes from two binary searches in the suffix array of the corpus version (O(m log n)),
+     * the lines are written to the response one by one instead of being collected first.
+     * While the suffix array is being built the request is answered with 503 and Retry-After.
+     * Once streaming has started the status is committed: an error (e.g. a client disconnect) is only logged
+     * and the stream is closed without the closing brackets, so the client gets incomplete instead of corrupt JSON.
+     * @param ctx Javalin request context
+     */
+    private void getKonkordanz(Context ctx) {
+        Writer out = null;
+        try {
+            if (!properties.isKonkordanzEnabled()) {
+                ctx.status(404).json(Map.of("error", "Konkordanz ist deaktiviert (konkordanz.enabled)"));
+                return;
+            }
+            String term = ctx.queryParam("term");
+            if (term == null || term.isEmpty()) {
+                ctx.status(400).json(Map.of("error", "Parameter term fehlt"));
+                return;
+            }
+            int window = intParam(ctx, "window", KONTEXT);
+            int limit = intParam(ctx, "limit", KONKORDANZ_ZEILEN);
+            if (window < 0 || window > MAX_KONTEXT || limit < 1 || limit > MAX_KONKORDANZ_ZEILEN) {
+                ctx.status(400).json(Map.of("error", "window muss zwischen 0 und " + MAX_KONTEXT
+                        + ", limit zwischen 1 und " + MAX_KONKORDANZ_ZEILEN + " liegen"));
+                return;
+            }
+
+            // Only the complete corpus gets a suffix array, not the partial versions published while loading.
+            // After an upload the previous suffix array answers until the new one is built.
+            Konkordanz konkordanz = factory.getKonkordanz();
+            if (konkordanz == null) {
+                if (factory.getKonkordanzFehler() != null) {
+                    ctx.status(500).json(Map.of("error", "Konkordanz nicht verfügbar: " + factory.getKonkordanzFehler()));
+                    return;
+                }
+                ctx.header("Retry-After", "30");
+                ctx.status(503).json(Map.of("error", "Konkordanz wird noch aufgebaut"));
+                return;
+            }
+
+            Konkordanz.Bereich bereich = konkordanz.suche(term);
+            ctx.contentType("application/json; charset=utf-8");
+            out = new BufferedWriter(new OutputStreamWriter(ctx.outputStream(), StandardCharsets.UTF_8));
+            Writer stream = out;
+            out.write("{\"term\":" + JSONObject.quote(term) + ",\"version\":" + konkordanz.getVersion() + ",\"anzahl\":" + bereich.anzahl()
+                    + ",\"window\":" + window + ",\"zeilen\":[");
+            boolean[] erste = {true};
+            konkordanz.zeilen(bereich, limit, window, zeile -> {
+                Rede rede = zeile.rede();
+                Redner redner = rede.getRedner();
+                StringBuilder json = new StringBuilder(256 + 3 * window);
+                json.append(erste[0] ? "\n" : ",\n");
+                json.append("{\"redeId\":").append(quote(rede.getRid()));
+                json.append(",\"rednerId\":").append(quote(redner != null ? redner.getId() : null));
+                json.append(",\"redner\":").append(quote(redner != null ? redner.getVorname() + " " + redner.getNachname() : null));
+                json.append(",\"fraktion\":").append(quote(redner != null && redner.getFraktion() != null ? redner.getFraktion().getName() : null));
+                json.append(",\"sitzung\":").append(quote(ObjectFactory.sitzungId(rede.getSitzung())));
+                json.append(",\"position\":").append(zeile.position());
+                json.append(",\"links\":").append(quote(zeile.links()));
+                json.append(",\"treffer\":").append(quote(zeile.treffer()));
+                json.append(",\"rechts\":").append(quote(zeile.rechts())).append('}');
+                erste[0] = false;
+                try {
+                    stream.write(json.toString());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.write("\n]}");
+            out.flush();
+        } catch (NumberFormatException e) {
+            ctx.status(400).json(Map.of("error", "window und limit müssen Zahlen sein"));
+        } catch (Exception e) {
+            if (out == null) {
+                ctx.status(500).json(Map.of("error", "Fehler bei der Konkordanz: " + e.getMessage()));
+                return;
+            }
+            // Status and part of the body are already sent, a second JSON body would only corrupt the output
+            System.err.println("Concordance response aborted: " + e.getMessage());
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // Client is already gone
+            }
+        }
+    }
+
+    private static String quote(String text) {
+        return text != null ? JSONObject.quote(text) : "null";
+    }
+
     /**
      * Returns one speech (Rede) by ID as JSON.
      * @param ctx Javalin context object.
@@ -614,7 +935,7 @@ public class RESTHandler {
     private void getRedeById(Context ctx) {
         try {
             String id = ctx.pathParam("id");
-            Rede rede = findRedeById(id);
+            Rede rede = findRedeById(ctx, id);
             if (rede != null) {
                 ctx.json(rede);
             } else {
@@ -625,6 +946,99 @@ public class RESTHandler {
         }
     }
 
+    /**
+     * Returns a range of paragraphs of a speech (Rede) as JSON.
+     * Query parameters: from (first paragraph, default 0) and count (default 20, at most 200).
+     * @param ctx Javalin context object.
+     * ctx used to read path parameter "id" and send JSON response.
+     */
+    private void getRedeText(Context ctx) {
+        try {
+            int from = intParam(ctx, "from", 0);
+            int count = intParam(ctx, "count", ABSAETZE_PRO_SEITE);
+            if (from < 0 || count < 1 || count > MAX_ABSAETZE) {
+                ctx.status(400).json(Map.of("error", "Ungültiger Bereich: from >= 0 und 1 <= count <= " + MAX_ABSAETZE));
+                return;
+            }
+
+            Rede rede = findRedeById(ctx, ctx.pathParam("id"));
+            if (rede == null) {
+                ctx.status(404).json(Map.of("error", "Rede nicht gefunden"));
+                return;
+            }
+            ctx.json(absatzSeite(rede, from, count));
+        } catch (NumberFormatException e) {
+            ctx.status(400).json(Map.of("error", "from und count müssen Zahlen sein"));
+        } catch (Exception e) {
+            ctx.status(500).json(Map.of("error", "Fehler beim Laden des Redetextes: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Reads an optional integer query parameter.
+     * @param ctx Javalin request context
+     * @param name name of the parameter
+     * @param standard value if the parameter is missing or empty
+     * @return the value
+     * @throws NumberFormatException if the parameter is not a number
+     */
+    private static int intParam(Context ctx, String name, int standard) {
+        String wert = ctx.queryParam(name);
+        return wert == null || wert.isBlank() ? standard : Integer.parseInt(wert.trim());
+    }
+
+    /**
+     * Reads an optional date query parameter, either a day (2023-03-15) or a month (2023-03).
+     * A month stands for its first day, or its last day if the parameter is the end of a range.
+     * @param ctx Javalin request context
+     * @param name name of the parameter
+     * @param ende true for the end of a range ("to")
+     * @return the day, or null if the parameter is missing or empty
+     * @throws DateTimeParseException if the parameter is not a date
+     */
+    private static LocalDate dateParam(Context ctx, String name, boolean ende) {
+        String wert = ctx.queryParam(name);
+        if (wert == null || wert.isBlank()) return null;
+        wert = wert.trim();
+        if (wert.length() == 7) {
+            YearMonth monat = YearMonth.parse(wert);
+            return ende ? monat.atEndOfMonth() : monat.atDay(1);
+        }
+        return LocalDate.parse(wert);
+    }
+
+    /**
+     * Builds one page of paragraphs of a speech.
+     * @param rede the speech
+     * @param from first paragraph (from 0)
+     * @param count maximum number of paragraphs
+     * @return id, total number of paragraphs, range and the paragraphs with klasse and text
+     */
+    private Map<String, Object> absatzSeite(Rede rede, int from, int count) {
+        Absaetze absaetze = rede.absaetze();
+        int bis = (int) Math.min((long) from + count, absaetze.getAnzahl());
+
+        List<Map<String, Object>> seite = new ArrayList<>();
+        if (from < bis) {
+            String text = rede.getText();
+            for (int i = from; i < bis; i++) {
+                Map<String, Object> absatz = new LinkedHashMap<>();
+                absatz.put("index", i);
+                absatz.put("klasse", absaetze.klasse(i));
+                absatz.put("text", absaetze.text(text, i));
+                seite.add(absatz);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", rede.getRid());
+        result.put("anzahlAbsaetze", absaetze.getAnzahl());
+        result.put("from", from);
+        result.put("count", seite.size());
+        result.put("absaetze", seite);
+        return result;
+    }
+
     /**
      * Returns all speeches (Reden) by a specific speaker (Redner) as JSON.
      * @param ctx Javalin context object.
@@ -633,9 +1047,7 @@ public class RESTHandler {
     private void getRedenByRedner(Context ctx) {
         try {
             String rednerId = ctx.pathParam("rednerId");
-            List<Rede> reden = factory.getAlleRede().stream()
-                    .filter(rede -> rede.getRedner() != null && rednerId.equals(rede.getRedner().getId()))
-                    .collect(Collectors.toList());
+            List<Rede> reden = stand(ctx).filterReden(ctx.queryParam("wahlperiode"), rednerId, null, null);
             ctx.json(reden);
         } catch (Exception e) {
             ctx.status(500).json(Map.of("error", "Fehler beim Laden der Reden: " + e.getMessage()));
@@ -643,13 +1055,19 @@ public class RESTHandler {
     }
 
     /**
-     * Returns all factions (Fraktionen) as JSON.
+     * Returns all factions (Fraktionen) as JSON, optional only those of one Wahlperiode.
      * @param ctx Javalin context object.
      * ctx used to send JSON response.
      */
     private void getAllFraktionen(Context ctx) {
         try {
-            ctx.json(factory.getAlleFraktion());
+            String wahlperiode = ctx.queryParam("wahlperiode");
+            if (wahlperiode != null) {
+                WahlperiodePartition partition = stand(ctx).getPartition(wahlperiode);
+                ctx.json(partition != null ? partition.getFraktionen() : List.of());
+                return;
+            }
+            ctx.json(stand(ctx).getAlleFraktion());
         } catch (Exception e) {
             ctx.status(500).json(Map.of("error", "Fehler beim Laden der Fraktionen: " + e.getMessage()));
         }
@@ -664,7 +1082,7 @@ public class RESTHandler {
     private void getFraktionByName(Context ctx) {
         try {
             String name = ctx.pathParam("name");
-            Fraktion fraktion = factory.getAlleFraktion().stream()
+            Fraktion fraktion = stand(ctx).getAlleFraktion().stream()
                     .filter(f -> f.getName().equalsIgnoreCase(name))
                     .findFirst()
                     .orElse(null);
@@ -672,13 +1090,10 @@ public class RESTHandler {
             if (fraktion != null) {
                 Map<String, Object> result = new HashMap<>();
                 result.put("fraktion", fraktion);
-                result.put("anzahlRedner", factory.getAlleRedner().stream()
+                result.put("anzahlRedner", stand(ctx).getAlleRedner().stream()
                         .filter(r -> r.getFraktion() != null && r.getFraktion().getName().equals(fraktion.getName()))
                         .count());
-                result.put("anzahlReden", factory.getAlleRede().stream()
-                        .filter(r -> r.getRedner() != null && r.getRedner().getFraktion() != null &&
-                                r.getRedner().getFraktion().getName().equals(fraktion.getName()))
-                        .count());
+                result.put("anzahlReden", stand(ctx).zaehleReden(null, null, fraktion.getName(), null));
                 ctx.json(result);
             } else {
                 ctx.status(404).json(Map.of("error", "Fraktion nicht gefunden"));
@@ -689,13 +1104,18 @@ public class RESTHandler {
     }
 
     /**
-     * Returns all sessions (Sitzungen) as JSON.
+     * Returns all sessions (Sitzungen) as JSON, optional only those of one Wahlperiode.
      * @param ctx Javalin context object.
      * ctx used to send JSON response.
      */
     private void getAllSitzungen(Context ctx) {
         try {
-            ctx.json(factory.getAlleSitzung());
+            String wahlperiode = ctx.queryParam("wahlperiode");
+            LocalDate from = dateParam(ctx, "from", false);
+            LocalDate to = dateParam(ctx, "to", true);
+            ctx.json(stand(ctx).filterSitzungen(wahlperiode, from, to));
+        } catch (DateTimeParseException e) {
+            ctx.status(400).json(Map.of("error", "from und to müssen Daten im Format JJJJ-MM-TT oder JJJJ-MM sein"));
         } catch (Exception e) {
             ctx.status(500).json(Map.of("error", "Fehler beim Laden der Sitzungen: " + e.getMessage()));
         }
@@ -710,19 +1130,14 @@ public class RESTHandler {
     private void getSitzungById(Context ctx) {
         try {
             String id = ctx.pathParam("id");
-            Sitzung sitzung = factory.getAlleSitzung().stream()
-                    .filter(s -> (s.getWahlperiode() + "_" + s.getSitzungNr()).equals(id))
-                    .findFirst()
-                    .orElse(null);
+
+            // Lookup in the ID index, the speeches come from the Sitzung posting list
+            Sitzung sitzung = stand(ctx).getSitzungById(id);
 
             if (sitzung != null) {
                 Map<String, Object> result = new HashMap<>();
                 result.put("sitzung", sitzung);
-                result.put("reden", factory.getAlleRede().stream()
-                        .filter(rede -> rede.getSitzung() != null &&
-                                rede.getSitzung().getWahlperiode().equals(sitzung.getWahlperiode()) &&
-                                rede.getSitzung().getSitzungNr().equals(sitzung.getSitzungNr()))
-                        .collect(Collectors.toList()));
+                result.put("reden", stand(ctx).filterReden(null, null, null, id));
                 ctx.json(result);
             } else {
                 ctx.status(404).json(Map.of("error", "Sitzung nicht gefunden"));
@@ -743,16 +1158,25 @@ public class RESTHandler {
         try {
             // Create a map to store all statistics
             Map<String, Object> stats = new HashMap<>();
+            KorpusStand stand = stand(ctx);
+            RedenMetriken metriken = stand.getMetriken();
 
             // Total counts
-            stats.put("gesamtReden", factory.getAlleRede().size());
-            stats.put("gesamtRedner", factory.getAlleRedner().size());
-            stats.put("gesamtSitzungen", factory.getAlleSitzung().size());
-            stats.put("gesamtFraktionen", factory.getAlleFraktion().size());
-            stats.put("gesamtKommentare", factory.getAlleKommentar().size());
+            stats.put("gesamtReden", stand.getAlleRede().size());
+            stats.put("gesamtRedner", stand.getAlleRedner().size());
+            stats.put("gesamtSitzungen", stand.getAlleSitzung().size());
+            stats.put("gesamtFraktionen", stand.getAlleFraktion().size());
+            stats.put("gesamtKommentare", stand.getAlleKommentar().size());
+
+            // Number of speeches per speaker from the columnar metrics (one pass over an int array)
+            int[] redenProRedner = metriken.anzahlProGruppe(RedenMetriken.Gruppe.REDNER);
+            Map<String, Long> anzahlNachRedner = new HashMap<>(redenProRedner.length * 2);
+            for (int o = 0; o < redenProRedner.length; o++) {
+                anzahlNachRedner.put(metriken.name(RedenMetriken.Gruppe.REDNER, o), (long) redenProRedner[o]);
+            }
 
             // Top 5 speakers based on number of speeches
-            List<Map<String, Object>> topRednerList = factory.getAlleRedner().stream()
+            List<Map<String, Object>> topRednerList = stand.getAlleRedner().stream()
                     .map(redner -> {
                         Map<String, Object> rednerStat = new HashMap<>();
                         rednerStat.put("name", redner.getVorname() + " " + redner.getNachname());
@@ -766,7 +1190,7 @@ public class RESTHandler {
 
                         // Number of speeches for this speaker
                         rednerStat.put("fraktion", fraktionName);
-                        rednerStat.put("anzahlReden", getAnzahlRedenFuerRedner(redner.getId()));
+                        rednerStat.put("anzahlReden", anzahlNachRedner.getOrDefault(redner.getId(), 0L));
                         return rednerStat;
                     })
 
@@ -781,19 +1205,10 @@ public class RESTHandler {
             stats.put("topRedner", topRednerList);
 
             // Number of speeches per faction
-            Map<String, Long> redenProFraktion = factory.getAlleRede().stream()
-                    .filter(rede -> rede.getRedner() != null && rede.getRedner().getFraktion() != null)
-                    .collect(Collectors.groupingBy(
-                            rede -> {
-                                String fraktionName = rede.getRedner().getFraktion().getName();
-                                return (fraktionName != null) ? fraktionName : "Fraktionslos";
-                            },
-                            Collectors.counting()
-                    ));
-            stats.put("redenProFraktion", redenProFraktion);
+            stats.put("redenProFraktion", metriken.anzahlProGruppeMap(RedenMetriken.Gruppe.FRAKTION));
 
             // Number of speakers per faction
-            Map<String, Long> rednerProFraktion = factory.getAlleRedner().stream()
+            Map<String, Long> rednerProFraktion = stand.getAlleRedner().stream()
                     .collect(Collectors.groupingBy(
                             redner -> {
                                 if (redner.getFraktion() == null) return "Fraktionslos";
@@ -805,19 +1220,17 @@ public class RESTHandler {
             stats.put("rednerProFraktion", rednerProFraktion);
 
             // Average number of comments per speech
-            double avgKommentare = factory.getAlleRede().stream()
-                    .mapToInt(rede -> rede.getKommentar().size())
-                    .average()
-                    .orElse(0.0);
+            double avgKommentare = metriken.durchschnitt(RedenMetriken.Spalte.KOMMENTARE);
             stats.put("durchschnittKommentareProRede", Math.round(avgKommentare * 10.0) / 10.0);
 
             // Average speech length (number of characters)
-            double avgRedenLaenge = factory.getAlleRede().stream()
-                    .mapToInt(rede -> rede.getText().length())
-                    .average()
-                    .orElse(0.0);
+            double avgRedenLaenge = metriken.durchschnitt(RedenMetriken.Spalte.LAENGE);
             stats.put("durchschnittRedenLaenge", Math.round(avgRedenLaenge));
 
+            // Average number of words per speech
+            double avgWoerter = metriken.durchschnitt(RedenMetriken.Spalte.WOERTER);
+            stats.put("durchschnittWoerterProRede", Math.round(avgWoerter));
+
             // Convert stats map to JSON and send as response
             String jsonResponse = generateUtf8Json(stats);
             ctx.contentType("application/json; charset=utf-8");
@@ -890,7 +1303,7 @@ public class RESTHandler {
             var updateData = ctx.bodyAsClass(Map.class);
 
             // Check if redner exist
-            Redner redner = findRednerById(id);
+            Redner redner = findRednerById(ctx, id);
             if (redner == null) {
                 ctx.status(404).json(Map.of("error", "Redner nicht gefunden"));
                 return;
@@ -918,7 +1331,7 @@ public class RESTHandler {
             System.out.println("DELETE /api/redner/" + id + " called");
 
             // Check if Redner available
-            Redner redner = findRednerById(id);
+            Redner redner = findRednerById(ctx, id);
             if (redner == null) {
                 ctx.status(404).json(Map.of("error", "Redner nicht gefunden"));
                 return;
@@ -937,6 +1350,330 @@ public class RESTHandler {
     }
 
 
+    // Corpus version
+    /**
+     * Pins the current corpus version for this request.
+     * All lookups of the request use the same immutable KorpusStand, even if a new version
+     * is published in the meantime. The version number is sent in the header "X-Korpus-Version".
+     * @param ctx  Javalin request context
+     */
+    private void pinKorpusStand(Context ctx) {
+        KorpusStand stand = factory.getStand();
+        ctx.attribute(KORPUS_STAND, stand);
+        ctx.header("X-Korpus-Version", String.valueOf(stand.getVersion()));
+    }
+
+    /**
+     * Returns the corpus version pinned for this request (or the current one, if none is pinned).
+     * @param ctx  Javalin request context
+     * @return the immutable corpus version
+     */
+    private KorpusStand stand(Context ctx) {
+        KorpusStand stand = ctx.attribute(KORPUS_STAND);
+        return stand != null ? stand : factory.getStand();
+    }
+
+
+    // Loading status
+    /**
+     * Runs before every API request while the data is still loading.
+     * With startup.serve.partial the request is answered with the partial data and the header
+     * "X-Corpus-Loading: true", otherwise it is rejected with 503 and Retry-After.
+     * Status, readiness and the OpenAPI document are always served.
+     * @param ctx  Javalin request context
+     */
+    private void checkLoading(Context ctx) {
+        if (factory.isBereit()) return;
+
+        String path = ctx.path();
+        if (path.endsWith("/status") || path.endsWith("/ready") || path.endsWith("/openapi.json")) return;
+
+        ctx.header("X-Corpus-Loading", "true");
+        if (!properties.isStartupServePartial()) {
+            ctx.header("Retry-After", String.valueOf(factory.schaetzeRestzeitSekunden()));
+            ctx.status(503).json(Map.of(
+                    "error", "Daten werden noch geladen",
+                    "dateienGeladen", factory.getDateienGeladen(),
+                    "dateienGesamt", factory.getDateienGesamt()
+            ));
+            ctx.skipRemainingHandlers();
+        }
+    }
+
+    /**
+     * Returns the loading progress: loaded files and the number of published objects.
+     * With the concordance enabled also its version and whether a rebuild is running.
+     * @param ctx  Javalin request context
+     */
+    private void getStatus(Context ctx) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("bereit", factory.isBereit());
+        status.put("version", stand(ctx).getVersion());
+        status.put("dateienGeladen", factory.getDateienGeladen());
+        status.put("dateienGesamt", factory.getDateienGesamt());
+        status.put("reden", stand(ctx).getAlleRede().size());
+        status.put("redner", stand(ctx).getAlleRedner().size());
+        status.put("sitzungen", stand(ctx).getAlleSitzung().size());
+        status.put("kommentare", stand(ctx).getAlleKommentar().size());
+        status.put("pool", factory.getPool().bericht());
+        status.put("textCache", factory.getTextKompressor().bericht());
+        if (!factory.isBereit()) {
+            status.put("restSekunden", factory.schaetzeRestzeitSekunden());
+        }
+        status.put("indexAufbau", factory.isIndexAufbauLaeuft());
+        if (properties.isKonkordanzEnabled()) {
+            Map<String, Object> konkordanz = new LinkedHashMap<>();
+            konkordanz.put("version", factory.getKonkordanzVersion());
+            konkordanz.put("aufbau", factory.isKonkordanzImAufbau());
+            konkordanz.put("fehler", factory.getKonkordanzFehler());
+            status.put("konkordanz", konkordanz);
+        }
+        ctx.json(status);
+    }
+
+    /**
+     * Returns the estimated heap usage per entity type and Wahlperiode, the string duplication per category
+     * and the current JVM heap.
+     * The walk over the corpus is done in the background by the factory; until the report for the newest version
+     * is ready, the previous one is returned ("version"). Index sizes are always estimated for the pinned version.
+     * @param ctx  Javalin request context
+     */
+    private void getSpeicher(Context ctx) {
+        try {
+            KorpusStand stand = stand(ctx);
+            SpeicherBericht bericht = factory.getSpeicherBericht();
+            if (bericht == null) {
+                ctx.header("Retry-After", "5");
+                ctx.status(503).json(Map.of("error", "Der Speicherverbrauch wird noch geschätzt"));
+                return;
+            }
+            Konkordanz konkordanz = factory.konkordanzFallsVorhanden();
+
+            Map<String, Object> typen = new LinkedHashMap<>();
+            bericht.getBytesProTyp(stand, konkordanz).forEach((typ, bytes) -> typen.put(typ, Map.of(
+                    "bytes", bytes,
+                    "objekte", bericht.getObjekteProTyp().get(typ))));
+
+            Map<String, Object> strings = new LinkedHashMap<>();
+            bericht.getStrings().forEach((kategorie, statistik) -> {
+                Map<String, Object> eintrag = new LinkedHashMap<>();
+                eintrag.put("referenzen", statistik.getReferenzen());
+                eintrag.put("objekte", statistik.getObjekte());
+                eintrag.put("werte", statistik.getWerte());
+                eintrag.put("duplikatAnteil", statistik.getDuplikatAnteil());
+                eintrag.put("bytes", statistik.getBytes());
+                eintrag.put("duplikatBytes", statistik.getDuplikatBytes());
+                strings.put(kategorie, eintrag);
+            });
+
+            Map<String, Object> antwort = new LinkedHashMap<>();
+            antwort.put("version", bericht.getVersion());
+            antwort.put("indexVersion", stand.getVersion());
+            antwort.put("gesamtBytes", bericht.getGesamtBytes(stand, konkordanz));
+            antwort.put("typen", typen);
+            antwort.put("wahlperioden", bericht.getBytesProWahlperiode());
+            antwort.put("strings", strings);
+            antwort.put("blobBytes", factory.getTextBlobStore() != null ? factory.getTextBlobStore().getGroesse() : 0);
+            antwort.put("konkordanzBytes", konkordanz != null ? konkordanz.getOffHeapBytes() : 0);
+            antwort.put("pool", factory.getPool().bericht());
+            antwort.put("textCache", factory.getTextKompressor().bericht());
+            antwort.put("jvm", jvmHeap());
+            antwort.put("dauerMillis", bericht.getDauerMillis());
+            ctx.json(antwort);
+        } catch (Exception e) {
+            ctx.status(500).json(Map.of("error", "Fehler beim Schätzen des Speichers: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Exports the memory estimate, corpus sizes and JVM heap as gauges in the Prometheus text format.
+     * A scrape never walks the corpus: it exports the last finished memory report (none right after startup)
+     * and triggers the report for a newer version in the background.
+     * @param ctx  Javalin request context
+     */
+    private void getMetrics(Context ctx) {
+        KorpusStand stand = stand(ctx);
+        SpeicherBericht bericht = factory.getSpeicherBericht();
+        Konkordanz konkordanz = factory.konkordanzFallsVorhanden();
+        StringBuilder out = new StringBuilder(4096);
+
+        gauge(out, "korpus_version", "Published corpus version");
+        wert(out, "korpus_version", null, null, stand.getVersion());
+        gauge(out, "korpus_bereit", "1 when all protocols are loaded");
+        wert(out, "korpus_bereit", null, null, factory.isBereit() ? 1 : 0);
+
+        if (bericht != null) {
+            gauge(out, "korpus_heap_bericht_version", "Corpus version of the last finished memory report");
+            wert(out, "korpus_heap_bericht_version", null, null, bericht.getVersion());
+            gauge(out, "korpus_heap_bytes", "Estimated retained heap bytes per entity type");
+            bericht.getBytesProTyp(stand, konkordanz).forEach((typ, bytes) -> wert(out, "korpus_heap_bytes", "typ", typ, bytes));
+            gauge(out, "korpus_objekte", "Counted objects per entity type");
+            bericht.getObjekteProTyp().forEach((typ, anzahl) -> wert(out, "korpus_objekte", "typ", typ, anzahl));
+            gauge(out, "korpus_wahlperiode_heap_bytes", "Estimated heap bytes of the Reden of a Wahlperiode incl. texts and Kommentare");
+            bericht.getBytesProWahlperiode().forEach((wp, bytes) -> wert(out, "korpus_wahlperiode_heap_bytes", "wahlperiode", wp, bytes));
+
+            gauge(out, "korpus_string_duplikat_anteil", "Share of string objects that duplicate another string of the same category");
+            bericht.getStrings().forEach((kategorie, s) -> wert(out, "korpus_string_duplikat_anteil", "kategorie", kategorie, s.getDuplikatAnteil()));
+            gauge(out, "korpus_string_duplikat_bytes", "Estimated bytes held by duplicate strings");
+            bericht.getStrings().forEach((kategorie, s) -> wert(out, "korpus_string_duplikat_bytes", "kategorie", kategorie, s.getDuplikatBytes()));
+        }
+
+        gauge(out, "korpus_blob_bytes", "Bytes of texts stored off-heap in the blob file");
+        wert(out, "korpus_blob_bytes", null, null, factory.getTextBlobStore() != null ? factory.getTextBlobStore().getGroesse() : 0);
+        gauge(out, "korpus_konkordanz_bytes", "Bytes of the concordance text and suffix array in direct buffers");
+        wert(out, "korpus_konkordanz_bytes", null, null, konkordanz != null ? konkordanz.getOffHeapBytes() : 0);
+        gauge(out, "korpus_konkordanz_aufbau", "1 while the concordance of a newer version is being built");
+        wert(out, "korpus_konkordanz_aufbau", null, null, factory.isKonkordanzImAufbau() ? 1 : 0);
+        gauge(out, "korpus_pool_eingespart_bytes", "Estimated bytes saved by the canonical object pool");
+        wert(out, "korpus_pool_eingespart_bytes", null, null, factory.getPool().getEingespartBytes());
+
+        jvmHeap().forEach((name, bytes) -> {
+            gauge(out, "jvm_heap_" + name + "_bytes", "JVM heap " + name);
+            wert(out, "jvm_heap_" + name + "_bytes", null, null, bytes);
+        });
+
+        ctx.contentType("text/plain; version=0.0.4; charset=utf-8").result(out.toString());
+    }
+
+    private static void gauge(StringBuilder out, String name, String hilfe) {
+        out.append("# HELP ").append(name).append(' ').append(hilfe).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+    }
+
+    private static void wert(StringBuilder out, String name, String label, String labelWert, Number wert) {
+        out.append(name);
+        if (label != null) {
+            String escaped = labelWert.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+            out.append('{').append(label).append("=\"").append(escaped).append("\"}");
+        }
+        out.append(' ').append(wert).append('\n');
+    }
+
+    /**
+     * Current JVM heap usage in bytes.
+     * @return used, committed and max (-1 if undefined)
+     */
+    private static Map<String, Long> jvmHeap() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        Map<String, Long> jvm = new LinkedHashMap<>();
+        jvm.put("used", heap.getUsed());
+        jvm.put("committed", heap.getCommitted());
+        jvm.put("max", heap.getMax());
+        return jvm;
+    }
+
+    /**
+     * Readiness check: 200 when all data is loaded, otherwise 503 with Retry-After.
+     * @param ctx  Javalin request context
+     */
+    private void getReady(Context ctx) {
+        if (factory.isBereit()) {
+            ctx.json(Map.of("bereit", true));
+        } else {
+            ctx.header("Retry-After", String.valueOf(factory.schaetzeRestzeitSekunden()));
+            ctx.status(503).json(Map.of(
+                    "bereit", false,
+                    "dateienGeladen", factory.getDateienGeladen(),
+                    "dateienGesamt", factory.getDateienGesamt()
+            ));
+        }
+    }
+
+
+    // Upload of plenary protocols
+    /**
+     * Uploads one or more plenary protocols and merges their Reden into the running portal.
+     * Accepted bodies: a single XML protocol (optional query param "name"), a ZIP archive (application/zip)
+     * or multipart/form-data with several files. All protocols of one request are published together as one
+     * corpus version ("version" in the response), readers never see a partly imported upload.
+     * XML and ZIP bodies are parsed while they are received and are never read into memory as a whole.
+     * Multipart parts are buffered by Jetty first (in memory or in temporary files) and then parsed one by one.
+     * At most upload.max.concurrent uploads are processed at the same time. Further uploads are rejected with 429
+     * at once instead of waiting for a slot, so a burst of uploads cannot occupy the request threads of the read traffic.
+     * @param ctx  Javalin request context with the protocol(s) in the body
+     */
+    private void uploadProtokolle(Context ctx) {
+        boolean slot = false;
+        try {
+            slot = uploadSlots.tryAcquire();
+            if (!slot) {
+                ctx.header("Retry-After", "5");
+                ctx.status(429).json(Map.of("error", "Zu viele gleichzeitige Uploads, bitte später erneut versuchen"));
+                return;
+            }
+
+            // All protocols of the request are parsed first and then merged and published as one version
+            List<Map<String, Object>> results = new ArrayList<>();
+            List<List<Rede>> protokolle = new ArrayList<>();
+            String contentType = ctx.contentType() != null ? ctx.contentType().toLowerCase() : "";
+
+            if (ctx.isMultipartFormData()) {
+                // Several files, each part is parsed on its own
+                for (UploadedFile file : ctx.uploadedFiles()) {
+                    try (InputStream in = file.content()) {
+                        results.add(parseProtokoll(file.filename(), in, protokolle));
+                    }
+                }
+            } else if (contentType.startsWith("application/zip")) {
+                // ZIP archive, the entries are read one after another from the request stream
+                try (ZipInputStream zip = new ZipInputStream(ctx.bodyInputStream())) {
+                    ZipEntry entry;
+                    while ((entry = zip.getNextEntry()) != null) {
+                        if (entry.isDirectory() || !ArchivHelper.istXmlEintrag(entry.getName())) continue;
+                        results.add(parseProtokoll(entry.getName(), ArchivHelper.ohneSchliessen(zip), protokolle));
+                    }
+                }
+            } else {
+                // Single XML protocol
+                results.add(parseProtokoll(ctx.queryParam("name"), ctx.bodyInputStream(), protokolle));
+            }
+
+            boolean imported = !protokolle.isEmpty();
+            KorpusStand neu = imported ? factory.uebernehmeProtokolle(protokolle) : factory.getStand();
+            ctx.status(imported ? 201 : 400).json(Map.of(
+                    "status", imported ? "success" : "error",
+                    "protokolle", results,
+                    "version", neu.getVersion(),
+                    "anzahlReden", neu.getAlleRede().size()
+            ));
+        } catch (Exception e) {
+            ctx.status(400).json(Map.of("error", "Bad request: " + e.getMessage()));
+        } finally {
+            if (slot) {
+                uploadSlots.release();
+            }
+        }
+    }
+
+    /**
+     * Parses one uploaded protocol without merging it, see ObjectFactory.uebernehmeProtokolle.
+     * Errors are returned in the result, so the other protocols of the same request are still imported.
+     * @param name  file or entry name of the protocol (can be null)
+     * @param in  XML of the protocol
+     * @param protokolle  receives the Reden of the protocol if it could be parsed
+     * @return result with name, Sitzung and number of Reden, or an error message
+     */
+    private Map<String, Object> parseProtokoll(String name, InputStream in, List<List<Rede>> protokolle) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", name != null ? name : "");
+        try {
+            List<Rede> reden = factory.parseUpload(in);
+            if (reden.isEmpty()) {
+                result.put("error", "Keine Reden im Protokoll gefunden");
+                return result;
+            }
+            Sitzung sitzung = reden.get(0).getSitzung();
+            result.put("sitzung", sitzung.getWahlperiode() + "_" + sitzung.getSitzungNr());
+            result.put("reden", reden.size());
+            protokolle.add(reden);
+        } catch (Exception e) {
+            System.err.println("Fehler beim Upload von " + name + ": " + e.getMessage());
+            result.put("error", "Ungültiges Protokoll: " + e.getMessage());
+        }
+        return result;
+    }
+
+
     // Helper methods
     /**
      * Converts a Map to a JSON string using UTF-8 encoding.
@@ -1030,43 +1767,33 @@ public class RESTHandler {
 
     /**
      * Finds a Redner object by its ID.
+     * @param ctx the request, its corpus version is used
      * @param id the ID of the Redner
      * @return the Redner if found, otherwise null
      */
-    private Redner findRednerById(String id) {
-        return factory.getAlleRedner().stream()
-                .filter(r -> id.equals(r.getId()))
-                .findFirst()
-                .orElse(null);
+    private Redner findRednerById(Context ctx, String id) {
+        return stand(ctx).getRednerById(id);
     }
 
     /**
      * Finds a Rede object by its ID.
+     * @param ctx the request, its corpus version is used
      * @param id the ID of the Rede
      * @return the Rede if found, otherwise null
      */
-    private Rede findRedeById(String id) {
-        return factory.getAlleRede().stream()
-                .filter(r -> id.equals(r.getRid()))
-                .findFirst()
-                .orElse(null);
+    private Rede findRedeById(Context ctx, String id) {
+        return stand(ctx).getRedeById(id);
     }
 
     /**
-     * Counts the number of speeches (Reden) for a given Redner ID.
-     * @param rednerId the ID of the Redner
-     * @return number of speeches, or 0 if ID is null or error
+     * Returns the speakers (Redner) who gave a speech in the given Wahlperiode.
+     * @param ctx the request, its corpus version is used
+     * @param wahlperiode the Wahlperiode, ex. "20"
+     * @return speakers of this period, empty if the period is not loaded
      */
-    private long getAnzahlRedenFuerRedner(String rednerId) {
-        if (rednerId == null) return 0;
-        try {
-            return factory.getAlleRede().stream()
-                    .filter(rede -> rede.getRedner() != null && rednerId.equals(rede.getRedner().getId()))
-                    .count();
-        } catch (Exception e) {
-            System.err.println("Fehler in getAnzahlRedenFuerRedner für Redner " + rednerId + ": " + e.getMessage());
-            return 0;
-        }
+    private Collection<Redner> rednerInWahlperiode(Context ctx, String wahlperiode) {
+        WahlperiodePartition partition = stand(ctx).getPartition(wahlperiode);
+        return partition != null ? partition.getRedner() : List.of();
     }
 
     /**
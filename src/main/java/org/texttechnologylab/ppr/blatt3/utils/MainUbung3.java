@@ -10,6 +10,7 @@ import org.texttechnologylab.ppr.blatt3.rest.RESTHandler;
 import java.io.File;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -22,38 +23,72 @@ public class MainUbung3 {
     /** Factory instance used to load and access XML data */
     private static ObjectFactory factory;
 
+    /** Application configuration (server, templates, ingest) */
+    private static AppProperties properties;
+
     /**
-     * Loads XML data from the resources folder "20" and starts the web interface.
+     * Starts the web interface and loads XML data from the resources folder "20".
      * @param args
      */
     public static void main(String[] args) {
-        // Load the '20' folder from classpath
-        ClassLoader classLoader = MainUbung3.class.getClassLoader();
-        URL resource = classLoader.getResource("20");
-        if (resource == null) {
-            throw new IllegalArgumentException("Folder 20 nicht gefunden!");
-        }
+        properties = new AppProperties();
 
-        String folderPath = null;
-        try {
-            // Convert URL to absolute path
-            folderPath = new File(resource.toURI()).getAbsolutePath();
-        } catch (URISyntaxException e) {
-            throw new RuntimeException(e);
+        // Load the '20' folder from classpath, unless other folders or archives are configured
+        List<String> folderPaths = properties.getDataPaths();
+        if (folderPaths.isEmpty()) {
+            ClassLoader classLoader = MainUbung3.class.getClassLoader();
+            URL resource = classLoader.getResource("20");
+            if (resource == null) {
+                throw new IllegalArgumentException("Folder 20 nicht gefunden!");
+            }
+
+            try {
+                // Convert URL to absolute path
+                folderPaths = List.of(new File(resource.toURI()).getAbsolutePath());
+            } catch (URISyntaxException e) {
+                throw new RuntimeException(e);
+            }
         }
 
         System.out.println("-".repeat(180));
-        System.out.println("XML-Daten werden geladen von: " + folderPath);
+        System.out.println("XML-Daten werden geladen von: " + String.join(", ", folderPaths));
         System.out.println("Bitte kurz warten ;)");
         System.out.println("-".repeat(180));
 
         // Initialize factory and load XML files
         factory = new ObjectFactory();
-        factory.loadXML(folderPath);
+        factory.setIngestThreads(properties.getIngestThreads());
+        factory.setIngestExecutor(properties.getIngestExecutor());
+        factory.setIngestParser(properties.getIngestParser());
+        if (properties.isSnapshotEnabled()) {
+            factory.setSnapshotVerzeichnis(properties.getSnapshotDirectory());
+        }
+        if (properties.isCacheEnabled()) {
+            factory.setParseCacheVerzeichnis(properties.getCacheDirectory());
+        }
+        factory.setPublishBatch(properties.getIngestPublishBatch());
+        factory.setTextKomprimierung(properties.isTextCompressed());
+        factory.getTextKompressor().setCacheMegabytes(properties.getTextCacheMb());
+        if (properties.isTextBlobEnabled()) {
+            factory.setTextBlobDatei(properties.getTextBlobFile());
+        }
+        factory.setKonkordanz(properties.isKonkordanzEnabled());
 
-        // Start the web interface
+        // Start the web interface first, the data is loaded afterwards and published in batches
         startWebInterface();
 
+        // Watch the folders for new protocols (optional, not for archives).
+        // Registered before loading, so files dropped in during a long initial load are picked up afterwards.
+        if (properties.isWatchEnabled()) {
+            for (String folderPath : folderPaths) {
+                if (new File(folderPath).isDirectory()) {
+                    new ProtokollWatcher(factory, folderPath).start();
+                }
+            }
+        }
+
+        factory.loadXML(folderPaths.toArray(new String[0]));
+
     }
 
     /**
@@ -64,7 +99,6 @@ public class MainUbung3 {
         System.out.println("WEB INTERFACE WIRD GESTARTET...");
 
         try {
-            AppProperties properties = new AppProperties();
             RESTHandler restHandler = new RESTHandler(factory, properties);
             restHandler.start();
 
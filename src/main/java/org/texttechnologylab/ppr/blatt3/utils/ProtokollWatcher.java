@@ -0,0 +1,122 @@
+package org.texttechnologylab.ppr.blatt3.utils;
+
+import org.texttechnologylab.ppr.blatt3.data.redenportal.ObjectFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Beobachtet einen Ordner mit Plenarprotokollen über den WatchService.
+ * Neue oder geänderte XML-Dateien werden nach einer Ruhezeit gesammelt eingelesen und als eine neue Version
+ * in die laufende ObjectFactory übernommen, ohne dass der Server neu gestartet werden muss.
+ * Der Watcher wird vor dem ersten Laden registriert, Änderungen während des Ladens werden gesammelt und
+ * danach eingelesen (Dateien, die sich seit dem Einlesen nicht geändert haben, überspringt die Factory).
+ */
+public class ProtokollWatcher implements Runnable {
+
+    /** Wartezeit nach dem letzten Event, damit Dateien erst nach dem Kopieren gelesen werden */
+    private static final long RUHEZEIT_MS = 1000;
+
+    private final ObjectFactory factory;
+    private final Path ordner;
+    private volatile boolean aktiv = true;
+    private WatchService watchService;
+
+    /**
+     * Erstellt einen Watcher für einen Ordner
+     * @param factory Factory, in die neue Dateien übernommen werden
+     * @param ordner Ordner mit den XML-Dateien
+     */
+    public ProtokollWatcher(ObjectFactory factory, String ordner) {
+        this.factory = factory;
+        this.ordner = Paths.get(ordner);
+    }
+
+    /**
+     * Registriert den Ordner sofort (im aufrufenden Thread) und startet den Watcher in einem Daemon-Thread
+     * @return der gestartete Thread oder null, wenn der Ordner nicht beobachtet werden kann
+     */
+    public Thread start() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            ordner.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            System.err.println("Watcher could not be started: " + e.getMessage());
+            return null;
+        }
+        System.out.println("Watching for new protocols in: " + ordner);
+
+        Thread thread = new Thread(this, "protokoll-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Stoppt den Watcher nach dem nächsten Durchlauf
+     */
+    public void stop() {
+        aktiv = false;
+    }
+
+    @Override
+    public void run() {
+        try (WatchService service = watchService) {
+            Set<Path> geaendert = new LinkedHashSet<>();
+            while (aktiv) {
+                // Ohne offene Änderungen blockierend warten, sonst nur die Ruhezeit
+                WatchKey key = geaendert.isEmpty() ?
+                        service.take() : service.poll(RUHEZEIT_MS, TimeUnit.MILLISECONDS);
+
+                if (key == null) {
+                    // Während des ersten Ladens nur sammeln, die Dateien werden danach verglichen
+                    if (!factory.isBereit()) continue;
+
+                    // Ruhezeit vorbei: gesammelte Dateien zusammen einlesen
+                    ladeDateien(geaendert);
+                    geaendert.clear();
+                    continue;
+                }
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) continue;
+                    Path datei = ordner.resolve((Path) event.context());
+                    if (datei.getFileName().toString().toLowerCase().endsWith(".xml")) {
+                        geaendert.add(datei);
+                    }
+                }
+                if (!key.reset()) {
+                    System.err.println("Watched folder no longer accessible: " + ordner);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Watcher stopped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Liest die Dateien ein, Fehler werden nur ausgegeben
+     */
+    private void ladeDateien(Set<Path> dateien) {
+        List<File> files = new ArrayList<>();
+        for (Path datei : dateien) {
+            File file = datei.toFile();
+            if (file.isFile()) files.add(file);
+        }
+        if (files.isEmpty()) return;
+        try {
+            factory.ladeGeaenderteDateien(files);
+        } catch (Exception e) {
+            System.err.println("Error loading " + files.size() + " changed files: " + e.getMessage());
+        }
+    }
+}
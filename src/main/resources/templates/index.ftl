@@ -59,9 +59,11 @@
     <!-- Search input + button
          JavaScript function searchRedner() will be called -->
     <div class="search-box">
-        <input type="text" id="searchInput" placeholder="Namen eingeben bitte">
+        <input type="text" id="searchInput" placeholder="Namen eingeben bitte" autocomplete="off">
         <button onclick="searchRedner()">Suche</button>
     </div>
+    <!-- Name suggestions while typing (prefix index, /api/redner/typeahead) -->
+    <ul id="typeahead" class="typeahead"></ul>
     <!-- Search results will be inserted here dynamically using JavaScript -->
     <div id="searchResults"></div>
 </section>
@@ -228,9 +230,37 @@
     // Trigger search when Enter key is pressed
     $('#searchInput').keypress(function(e) {
         if (e.which === 13) {
+            $('#typeahead').empty();
             searchRedner();
         }
     });
+
+    /**
+     * Shows name suggestions while typing.
+     * Only the answer to the latest input is shown, older answers are dropped.
+     */
+    let typeaheadAnfrage = 0;
+    $('#searchInput').on('input', function() {
+        const query = $(this).val().trim();
+        const anfrage = ++typeaheadAnfrage;
+        if (query.length === 0) {
+            $('#typeahead').empty();
+            return;
+        }
+
+        $.get('/api/redner/typeahead', { q: query, limit: 8 })
+            .done(function(vorschlaege) {
+                if (anfrage !== typeaheadAnfrage) return;
+                let html = '';
+                for (let i = 0; i < vorschlaege.length; i++) {
+                    const v = vorschlaege[i];
+                    html += '<li><a href="/redner/' + encodeURIComponent(v.id) + '">' + $('<span>').text(v.name).html() + '</a>' +
+                        (v.fraktion ? ' <span class="typeahead-fraktion">' + $('<span>').text(v.fraktion).html() + '</span>' : '') +
+                        '</li>';
+                }
+                $('#typeahead').html(html);
+            });
+    });
 </script>
 </body>
 </html>
\ No newline at end of file
@@ -34,13 +34,20 @@
     </#if>
 
     <p class="metadata">
-        ${rede.text?length} Zeichen | ${kommentare?size} Kommentare
+        ${rede.laenge} Zeichen | ${kommentare?size} Kommentare
     </p>
 </div>
 
 <div class="rede-text">
     <h3>Wortlaut der Rede:</h3>
-    <div class="text-content">${rede.text}</div>
+    <div class="text-content absaetze" id="redeText">
+        <#list textSeite.absaetze as absatz>
+            <p class="absatz" data-klasse="${absatz.klasse}">${absatz.text}</p>
+        </#list>
+    </div>
+    <#if textSeite.count lt textSeite.anzahlAbsaetze>
+        <button id="weitereAbsaetze" data-from="${textSeite.count?c}">Weitere Absätze laden</button>
+    </#if>
 </div>
 
 <#if kommentare?size gt 0>
@@ -62,5 +69,40 @@
         </#if>
     </p>
 </footer>
+
+<#if textSeite.count lt textSeite.anzahlAbsaetze>
+<script>
+    // Lange Reden werden seitenweise nachgeladen
+    document.getElementById('weitereAbsaetze').addEventListener('click', function() {
+        var button = this;
+        var from = parseInt(button.getAttribute('data-from'), 10);
+        fetch('/api/reden/' + encodeURIComponent('${rede.rid?js_string}') + '/text?from=' + from + '&count=${textSeite.absaetze?size?c}')
+            .then(function(response) {
+                if (!response.ok) {
+                    throw new Error('Fehler: ' + response.status);
+                }
+                return response.json();
+            })
+            .then(function(seite) {
+                var container = document.getElementById('redeText');
+                seite.absaetze.forEach(function(absatz) {
+                    var p = document.createElement('p');
+                    p.className = 'absatz';
+                    p.setAttribute('data-klasse', absatz.klasse);
+                    p.textContent = absatz.text;
+                    container.appendChild(p);
+                });
+                var naechste = from + seite.count;
+                button.setAttribute('data-from', naechste);
+                if (naechste >= seite.anzahlAbsaetze) {
+                    button.remove();
+                }
+            })
+            .catch(function(error) {
+                console.error(error);
+            });
+    });
+</script>
+</#if>
 </body>
 </html>
\ No newline at end of file
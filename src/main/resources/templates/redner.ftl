@@ -38,11 +38,11 @@
                 <#if rede.sitzung??>
                     WP ${rede.sitzung.wahlperiode}, Sitzung ${rede.sitzung.sitzungNr}
                 </#if>
-                <span class="stat-badge">${rede.text?length} Zeichen</span>
+                <span class="stat-badge">${rede.laenge} Zeichen</span>
                 <span class="stat-badge">${rede.kommentar?size} Kommentare</span>
             </p>
             <p class="rede-preview">
-                <#if rede.text?length gt 200>
+                <#if rede.laenge gt 200>
                     ${rede.text[0..200]}...
                 <#else>
                     ${rede.text}
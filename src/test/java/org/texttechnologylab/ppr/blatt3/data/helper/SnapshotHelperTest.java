@@ -0,0 +1,142 @@
+package org.texttechnologylab.ppr.blatt3.data.helper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.texttechnologylab.ppr.blatt3.data.redenportal.*;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Schreibt Reden als Snapshot (Format VERSION 3) und liest sie wieder ein
+ */
+class SnapshotHelperTest {
+
+    @TempDir
+    Path verzeichnis;
+
+    @Test
+    void snapshotRoundTrip() throws Exception {
+        Fraktion spd = new Fraktion("SPD");
+        Fraktion gruene = new Fraktion("BÜNDNIS 90/DIE GRÜNEN");
+        Redner redner = new Redner("Dr.", "11001234", "Erika", "Mustermann", spd);
+        Redner ohneFraktion = new Redner(null, "11005678", "Max", "Müller", null);
+        Sitzung sitzung = new Sitzung("20", "1", "Berlin", new Date(1635199200000L), LocalTime.of(11, 0), LocalTime.of(18, 42, 30));
+        Sitzung ohneZeiten = new Sitzung("20", "2", null, null, null, null);
+
+        Rede erste = new Rede("ID2000100", redner, sitzung);
+        String text = "Erster Absatz. Zweiter Absatz mit Umlauten äöü und €.";
+        erste.setText(text, new Absaetze(new int[]{0, 14, 15, text.length()}, new String[]{"J_1", null}));
+        erste.addKommentar(new Kommentar(redner, erste, spd, "(Beifall bei der SPD)"));
+        erste.addKommentar(new Kommentar(ohneFraktion, erste, gruene, "(Zuruf)"));
+        Rede zweite = new Rede("ID2000200", ohneFraktion, ohneZeiten);
+        zweite.setText("");
+        Rede dritte = new Rede("ID2000201", redner, ohneZeiten);
+        dritte.setText("Kurz.");
+
+        Map<String, List<Rede>> quellen = new LinkedHashMap<>();
+        quellen.put("20/1.xml", List.of(erste));
+        quellen.put("20/2.xml", List.of(zweite, dritte));
+
+        Path datei = verzeichnis.resolve("korpus.snap");
+        SnapshotHelper.schreibeSnapshot(datei, "fp", quellen);
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(datei))) {
+            in.readInt();
+            assertEquals(SnapshotHelper.VERSION, in.readInt());
+        }
+
+        Map<String, List<Rede>> geladen = SnapshotHelper.ladeSnapshot(datei, "fp");
+        assertNotNull(geladen);
+        assertEquals(List.copyOf(quellen.keySet()), List.copyOf(geladen.keySet()));
+        for (String quelle : quellen.keySet()) {
+            List<Rede> original = quellen.get(quelle);
+            List<Rede> kopie = geladen.get(quelle);
+            assertEquals(original.size(), kopie.size());
+            for (int i = 0; i < original.size(); i++) {
+                vergleiche(original.get(i), kopie.get(i));
+            }
+        }
+
+        // Gemeinsame Objekte bleiben auch nach dem Laden gemeinsam
+        Rede geladenErste = geladen.get("20/1.xml").get(0);
+        Rede geladenDritte = geladen.get("20/2.xml").get(1);
+        assertSame(geladenErste.getRedner(), geladenDritte.getRedner());
+        assertSame(geladenErste.getRedner(), geladenErste.getKommentar().get(0).getRedner());
+        assertSame(geladenErste.getRedner().getFraktion(), geladenErste.getKommentar().get(0).getFraktion());
+        assertSame(geladenErste, geladenErste.getKommentar().get(0).getRede());
+        assertSame(geladen.get("20/2.xml").get(0).getSitzung(), geladenDritte.getSitzung());
+    }
+
+    @Test
+    void anderenFingerprintVerwerfen() throws Exception {
+        Path datei = verzeichnis.resolve("korpus.snap");
+        SnapshotHelper.schreibeSnapshot(datei, "alt", Map.of());
+        assertNotNull(SnapshotHelper.ladeSnapshot(datei, "alt"));
+        assertNull(SnapshotHelper.ladeSnapshot(datei, "neu"));
+        assertNull(SnapshotHelper.ladeSnapshot(verzeichnis.resolve("fehlt.snap"), "alt"));
+    }
+
+    @Test
+    void snapshotDateiUnterscheidetOrdnerMitGleichemNamen() {
+        File a = verzeichnis.resolve("a").resolve("20").toFile();
+        File b = verzeichnis.resolve("b").resolve("20").toFile();
+        Path snapshotA = SnapshotHelper.snapshotDatei("snapshots", a);
+        Path snapshotB = SnapshotHelper.snapshotDatei("snapshots", b);
+
+        assertNotEquals(snapshotA, snapshotB);
+        assertEquals(snapshotA, SnapshotHelper.snapshotDatei("snapshots", new File(a, "..").toPath().resolve("20").toFile()));
+        assertTrue(snapshotA.getFileName().toString().startsWith("korpus-20-"));
+    }
+
+    private static void vergleiche(Rede erwartet, Rede rede) {
+        assertEquals(erwartet.getRid(), rede.getRid());
+        assertEquals(erwartet.getText(), rede.getText());
+        assertEquals(erwartet.getLaenge(), rede.getLaenge());
+
+        Absaetze a = erwartet.absaetze();
+        Absaetze b = rede.absaetze();
+        assertEquals(a.getAnzahl(), b.getAnzahl());
+        for (int i = 0; i < a.getAnzahl(); i++) {
+            assertEquals(a.start(i), b.start(i));
+            assertEquals(a.ende(i), b.ende(i));
+            assertEquals(a.klasse(i), b.klasse(i));
+        }
+
+        vergleiche(erwartet.getRedner(), rede.getRedner());
+        Sitzung s = erwartet.getSitzung();
+        Sitzung t = rede.getSitzung();
+        assertEquals(s.getWahlperiode(), t.getWahlperiode());
+        assertEquals(s.getSitzungNr(), t.getSitzungNr());
+        assertEquals(s.getSitzungOrt(), t.getSitzungOrt());
+        assertEquals(s.getSitzungDatum(), t.getSitzungDatum());
+        assertEquals(s.getStartZeit(), t.getStartZeit());
+        assertEquals(s.getEndZeit(), t.getEndZeit());
+
+        assertEquals(erwartet.getKommentar().size(), rede.getKommentar().size());
+        for (int i = 0; i < erwartet.getKommentar().size(); i++) {
+            Kommentar k = erwartet.getKommentar().get(i);
+            Kommentar l = rede.getKommentar().get(i);
+            assertEquals(k.getTextk(), l.getTextk());
+            assertEquals(k.getFraktion().getName(), l.getFraktion().getName());
+            vergleiche(k.getRedner(), l.getRedner());
+        }
+    }
+
+    private static void vergleiche(Redner erwartet, Redner redner) {
+        assertEquals(erwartet.getTitel(), redner.getTitel());
+        assertEquals(erwartet.getId(), redner.getId());
+        assertEquals(erwartet.getVorname(), redner.getVorname());
+        assertEquals(erwartet.getNachname(), redner.getNachname());
+        if (erwartet.getFraktion() == null) {
+            assertNull(redner.getFraktion());
+        } else {
+            assertEquals(erwartet.getFraktion().getName(), redner.getFraktion().getName());
+        }
+    }
+}
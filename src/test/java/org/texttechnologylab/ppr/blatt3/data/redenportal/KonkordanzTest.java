@@ -0,0 +1,137 @@
+package org.texttechnologylab.ppr.blatt3.data.redenportal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prüft das Suffix-Array (SA-IS) gegen eine naive Sortierung und die Suche gegen String.indexOf
+ */
+class KonkordanzTest {
+
+    @Test
+    void suffixArrayWieNaiveSortierungBeiZufallstexten() {
+        Random zufall = new Random(42);
+        for (int lauf = 0; lauf < 200; lauf++) {
+            // Kleines Alphabet, damit viele gleiche Teilstrings und damit Rekursionsstufen entstehen
+            String alphabet = lauf % 2 == 0 ? "ab" : "abcAB äß€";
+            List<String> texte = new ArrayList<>();
+            int anzahl = 1 + zufall.nextInt(5);
+            for (int r = 0; r < anzahl; r++) {
+                texte.add(zufallstext(zufall, alphabet, zufall.nextInt(40)));
+            }
+            pruefeSuffixArray(texte);
+        }
+    }
+
+    @Test
+    void suffixArrayWieNaiveSortierungBeiWiederholungen() {
+        pruefeSuffixArray(List.of("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa"));
+        pruefeSuffixArray(List.of("abababababababababababab", "abababab"));
+        pruefeSuffixArray(List.of("abcabcabcabcabcabcabcabcabc", "", "cab"));
+        pruefeSuffixArray(List.of("mississippi", "Mississippi", "MISSISSIPPI"));
+        pruefeSuffixArray(List.of("", "", ""));
+        pruefeSuffixArray(List.of());
+    }
+
+    @Test
+    void sucheZaehltWieIndexOf() {
+        Random zufall = new Random(7);
+        for (int lauf = 0; lauf < 100; lauf++) {
+            List<String> texte = new ArrayList<>();
+            int anzahl = 1 + zufall.nextInt(6);
+            for (int r = 0; r < anzahl; r++) {
+                texte.add(zufallstext(zufall, "abAB", zufall.nextInt(30)));
+            }
+            Konkordanz konkordanz = new Konkordanz(reden(texte), 1, () -> false);
+            for (int laenge = 1; laenge <= 4; laenge++) {
+                String begriff = zufallstext(zufall, "ab", laenge);
+                assertEquals(zaehle(texte, begriff), konkordanz.suche(begriff).anzahl(), texte + " / " + begriff);
+            }
+        }
+    }
+
+    @Test
+    void trefferAnRedegrenzen() {
+        List<String> texte = List.of("Klima am Ende: klima", "Klimaschutz", "ab", "cd");
+        Konkordanz konkordanz = new Konkordanz(reden(texte), 1, () -> false);
+
+        // Treffer am Anfang und am Ende einer Rede zählen, über die Grenze zweier Reden hinweg nicht
+        assertEquals(3, konkordanz.suche("klima").anzahl());
+        assertEquals(3, konkordanz.suche("KLIMA").anzahl());
+        assertEquals(0, konkordanz.suche("klimaklima").anzahl());
+        assertEquals(0, konkordanz.suche("bc").anzahl());
+        assertEquals(1, konkordanz.suche("cd").anzahl());
+        assertEquals(0, konkordanz.suche("").anzahl());
+
+        List<Konkordanz.Zeile> zeilen = new ArrayList<>();
+        konkordanz.zeilen(konkordanz.suche("klima"), 10, 3, zeilen::add);
+        assertEquals(3, zeilen.size());
+        for (Konkordanz.Zeile zeile : zeilen) {
+            String text = zeile.rede().getText();
+            assertEquals(text.substring(zeile.position(), zeile.position() + 5), zeile.treffer());
+            assertTrue(zeile.treffer().equalsIgnoreCase("klima"));
+        }
+    }
+
+    @Test
+    void aufbauWirdAbgebrochen() {
+        assertThrows(CancellationException.class, () -> new Konkordanz(reden(List.of("abc")), 1, () -> true));
+    }
+
+    /**
+     * Vergleicht das Suffix-Array mit allen Suffixen des kodierten Gesamttextes, naiv sortiert
+     */
+    private static void pruefeSuffixArray(List<String> texte) {
+        Konkordanz konkordanz = new Konkordanz(reden(texte), 1, () -> false);
+
+        // Gesamttext wie in der Konkordanz: kodierte Zeichen, Trenner (1) nach jeder Rede, Ende (0)
+        StringBuilder gesamt = new StringBuilder();
+        for (String text : texte) {
+            for (int i = 0; i < text.length(); i++) gesamt.append((char) (Konkordanz.kodiere(text.charAt(i)) & 0xFF));
+            gesamt.append((char) 1);
+        }
+        gesamt.append((char) 0);
+        String kodiert = gesamt.toString();
+
+        Integer[] erwartet = new Integer[kodiert.length()];
+        for (int i = 0; i < erwartet.length; i++) erwartet[i] = i;
+        Arrays.sort(erwartet, Comparator.comparing(kodiert::substring));
+
+        assertEquals(erwartet.length, konkordanz.getAnzahlZeichen(), texte.toString());
+        for (int rang = 0; rang < erwartet.length; rang++) {
+            assertEquals(erwartet[rang].intValue(), konkordanz.suffix(rang), texte + " Rang " + rang);
+        }
+    }
+
+    private static List<Rede> reden(List<String> texte) {
+        List<Rede> reden = new ArrayList<>();
+        for (String text : texte) {
+            Rede rede = new Rede("ID" + reden.size(), null, null);
+            rede.setText(text);
+            reden.add(rede);
+        }
+        return reden;
+    }
+
+    /**
+     * Vorkommen ohne Beachtung der Groß-/Kleinschreibung, auch überlappend
+     */
+    private static int zaehle(List<String> texte, String begriff) {
+        int anzahl = 0;
+        for (String text : texte) {
+            String klein = text.toLowerCase();
+            for (int i = klein.indexOf(begriff); i >= 0; i = klein.indexOf(begriff, i + 1)) anzahl++;
+        }
+        return anzahl;
+    }
+
+    private static String zufallstext(Random zufall, String alphabet, int laenge) {
+        StringBuilder text = new StringBuilder(laenge);
+        for (int i = 0; i < laenge; i++) text.append(alphabet.charAt(zufall.nextInt(alphabet.length())));
+        return text.toString();
+    }
+}